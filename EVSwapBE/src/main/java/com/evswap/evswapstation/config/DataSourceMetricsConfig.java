@@ -0,0 +1,29 @@
+package com.evswap.evswapstation.config;
+
+import com.evswap.evswapstation.service.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gắn ConnectionPoolMetrics vào mọi HikariDataSource (pool mặc định của Spring Boot
+ * hoặc hai pool của DataSourceRoutingConfig) trước khi pool khởi động.
+ */
+@Configuration
+public class DataSourceMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor(ObjectProvider<ConnectionPoolMetrics> poolMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(poolMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.evswap.evswapstation.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Tách hai pool Hikari (bật bằng datasource.routing.enabled=true):
+ * - write: pool nhỏ, timeout ngắn cho booking / thanh toán / đăng nhập
+ * - read: cho dashboard / báo cáo, được chọn khi đang ở trong @Transactional(readOnly = true)
+ * Cả hai nhận cấu hình chung từ spring.datasource.hikari.*, rồi ghi đè bằng datasource.routing.write.* / read.*.
+ * LazyConnectionDataSourceProxy hoãn việc lấy connection thật đến câu lệnh đầu tiên,
+ * lúc đó cờ readOnly của transaction đã được Spring gán nên routing chọn đúng pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    public static final String WRITE = "write";
+    public static final String READ = "read";
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writeDataSource(DataSourceProperties properties, Environment environment) {
+        return createPool(properties, environment, WRITE);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readDataSource(DataSourceProperties properties, Environment environment) {
+        return createPool(properties, environment, READ);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, HikariDataSource readDataSource) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(WRITE, writeDataSource, READ, readDataSource));
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource createPool(DataSourceProperties properties, Environment environment, String role) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        binder.bind("datasource.routing." + role, Bindable.ofInstance(pool));
+        pool.setPoolName((pool.getPoolName() != null ? pool.getPoolName() : "evswap") + "-" + role);
+        return pool;
+    }
+
+    static class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? READ : WRITE;
+        }
+    }
+}
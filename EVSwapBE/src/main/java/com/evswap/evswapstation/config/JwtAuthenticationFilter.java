@@ -1,6 +1,7 @@
 package com.evswap.evswapstation.config;
 
-import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.security.JwtClaims;
+import com.evswap.evswapstation.security.UserDetailsCache;
 import com.evswap.evswapstation.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -18,8 +19,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -28,6 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     protected void doFilterInternal(
@@ -45,25 +45,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String email = jwtService.extractUsername(jwt); // Subject là email
+            // Parse và verify token đúng 1 lần (ném lỗi nếu sai chữ ký hoặc hết hạn)
+            final JwtClaims claims = jwtService.parseAndValidate(jwt);
+            final String email = claims.subject(); // Subject là email
 
             // Nếu có token và user chưa được xác thực trong SecurityContext
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+                UserDetails userDetails = resolveUserDetails(email);
 
-                // Nếu token hợp lệ, tạo Authentication và đặt vào SecurityContext
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities() // Quan trọng: lấy quyền từ UserDetails
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    log.debug("User '{}' authenticated successfully with roles: {}", email, userDetails.getAuthorities());
-                } else {
-                    log.warn("Invalid JWT token for user: {}", email);
-                }
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities() // Quan trọng: lấy quyền từ UserDetails
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                log.debug("User '{}' authenticated successfully with roles: {}", email, userDetails.getAuthorities());
             }
         } catch (Exception e) {
             log.error("Cannot set user authentication: {}", e.getMessage());
@@ -72,4 +69,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Lấy principal từ cache; cache miss thì load từ DB, không tin claim role trong token.
+     * Role / user bị xóa trên instance khác có hiệu lực ở đây chậm nhất sau TTL của cache.
+     */
+    private UserDetails resolveUserDetails(String email) {
+        UserDetails cached = userDetailsCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Đọc generation trước khi load để put() nhận ra invalidate xảy ra trong lúc này
+        long generation = userDetailsCache.generation(email);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        userDetailsCache.put(email, userDetails, generation);
+        return userDetails;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.evswap.evswapstation.config;
+
+import com.evswap.evswapstation.service.QueryMetrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Gắn QueryMetrics vào tầng truy cập dữ liệu:
+ * - bean "dataSource" (DataSource chính mà JPA / JdbcTemplate dùng) được bọc bởi StatementTimingDataSource
+ * - mọi repository Spring Data được thêm interceptor ghi tên method đang chạy và đo độ trễ
+ */
+@Configuration
+@ConditionalOnProperty(name = "monitoring.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryLoggingConfig {
+
+    @Bean
+    public static BeanPostProcessor queryLoggingPostProcessor(ObjectProvider<QueryMetrics> queryMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                String repository = repositoryInformation.getRepositoryInterface().getSimpleName();
+                                proxyFactory.addAdvice(repositoryMethodInterceptor(repository, queryMetrics));
+                            }));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof StatementTimingDataSource)) {
+                    return new StatementTimingDataSource(dataSource, queryMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor repositoryMethodInterceptor(String repository,
+                                                                 ObjectProvider<QueryMetrics> queryMetrics) {
+        return invocation -> {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String method = repository + "." + invocation.getMethod().getName();
+            String previous = QueryMetrics.enterRepositoryMethod(method);
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                queryMetrics.getObject().recordRepositoryCall(method, System.nanoTime() - start);
+                QueryMetrics.exitRepositoryMethod(previous);
+            }
+        };
+    }
+}
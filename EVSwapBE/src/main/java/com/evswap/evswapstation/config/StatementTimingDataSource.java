@@ -0,0 +1,133 @@
+package com.evswap.evswapstation.config;
+
+import com.evswap.evswapstation.service.QueryMetrics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Bọc DataSource để đo thời gian mỗi lần execute trên Statement / PreparedStatement
+ * và chuyển cho QueryMetrics (câu SQL, số tham số, kích thước batch, thời gian).
+ * Chỉ đếm tham số, không giữ giá trị.
+ */
+public class StatementTimingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final QueryMetrics queryMetrics;
+
+    public StatementTimingDataSource(DataSource target, QueryMetrics queryMetrics) {
+        super(target);
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            if (!STATEMENT_FACTORIES.contains(method.getName()) || !(result instanceof Statement)) {
+                return result;
+            }
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class
+                    : Statement.class;
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{type}, new StatementHandler((Statement) result, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private String sql;
+        private final BitSet binds = new BitSet();
+        private int batchSize;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (EXECUTE_METHODS.contains(name)) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+                boolean batch = name.endsWith("Batch");
+                long start = System.nanoTime();
+                boolean failed = true;
+                try {
+                    Object result = invokeTarget(target, method, args);
+                    failed = false;
+                    return result;
+                } finally {
+                    queryMetrics.recordStatement(executed, binds.cardinality(), batch ? batchSize : 0,
+                            System.nanoTime() - start, failed);
+                    if (batch) {
+                        batchSize = 0;
+                    }
+                }
+            }
+
+            // setXxx(parameterIndex, value, ...) trên PreparedStatement
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                binds.set(index);
+            } else if ("clearParameters".equals(name)) {
+                binds.clear();
+            } else if ("addBatch".equals(name)) {
+                batchSize++;
+                if (args != null && args.length == 1 && args[0] instanceof String s) {
+                    sql = s;
+                }
+            } else if ("clearBatch".equals(name)) {
+                batchSize = 0;
+            }
+            return invokeTarget(target, method, args);
+        }
+    }
+}
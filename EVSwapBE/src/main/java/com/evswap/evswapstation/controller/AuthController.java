@@ -5,9 +5,11 @@ import com.evswap.evswapstation.entity.User;
 import com.evswap.evswapstation.enums.Role;
 import com.evswap.evswapstation.repository.PasswordResetTokenRepository;
 import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.security.JwtClaims;
 import com.evswap.evswapstation.service.EmailService;
 import com.evswap.evswapstation.service.GoogleAuthService;
 import com.evswap.evswapstation.service.JwtService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +25,7 @@ import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/auth")
+@Slf4j
 public class AuthController {
 
     @Autowired
@@ -66,20 +69,12 @@ public class AuthController {
     // Đăng nhập
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody Map<String, String> loginRequest) {
-        System.out.println("========== LOGIN REQUEST ==========");
-        System.out.println("Full request body: " + loginRequest);
-
         // Lấy thông tin từ request (hỗ trợ cả camelCase và snake_case)
         String email = loginRequest.getOrDefault("email", loginRequest.getOrDefault("Email", null));
         String username = loginRequest.getOrDefault("userName", loginRequest.getOrDefault("username",
                 loginRequest.getOrDefault("Username", null)));
         String password = loginRequest.get("password");
 
-        System.out.println("Email: " + email);
-        System.out.println("Username: " + username);
-        System.out.println("Password exists: " + (password != null));
-        System.out.println("=====================================");
-
         // Kiểm tra password bắt buộc
         if (password == null || password.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -90,37 +85,31 @@ public class AuthController {
 
         // Tìm user theo email hoặc username
         if (email != null && !email.isEmpty()) {
-            System.out.println("Searching by email: " + email);
             // Lấy tất cả user với email (để handle trường hợp có nhiều)
             var users = userRepository.findAllByEmail(email);
             if (!users.isEmpty()) {
                 // Lấy user đầu tiên
                 userOpt = Optional.of(users.get(0));
-                System.out.println("Found " + users.size() + " user(s) with email, using first one (ID: " + userOpt.get().getUserID() + ")");
+                if (users.size() > 1) {
+                    log.debug("Login: {} users share the same email, using userId={}", users.size(), userOpt.get().getUserID());
+                }
             } else {
                 userOpt = Optional.empty();
-                System.out.println("No user found with email");
             }
         } else if (username != null && !username.isEmpty()) {
-            System.out.println("Searching by username: " + username);
             userOpt = userRepository.findByUserName(username);
-            System.out.println("User found by username: " + userOpt.isPresent());
         } else {
-            System.out.println("Neither email nor username provided!");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Email or username is required");
         }
 
         if (userOpt.isEmpty()) {
-            System.out.println("User not found!");
+            log.debug("Login failed: user not found");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Invalid username/email or password");
         }
 
         User user = userOpt.get();
-        System.out.println("Found user: " + user.getUserName() + " / " + user.getEmail());
-        System.out.println("Input password: " + password);
-        System.out.println("Stored password hash: " + user.getPassword());
 
         // Kiểm tra mật khẩu
         boolean passwordValid = false;
@@ -128,27 +117,25 @@ public class AuthController {
         // Thử so khớp với BCrypt hash
         if (encoder.matches(password, user.getPassword())) {
             passwordValid = true;
-            System.out.println("Password matches (BCrypt)");
         }
         // Nếu không match với BCrypt, thử so sánh plain text (cho trường hợp password chưa được hash)
         else if (password.equals(user.getPassword())) {
             passwordValid = true;
-            System.out.println("Password matches (plain text) - WARNING: Password stored as plain text!");
+            log.warn("userId={} had a plain-text password, re-encoding with BCrypt", user.getUserID());
 
             // Tự động encode lại password với giá trị input
             String newHash = encoder.encode(password);
             user.setPassword(newHash);
             userRepository.save(user);
-            System.out.println("Password has been re-encoded and saved");
         }
 
         if (!passwordValid) {
-            System.out.println("Password mismatch!");
+            log.debug("Login failed: password mismatch for userId={}", user.getUserID());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Invalid username/email or password");
         }
 
-        System.out.println("Login successful!");
+        log.debug("Login succeeded for userId={}", user.getUserID());
 
         // Tạo JWT token
         String token = jwtService.generateToken(user);
@@ -189,7 +176,7 @@ public class AuthController {
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
-            System.out.println("Google auth failed: " + e.getMessage());
+            log.debug("Google auth failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Google authentication failed: " + e.getMessage());
         }
@@ -202,14 +189,11 @@ public class AuthController {
         try {
             String token = authHeader.replace("Bearer ", "");
 
-            // Validate token
-            if (!jwtService.isTokenValid(token, null)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body("Invalid token");
-            }
+            // Validate token (parse 1 lần, ném lỗi nếu sai chữ ký hoặc hết hạn)
+            JwtClaims claims = jwtService.parseAndValidate(token);
 
             // Extract username và tìm user
-            String username = jwtService.extractUsername(token);
+            String username = claims.subject();
             Optional<User> userOpt = userRepository.findByUserName(username);
 
             if (userOpt.isEmpty()) {
@@ -5,6 +5,7 @@ import com.evswap.evswapstation.dto.BatteryReturnRequest;
 import com.evswap.evswapstation.service.BatteryReturnService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +16,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/battery-returns")
 @RequiredArgsConstructor
+@Slf4j
 @CrossOrigin(origins = "*")
 @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
 public class BatteryReturnController {
@@ -61,7 +63,7 @@ public class BatteryReturnController {
     @PostMapping
     public ResponseEntity<BatteryReturnDTO> createBatteryReturn(
             @Valid @RequestBody BatteryReturnRequest request) {
-        System.out.println("Received POST request: " + request);
+        log.debug("Received battery return request: {}", request);
         BatteryReturnDTO created = batteryReturnService.createBatteryReturn(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
@@ -3,16 +3,17 @@ package com.evswap.evswapstation.controller;
 import com.evswap.evswapstation.dto.BookingRequest;
 import com.evswap.evswapstation.entity.*;
 import com.evswap.evswapstation.repository.*;
+import com.evswap.evswapstation.service.BatteryAllocationService;
+import com.evswap.evswapstation.service.BatteryAllocationService.AvailableBattery;
+import com.evswap.evswapstation.service.BookingService;
+import com.evswap.evswapstation.service.PackagePlanService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,10 +24,11 @@ import java.util.Map;
 public class BookingController {
 
     private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
     private final UserPackagePlansRepository userPackageRepository;
-    private final PackagePlanRepository packageRepository;
+    private final PackagePlanService packagePlanService;
     private final VehicleRepository vehicleRepository;
-    private final BatteryRepository batteryRepository;
+    private final BatteryAllocationService batteryAllocationService;
 
     @PostMapping("/create")
     @PreAuthorize("hasAnyRole('DRIVER','ADMIN','STAFF')")
@@ -68,39 +70,8 @@ public class BookingController {
             log.info("Vehicle info - Model: {}, Battery Type: {}",
                     vehicle.getVehicleModel(), requiredBatteryType);
 
-            // 3. Find available battery with matching battery type at the station
-            List<Battery> availableBatteries = batteryRepository.findByStatus("Full");
-
-            log.info("Looking for battery type: '{}'", requiredBatteryType);
-
-            Battery selectedBattery = availableBatteries.stream()
-                    .filter(b -> {
-                        // Log for debugging
-                        log.debug("Checking battery: ID={}, Type='{}', BorrowStatus={}, StationID={}",
-                                b.getBatteryID(), b.getBatteryType(), b.getBorrowStatus(), b.getStationID());
-
-                        return "Available".equalsIgnoreCase(b.getBorrowStatus());
-                    })
-                    .filter(b -> b.getStationID() != null && b.getStationID().equals(request.getStationId().intValue()))
-                    .filter(b -> {
-                        // Normalize both strings: remove all whitespace for comparison
-                        String normalizedVehicleType = requiredBatteryType != null ?
-                                requiredBatteryType.replaceAll("\\s+", "") : "";
-                        String normalizedBatteryType = b.getBatteryType() != null ?
-                                b.getBatteryType().replaceAll("\\s+", "") : "";
-
-                        boolean matches = normalizedVehicleType.equalsIgnoreCase(normalizedBatteryType);
-
-                        log.debug("Comparing: Vehicle='{}' vs Battery='{}' -> Match: {}",
-                                normalizedVehicleType, normalizedBatteryType, matches);
-
-                        return matches;
-                    })
-                    .findFirst()
-                    .orElse(null);
-
-            // 4. Get package details
-            PackagePlan packageEntity = packageRepository.findById(userPackage.getPackageId())
+            // 3. Get package details
+            PackagePlan packageEntity = packagePlanService.getById(userPackage.getPackageId())
                     .orElse(null);
 
             if (packageEntity == null) {
@@ -110,59 +81,28 @@ public class BookingController {
                 ));
             }
 
-            // 5. Save booking with transaction
-            return saveBookingTransaction(
+            // 4. Claim a battery with matching type at the station (atomic, index + conditional update)
+            log.info("Looking for battery type: '{}'", requiredBatteryType);
+            Integer stationId = request.getStationId().intValue();
+            AvailableBattery selectedBattery = batteryAllocationService
+                    .claim(stationId, requiredBatteryType)
+                    .orElse(null);
+
+            if (selectedBattery == null) {
+                return ResponseEntity.status(400).body(Map.of(
+                        "status", "error",
+                        "message", "No available battery of type " + requiredBatteryType + " at this station"
+                ));
+            }
+
+            // 5. Save booking (BookingService trả pin lại nếu transaction rollback)
+            BookingEntity savedBooking = bookingService.saveBooking(
                     request,
                     userPackage,
                     packageEntity,
-                    selectedBattery,
-                    vehicle
+                    selectedBattery
             );
 
-        } catch (Exception e) {
-            log.error("❌ Error creating booking", e);
-            return ResponseEntity.status(500).body(Map.of(
-                    "status", "error",
-                    "message", "Internal server error: " + e.getMessage()
-            ));
-        }
-    }
-
-    @Transactional
-    private ResponseEntity<?> saveBookingTransaction(
-            BookingRequest request,
-            UserPackagePlans userPackage,
-            PackagePlan packageEntity,
-            Battery selectedBattery,
-            Vehicle vehicle) {
-
-        try {
-            // Create booking
-            BookingEntity booking = new BookingEntity();
-            booking.setUserId(request.getUserId());
-            booking.setStationId(request.getStationId());
-            booking.setVehicleId(request.getVehicleId());
-            booking.setPackageId(userPackage.getPackageId());
-            booking.setTimeDate(LocalDateTime.now());
-            booking.setStatus("BOOKED");
-            booking.setPrice(packageEntity.getPrice());
-            booking.setBatteryId(selectedBattery.getBatteryID());
-
-            BookingEntity savedBooking = bookingRepository.save(booking);
-            log.info("✅ Booking saved: {}", savedBooking.getBookingId());
-
-            // Update battery status
-            selectedBattery.setBorrowStatus("Not Available");
-            batteryRepository.save(selectedBattery);
-            log.info("✅ Battery {} marked as Not Available", selectedBattery.getBatteryID());
-
-            // Update package if pay-per-use
-            if (packageEntity.getDurationDays() == null) {
-                userPackage.setStatus("Used");
-                userPackageRepository.save(userPackage);
-                log.info("✅ Package marked as Used");
-            }
-
             // Build response
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
@@ -173,21 +113,24 @@ public class BookingController {
                     "stationId", savedBooking.getStationId(),
                     "vehicleId", savedBooking.getVehicleId(),
                     "batteryId", savedBooking.getBatteryId(),
-                    "batteryName", selectedBattery.getBatteryName(),
-                    "batteryType", selectedBattery.getBatteryType(),
+                    "batteryName", selectedBattery.batteryName(),
+                    "batteryType", selectedBattery.batteryType(),
                     "timeDate", savedBooking.getTimeDate(),
                     "status", savedBooking.getStatus(),
                     "price", savedBooking.getPrice()
             ));
 
             log.info("🎉 Booking completed - ID: {}, Battery: {}",
-                    savedBooking.getBookingId(), selectedBattery.getBatteryName());
+                    savedBooking.getBookingId(), selectedBattery.batteryName());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            log.error("❌ Error in transaction", e);
-            throw new RuntimeException("Failed to save booking: " + e.getMessage());
+            log.error("❌ Error creating booking", e);
+            return ResponseEntity.status(500).body(Map.of(
+                    "status", "error",
+                    "message", "Internal server error: " + e.getMessage()
+            ));
         }
     }
 
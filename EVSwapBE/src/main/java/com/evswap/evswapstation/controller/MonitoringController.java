@@ -0,0 +1,56 @@
+package com.evswap.evswapstation.controller;
+
+import com.evswap.evswapstation.dto.ConnectionPoolStatsDTO;
+import com.evswap.evswapstation.dto.GoogleTokenVerifierStatsDTO;
+import com.evswap.evswapstation.dto.QueryStatsDTO;
+import com.evswap.evswapstation.service.ConnectionPoolMetrics;
+import com.evswap.evswapstation.service.GoogleTokenVerifierService;
+import com.evswap.evswapstation.service.QueryMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/monitoring")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class MonitoringController {
+
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final QueryMetrics queryMetrics;
+    private final GoogleTokenVerifierService googleTokenVerifierService;
+
+    /**
+     * GET /api/admin/monitoring/pools
+     * Số liệu các pool connection (active / idle / pending, thời gian chờ, timeout)
+     */
+    @GetMapping("/pools")
+    public ResponseEntity<List<ConnectionPoolStatsDTO>> getPools() {
+        return ResponseEntity.ok(connectionPoolMetrics.snapshot());
+    }
+
+    /**
+     * GET /api/admin/monitoring/queries
+     * Histogram độ trễ theo method repository và các slow query gần nhất
+     */
+    @GetMapping("/queries")
+    public ResponseEntity<QueryStatsDTO> getQueries() {
+        return ResponseEntity.ok(queryMetrics.snapshot());
+    }
+
+    /**
+     * GET /api/admin/monitoring/google-token
+     * Độ trễ xác thực Google ID token, cache hit, trạng thái public key
+     */
+    @GetMapping("/google-token")
+    public ResponseEntity<GoogleTokenVerifierStatsDTO> getGoogleToken() {
+        return ResponseEntity.ok(googleTokenVerifierService.getStats());
+    }
+}
@@ -1,7 +1,7 @@
 package com.evswap.evswapstation.controller;
 
 import com.evswap.evswapstation.entity.PackagePlan;
-import com.evswap.evswapstation.repository.PackagePlanRepository;
+import com.evswap.evswapstation.service.PackagePlanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,20 +16,20 @@ import java.util.Optional;
 public class PackagePlanController {
 
     @Autowired
-    private PackagePlanRepository packagePlanRepository;
+    private PackagePlanService packagePlanService;
 
     // Lấy danh sách tất cả gói
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN','STAFF','DRIVER')")
     public List<PackagePlan> getAllPackages() {
-        return packagePlanRepository.findAll();
+        return packagePlanService.getAll();
     }
 
     // Lấy 1 gói theo ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF','DRIVER')")
     public ResponseEntity<PackagePlan> getPackageById(@PathVariable Integer id) {
-        Optional<PackagePlan> plan = packagePlanRepository.findById(id);
+        Optional<PackagePlan> plan = packagePlanService.getById(id);
         return plan.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -38,7 +38,7 @@ public class PackagePlanController {
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PackagePlan> createPackage(@RequestBody PackagePlan plan) {
-        PackagePlan saved = packagePlanRepository.save(plan);
+        PackagePlan saved = packagePlanService.create(plan);
         return ResponseEntity.ok(saved);
     }
 
@@ -46,14 +46,8 @@ public class PackagePlanController {
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PackagePlan> updatePackage(@PathVariable Integer id, @RequestBody PackagePlan updatedPlan) {
-        return packagePlanRepository.findById(id)
-                .map(existing -> {
-                    existing.setPackageName(updatedPlan.getPackageName());
-                    existing.setDescription(updatedPlan.getDescription());
-                    existing.setPrice(updatedPlan.getPrice());
-                    existing.setDurationDays(updatedPlan.getDurationDays());
-                    return ResponseEntity.ok(packagePlanRepository.save(existing));
-                })
+        return packagePlanService.update(id, updatedPlan)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -61,8 +55,7 @@ public class PackagePlanController {
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deletePackage(@PathVariable Integer id) {
-        if (packagePlanRepository.existsById(id)) {
-            packagePlanRepository.deleteById(id);
+        if (packagePlanService.delete(id)) {
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -4,11 +4,15 @@ import com.evswap.evswapstation.dto.ReportDTO;
 import com.evswap.evswapstation.entity.Report;
 import com.evswap.evswapstation.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,11 +23,23 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
-    // API để lấy toàn bộ báo cáo với tên user
+    // API để lấy báo cáo với tên user, lọc theo status / ngày
+    // Không truyền page -> trả về List như cũ; có page -> trả về Page
     @GetMapping("/with-username")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
-    public ResponseEntity<List<ReportDTO>> getAllReportsWithUserName() {
-        List<ReportDTO> reports = reportService.getAllReportsWithUserName();
+    public ResponseEntity<?> getAllReportsWithUserName(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "reportDate") String sortBy,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+        if (page == null) {
+            List<ReportDTO> reports = reportService.getReportsWithUserName(status, from, to, sortBy, direction);
+            return new ResponseEntity<>(reports, HttpStatus.OK);
+        }
+        Page<ReportDTO> reports = reportService.getReportsWithUserName(status, from, to, page, size, sortBy, direction);
         return new ResponseEntity<>(reports, HttpStatus.OK);
     }
 
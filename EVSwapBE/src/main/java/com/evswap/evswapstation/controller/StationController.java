@@ -1,21 +1,28 @@
 package com.evswap.evswapstation.controller;
+import com.evswap.evswapstation.dto.NearbyStationDTO;
 import com.evswap.evswapstation.dto.StationInventoryPageDTO;
 import com.evswap.evswapstation.dto.StationHealthDTO;
+import com.evswap.evswapstation.dto.StationPeakHoursDTO;
+import com.evswap.evswapstation.dto.StationStatusDerivationMetricsDTO;
 import com.evswap.evswapstation.dto.StationStatusUpdateRequest;
+import com.evswap.evswapstation.dto.SwapTransaction;
 import com.evswap.evswapstation.entity.Station;
 import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.service.StationAvailabilityStream;
+import com.evswap.evswapstation.service.StationPeakHoursHistogram;
 import com.evswap.evswapstation.service.StationService;
+import com.evswap.evswapstation.service.SwapTransactionStore;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,12 +39,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/stations")
 @RequiredArgsConstructor
 public class StationController {
     private final StationService stationService;
+    private final SwapTransactionStore swapTransactionStore;
+    private final StationAvailabilityStream availabilityStream;
+    private final StationPeakHoursHistogram peakHoursHistogram;
 
     @GetMapping("/nearby")
     public ResponseEntity<?> getNearbyStations(
@@ -48,6 +59,15 @@ public class StationController {
         return ResponseEntity.ok(stationService.findNearbyStations(lat, lng, radiusKm));
     }
 
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearbyStationDTO>> getNearestStations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "5") int k
+    ) {
+        return ResponseEntity.ok(stationService.findNearestStations(lat, lng, Math.min(k, 50)));
+    }
+
     @GetMapping
     public ResponseEntity<List<Station>> getAll() {
         return ResponseEntity.ok(stationService.getAll());
@@ -63,6 +83,17 @@ public class StationController {
         return ResponseEntity.ok(stationService.getStationHealthOverview());
     }
 
+    // SSE: snapshot ngay khi kết nối, sau đó chỉ gửi khi availability của trạm thay đổi
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability() {
+        return availabilityStream.subscribeAll();
+    }
+
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStationAvailability(@PathVariable Integer id) {
+        return availabilityStream.subscribe(id);
+    }
+
     @GetMapping("/{id}/health")
     public ResponseEntity<StationHealthDTO> getStationHealth(@PathVariable Integer id) {
         return ResponseEntity.ok(stationService.getStationHealth(id));
@@ -73,6 +104,30 @@ public class StationController {
         return ResponseEntity.ok(stationService.getStatusDistribution());
     }
 
+    // Histogram giao dịch theo giờ trong tuần để xếp ca; bỏ stationId = toàn mạng, mặc định 4 tuần gần nhất
+    @GetMapping("/peak-hours")
+    @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
+    public ResponseEntity<StationPeakHoursDTO> getPeakHours(
+            @RequestParam(required = false) Integer stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate today = LocalDate.now();
+        // Chặn to về hôm nay để không quét khoảng ngày chưa tới
+        LocalDate end = to != null && to.isBefore(today) ? to : today;
+        LocalDate start = from != null ? from : end.minusWeeks(4).plusDays(1);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(peakHoursHistogram.histogram(stationId, start, end));
+    }
+
+    @GetMapping("/status/derivation/metrics")
+    @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
+    public ResponseEntity<StationStatusDerivationMetricsDTO> getStatusDerivationMetrics() {
+        return ResponseEntity.ok(stationService.getStatusDerivationMetrics());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Station> getById(@PathVariable Integer id) {
         return stationService.getById(id)
@@ -130,10 +185,6 @@ public class StationController {
 
     // ==================== TRANSACTION MANAGEMENT (In-Memory) ====================
 
-    // Lưu trữ giao dịch tạm thời trong bộ nhớ
-    private static final Map<Integer, SwapTransaction> transactionStore = new HashMap<>();
-    private static Integer transactionIdCounter = 1;
-
     /**
      * Tạo giao dịch mới tại trạm
      * POST /api/stations/{stationId}/transactions
@@ -149,21 +200,7 @@ public class StationController {
             return ResponseEntity.notFound().build();
         }
 
-        transaction.setId(transactionIdCounter++);
-        transaction.setStationId(stationId);
-        transaction.setCreatedAt(LocalDateTime.now());
-        transaction.setUpdatedAt(LocalDateTime.now());
-
-        if (transaction.getTransactionDate() == null) {
-            transaction.setTransactionDate(LocalDateTime.now());
-        }
-
-        if (transaction.getVehicleVin() != null) {
-            transaction.setVehicleVin(transaction.getVehicleVin().toUpperCase());
-        }
-
-        transactionStore.put(transaction.getId(), transaction);
-        return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
+        return ResponseEntity.status(HttpStatus.CREATED).body(swapTransactionStore.create(stationId, transaction));
     }
 
     /**
@@ -172,11 +209,7 @@ public class StationController {
      */
     @GetMapping("/{stationId}/transactions")
     public ResponseEntity<List<SwapTransaction>> getStationTransactions(@PathVariable Integer stationId) {
-        List<SwapTransaction> transactions = transactionStore.values().stream()
-                .filter(t -> t.getStationId().equals(stationId))
-                .sorted(Comparator.comparing(SwapTransaction::getTransactionDate).reversed())
-                .toList();
-        return ResponseEntity.ok(transactions);
+        return ResponseEntity.ok(swapTransactionStore.findByStation(stationId));
     }
 
     /**
@@ -189,11 +222,9 @@ public class StationController {
             @PathVariable Integer stationId,
             @PathVariable Integer transactionId) {
 
-        SwapTransaction transaction = transactionStore.get(transactionId);
-        if (transaction == null || !transaction.getStationId().equals(stationId)) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(transaction);
+        return swapTransactionStore.get(stationId, transactionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -207,19 +238,9 @@ public class StationController {
             @PathVariable Integer transactionId,
             @RequestBody SwapTransaction updatedTransaction) {
 
-        SwapTransaction transaction = transactionStore.get(transactionId);
-        if (transaction == null || !transaction.getStationId().equals(stationId)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        transaction.setTransactionDate(updatedTransaction.getTransactionDate());
-        transaction.setCustomerName(updatedTransaction.getCustomerName());
-        transaction.setCustomerEmail(updatedTransaction.getCustomerEmail());
-        transaction.setVehicleVin(updatedTransaction.getVehicleVin().toUpperCase());
-        transaction.setAmount(updatedTransaction.getAmount());
-        transaction.setUpdatedAt(LocalDateTime.now());
-
-        return ResponseEntity.ok(transaction);
+        return swapTransactionStore.update(stationId, transactionId, updatedTransaction)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -232,12 +253,9 @@ public class StationController {
             @PathVariable Integer stationId,
             @PathVariable Integer transactionId) {
 
-        SwapTransaction transaction = transactionStore.get(transactionId);
-        if (transaction == null || !transaction.getStationId().equals(stationId)) {
+        if (!swapTransactionStore.delete(stationId, transactionId)) {
             return ResponseEntity.notFound().build();
         }
-
-        transactionStore.remove(transactionId);
         return ResponseEntity.noContent().build();
     }
 
@@ -253,18 +271,7 @@ public class StationController {
             @RequestParam(required = false) String customerEmail,
             @RequestParam(required = false) String vehicleVin) {
 
-        List<SwapTransaction> transactions = transactionStore.values().stream()
-                .filter(t -> t.getStationId().equals(stationId))
-                .filter(t -> customerName == null ||
-                        t.getCustomerName().toLowerCase().contains(customerName.toLowerCase()))
-                .filter(t -> customerEmail == null ||
-                        t.getCustomerEmail().toLowerCase().contains(customerEmail.toLowerCase()))
-                .filter(t -> vehicleVin == null ||
-                        t.getVehicleVin().toLowerCase().contains(vehicleVin.toLowerCase()))
-                .sorted(Comparator.comparing(SwapTransaction::getTransactionDate).reversed())
-                .toList();
-
-        return ResponseEntity.ok(transactions);
+        return ResponseEntity.ok(swapTransactionStore.search(stationId, customerName, customerEmail, vehicleVin));
     }
 
     /**
@@ -278,19 +285,11 @@ public class StationController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
 
-        List<SwapTransaction> transactions = transactionStore.values().stream()
-                .filter(t -> t.getStationId().equals(stationId))
-                .filter(t -> startDate == null || !t.getTransactionDate().isBefore(startDate))
-                .filter(t -> endDate == null || !t.getTransactionDate().isAfter(endDate))
-                .toList();
-
-        BigDecimal totalRevenue = transactions.stream()
-                .map(SwapTransaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        SwapTransactionStore.RevenueSummary summary = swapTransactionStore.stationRevenue(stationId, startDate, endDate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("totalRevenue", totalRevenue);
-        response.put("totalTransactions", transactions.size());
+        response.put("totalRevenue", summary.revenue());
+        response.put("totalTransactions", summary.transactions());
         response.put("stationId", stationId);
         if (startDate != null) response.put("fromDate", startDate);
         if (endDate != null) response.put("toDate", endDate);
@@ -305,30 +304,12 @@ public class StationController {
     @GetMapping("/revenue/total")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
     public ResponseEntity<Map<String, Object>> getTotalRevenue() {
-        BigDecimal totalRevenue = transactionStore.values().stream()
-                .map(SwapTransaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        SwapTransactionStore.RevenueSummary summary = swapTransactionStore.totalRevenue();
 
         Map<String, Object> response = new HashMap<>();
-        response.put("totalRevenue", totalRevenue);
-        response.put("totalTransactions", transactionStore.size());
+        response.put("totalRevenue", summary.revenue());
+        response.put("totalTransactions", summary.transactions());
 
         return ResponseEntity.ok(response);
     }
-
-    // Inner class cho giao dịch
-    @lombok.Data
-    @lombok.NoArgsConstructor
-    @lombok.AllArgsConstructor
-    public static class SwapTransaction {
-        private Integer id;
-        private LocalDateTime transactionDate;
-        private String customerName;
-        private String customerEmail;
-        private String vehicleVin;
-        private BigDecimal amount;
-        private Integer stationId;
-        private LocalDateTime createdAt;
-        private LocalDateTime updatedAt;
-    }
-}
\ No newline at end of file
+}
@@ -1,13 +1,24 @@
 package com.evswap.evswapstation.controller;
 
 import com.evswap.evswapstation.dto.*;
+import com.evswap.evswapstation.service.StationLeaderboard;
+import com.evswap.evswapstation.service.TransactionBulkService;
+import com.evswap.evswapstation.service.TransactionExportService;
 import com.evswap.evswapstation.service.TransactionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -16,16 +27,62 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final TransactionBulkService transactionBulkService;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
 
     /**
-     * GET /api/transactions
-     * Lấy tất cả giao dịch với thông tin: Transaction ID, Date & Time, Customer, VIN, Amount, Payment
+     * GET /api/transactions?status=&stationId=&from=&to=&cursor=&size=
+     * Danh sách giao dịch (Transaction ID, Date & Time, Customer, VIN, Amount, Payment).
+     * Luôn trả về một trang keyset (mặc định 50, tối đa 500 dòng); các trang sau truyền nextCursor của trang trước.
+     * Cần toàn bộ giao dịch thì dùng /api/transactions/export (stream, không giữ kết quả trong bộ nhớ).
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
-    public ResponseEntity<List<TransactionDTO>> getAllTransactions() {
-        List<TransactionDTO> transactions = transactionService.getAllTransactions();
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getAllTransactions(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(transactionService.getTransactionsPage(status, stationId, from, to, cursor,
+                    size != null ? size : DEFAULT_PAGE_SIZE));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * GET /api/transactions/export?format=csv|ndjson&status=&stationId=&from=&to=
+     * Xuất toàn bộ giao dịch khớp bộ lọc dạng stream, không giữ kết quả trong bộ nhớ.
+     * Timeout dài chỉ áp dụng cho response này (transaction.export.timeout-ms)
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
+    public ResponseEntity<ResponseBodyEmitter> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean csv = exportFormat == TransactionExportService.Format.CSV;
+        ResponseBodyEmitter body = transactionExportService.exportAsync(exportFormat, status, stationId, from, to);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + (csv ? "csv" : "ndjson") + "\"")
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     /**
@@ -95,6 +152,22 @@ public class TransactionController {
         }
     }
 
+    /**
+     * POST /api/transactions/bulk
+     * Nhập nhiều giao dịch một lần (log swap trạm gửi lên sau khi mất kết nối).
+     * Body: mảng TransactionDTO giống POST /api/transactions; kết quả trả về theo từng dòng (index trong mảng).
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
+    public ResponseEntity<?> createTransactionsBulk(@RequestBody List<TransactionDTO> transactions) {
+        try {
+            return ResponseEntity.ok(transactionBulkService.ingest(transactions));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
     /**
      * PUT /api/transactions/{id}
      * Cập nhật giao dịch theo ID
@@ -117,6 +190,9 @@ public class TransactionController {
             }
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Transaction not found with ID: " + id);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error: " + e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Error: " + e.getMessage());
@@ -345,15 +421,27 @@ public class TransactionController {
     }
 
     /**
-     * GET /api/transactions/dashboard/top-stations
-     * Lấy top 5 performing stations
+     * GET /api/transactions/dashboard/top-stations?period=day|week|month&k=5&date=2025-01-15
+     * Lấy top k performing stations trong kỳ chứa date (mặc định top 5 của tháng hiện tại).
+     * Chỉ trả lời được các kỳ từ đầu tháng trước, kỳ cũ hơn trả 400.
      */
     @GetMapping("/dashboard/top-stations")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
-    public ResponseEntity<List<StationPerformanceDTO>> getTopStations() {
+    public ResponseEntity<List<StationPerformanceDTO>> getTopStations(
+            @RequestParam(defaultValue = "month") String period,
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        StationLeaderboard.Period leaderboardPeriod;
         try {
-            List<StationPerformanceDTO> data = transactionService.getTopPerformingStations();
+            leaderboardPeriod = StationLeaderboard.Period.valueOf(period.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            List<StationPerformanceDTO> data = transactionService.getTopPerformingStations(leaderboardPeriod, date, k);
             return ResponseEntity.ok(data);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -375,17 +463,43 @@ public class TransactionController {
     }
 
     /**
-     * GET /api/transactions/dashboard/subscription-distribution
-     * Lấy phân phối package plans
+     * GET /api/transactions/dashboard/subscription-distribution?from=&to=
+     * Lấy phân phối package plans (không truyền from / to = toàn bộ thời gian)
      */
     @GetMapping("/dashboard/subscription-distribution")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
-    public ResponseEntity<SubscriptionDistributionDTO> getSubscriptionDistribution() {
+    public ResponseEntity<SubscriptionDistributionDTO> getSubscriptionDistribution(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            SubscriptionDistributionDTO data = transactionService.getSubscriptionDistribution();
+            SubscriptionDistributionDTO data = transactionService.getSubscriptionDistribution(from, to);
             return ResponseEntity.ok(data);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * GET /api/transactions/dashboard/revenue-by-package?from=&to=
+     * Doanh thu theo từng package plan
+     */
+    @GetMapping("/dashboard/revenue-by-package")
+    @PreAuthorize("hasAnyRole('ADMIN','STAFF')")
+    public ResponseEntity<List<PackageRevenueDTO>> getRevenueByPackage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(transactionService.getRevenueByPackage(from, to));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
 }
@@ -1,10 +1,11 @@
 package com.evswap.evswapstation.controller;
 
+import com.evswap.evswapstation.dto.UserPackageDTO;
 import com.evswap.evswapstation.dto.UserPackageRequest;
 import com.evswap.evswapstation.entity.PackagePlan;
 import com.evswap.evswapstation.entity.UserPackagePlans;
-import com.evswap.evswapstation.repository.PackagePlanRepository;
 import com.evswap.evswapstation.repository.UserPackagePlansRepository;
+import com.evswap.evswapstation.service.PackagePlanService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -15,7 +16,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/user-packages")
@@ -25,7 +26,7 @@ import java.util.stream.Collectors;
 public class UserPackageController {
 
     private final UserPackagePlansRepository userPackageRepository;
-    private final PackagePlanRepository packageRepository;
+    private final PackagePlanService packagePlanService;
 
     @PostMapping("/create")
     @PreAuthorize("hasAnyRole('ADMIN','STAFF','DRIVER')")
@@ -35,7 +36,7 @@ public class UserPackageController {
                     request.getUserId(), request.getPackageId());
 
             // Get package info
-            PackagePlan packageEntity = packageRepository.findById(request.getPackageId())
+            PackagePlan packageEntity = packagePlanService.getById(request.getPackageId())
                     .orElseThrow(() -> new RuntimeException("Package not found"));
 
             // Create UserPackagePlans
@@ -77,41 +78,13 @@ public class UserPackageController {
 
             List<UserPackagePlans> userPackages = userPackageRepository.findByUserId(userId);
 
-            // Map to response DTO with package details
-            List<Map<String, Object>> response = userPackages.stream().map(up -> {
-                Map<String, Object> packageData = new HashMap<>();
-
-                // Get package details
-                PackagePlan packageEntity = packageRepository.findById(up.getPackageId())
-                        .orElse(null);
-
-                if (packageEntity != null) {
-                    packageData.put("id", up.getUserPackagePlanId());
-                    packageData.put("packageId", up.getPackageId());
-                    packageData.put("packageName", packageEntity.getPackageName());
-                    packageData.put("description", packageEntity.getDescription());
-                    packageData.put("price", packageEntity.getPrice());
-                    packageData.put("durationDays", packageEntity.getDurationDays());
-                    packageData.put("purchaseDate", up.getTransactionDate());
-                    packageData.put("status", up.getStatus());
-                    packageData.put("remainingDays", up.getRemainingDays());
-
-                    // Calculate expiry date if has duration
-                    if (packageEntity.getDurationDays() != null && up.getTransactionDate() != null) {
-                        LocalDateTime expiryDate = up.getTransactionDate()
-                                .plusDays(packageEntity.getDurationDays());
-                        packageData.put("expiryDate", expiryDate);
-                    } else {
-                        packageData.put("expiryDate", null);
-                    }
-
-                    // For pay-per-use packages, track usage count
-                    packageData.put("usageCount", 0); // TODO: implement usage tracking
-                    packageData.put("maxUsage", packageEntity.getDurationDays() == null ? 1 : null);
-                }
-
-                return packageData;
-            }).collect(Collectors.toList());
+            // Package details từ catalogue cache, không query thêm cho từng dòng
+            List<UserPackageDTO> response = userPackages.stream()
+                    .map(up -> packagePlanService.getById(up.getPackageId())
+                            .map(plan -> UserPackageDTO.of(up, plan))
+                            .orElse(null))
+                    .filter(Objects::nonNull)
+                    .toList();
 
             log.info("Found {} packages for user {}", response.size(), userId);
             return ResponseEntity.ok(response);
@@ -0,0 +1,30 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransactionResultDTO {
+    private int total;
+    private int created;
+    private int rejected;
+    private int failed;
+    private long elapsedMs;
+    private List<RowResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private int index;
+        private String status; // CREATED, REJECTED (dữ liệu không hợp lệ), FAILED (lỗi khi insert)
+        private String message;
+    }
+}
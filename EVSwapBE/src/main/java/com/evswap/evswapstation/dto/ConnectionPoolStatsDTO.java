@@ -0,0 +1,29 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPoolStatsDTO {
+    private String poolName;
+    private int active;
+    private int idle;
+    private int pending;            // Số thread đang chờ connection
+    private int total;
+    private int max;
+    private long acquiredCount;
+    private double avgWaitMs;       // Thời gian chờ lấy connection
+    private double maxWaitMs;
+    private Map<String, Long> waitHistogram;
+    private double avgUsageMs;      // Thời gian giữ connection
+    private long maxUsageMs;
+    private long timeouts;
+    private long connectionsCreated;
+}
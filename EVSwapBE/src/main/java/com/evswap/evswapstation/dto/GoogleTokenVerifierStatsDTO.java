@@ -0,0 +1,25 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoogleTokenVerifierStatsDTO {
+    private long verifications;     // Số lần xác thực thật (không tính cache hit)
+    private long cacheHits;         // Token đã xác thực gần đây, trả lại từ cache
+    private long failures;
+    private double avgVerifyMs;
+    private double maxVerifyMs;
+    private int cachedTokens;
+    private LocalDateTime keysExpireAt; // Hạn của bộ public key đang giữ (theo Cache-Control của Google)
+    private long keyRefreshes;
+    private long keyRefreshFailures;
+    private long lastKeyRefreshMs;
+}
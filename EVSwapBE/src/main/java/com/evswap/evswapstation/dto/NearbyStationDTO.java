@@ -0,0 +1,21 @@
+package com.evswap.evswapstation.dto;
+
+import com.evswap.evswapstation.enums.StationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyStationDTO {
+    private Integer stationID;
+    private String stationName;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private double distanceKm;
+    private StationStatus status;
+}
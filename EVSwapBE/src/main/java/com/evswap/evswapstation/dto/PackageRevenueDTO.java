@@ -0,0 +1,20 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PackageRevenueDTO {
+    private Long packageId;
+    private String packageName;
+    private long completedTransactions;
+    private BigDecimal revenue;
+    private Double percentage; // Phần trăm doanh thu trong khoảng
+}
@@ -0,0 +1,52 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryStatsDTO {
+    private long thresholdMs;
+    private double sampleRate;
+    private long statements;        // Tổng số câu lệnh JDBC đã chạy
+    private long slowStatements;    // Số câu lệnh vượt ngưỡng
+    private long sampledOut;        // Vượt ngưỡng nhưng bị bỏ qua do lấy mẫu
+    private long dropped;           // Bị bỏ do hàng đợi log đầy
+    private List<RepositoryMethodStats> repositoryMethods;
+    private List<SlowQuery> recentSlowQueries;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RepositoryMethodStats {
+        private String method;      // VD: TransactionRepository.findPageWithDetails
+        private long calls;
+        private double totalMs;
+        private double avgMs;
+        private double maxMs;
+        private Map<String, Long> histogram;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SlowQuery {
+        private LocalDateTime at;
+        private long durationMs;
+        private String repositoryMethod; // null nếu câu lệnh không xuất phát từ repository (flush, JdbcTemplate...)
+        private int bindCount;
+        private int batchSize;
+        private boolean failed;
+        private String sql;
+    }
+}
@@ -0,0 +1,22 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationPeakHoursDTO {
+    private Integer stationId;      // null = toàn bộ trạm
+    private LocalDate from;
+    private LocalDate to;
+    private long total;
+    private long[] byHourOfWeek;    // 168 ô: index = thứ (Thứ 2 = 0) * 24 + giờ
+    private long[] byHourOfDay;     // 24 ô: cộng dồn mọi ngày trong khoảng
+    private int peakHourOfWeek;     // -1 nếu không có giao dịch
+}
@@ -9,8 +9,10 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 @NoArgsConstructor
 public class StationPerformanceDTO {
+    private Long stationId;
     private String stationName;
     private Long totalSwaps;
     private BigDecimal revenue;
     private Integer utilization;  // Phần trăm sử dụng
-}
\ No newline at end of file
+    private Long capacity;        // Số swap tối đa trong kỳ (slots × swap/slot/ngày × số ngày)
+}
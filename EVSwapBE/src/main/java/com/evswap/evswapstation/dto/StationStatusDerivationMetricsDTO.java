@@ -0,0 +1,23 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationStatusDerivationMetricsDTO {
+    private LocalDateTime lastRunAt;
+    private long lastRunDurationMs;
+    private int lastStationsScanned;
+    private int lastChangedCount;
+    private long totalRuns;
+    private long totalChanged;
+    private long failedRuns;
+    private String lastError;
+}
@@ -0,0 +1,24 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Giao dịch đổi pin tại trạm (lưu in-memory trong SwapTransactionStore)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SwapTransaction {
+    private Integer id;
+    private LocalDateTime transactionDate;
+    private String customerName;
+    private String customerEmail;
+    private String vehicleVin;
+    private BigDecimal amount;
+    private Integer stationId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.evswap.evswapstation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một trang giao dịch theo keyset: gửi lại nextCursor để lấy trang kế tiếp
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionPageDTO {
+    private List<TransactionDTO> items;
+    private int size;
+    private boolean hasMore;
+    private String nextCursor;
+}
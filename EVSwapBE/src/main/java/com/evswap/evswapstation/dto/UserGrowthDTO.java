@@ -18,5 +18,7 @@ public class UserGrowthDTO {
         private String month;    // "Jan", "Feb", etc.
         private Long totalUsers;
         private Long activeUsers;
+        private Integer year;
+        private Long newUsers;
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.evswap.evswapstation.dto;
+
+import com.evswap.evswapstation.entity.PackagePlan;
+import com.evswap.evswapstation.entity.UserPackagePlans;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPackageDTO {
+    private Long id;
+    private Integer packageId;
+    private String packageName;
+    private String description;
+    private Double price;
+    private Integer durationDays;
+    private LocalDateTime purchaseDate;
+    private String status;
+    private Integer remainingDays;
+    private LocalDateTime expiryDate;
+    // Chỉ có với gói pay-per-use: booking đánh dấu gói là "Used" khi dùng lượt duy nhất
+    private Integer usageCount;
+    private Integer maxUsage;   // Gói pay-per-use (không có durationDays) chỉ dùng 1 lần
+
+    public static UserPackageDTO of(UserPackagePlans up, PackagePlan plan) {
+        boolean payPerUse = plan.getDurationDays() == null;
+        // Tính ngày hết hạn nếu gói có thời hạn
+        LocalDateTime expiryDate = !payPerUse && up.getTransactionDate() != null
+                ? up.getTransactionDate().plusDays(plan.getDurationDays())
+                : null;
+
+        return UserPackageDTO.builder()
+                .id(up.getUserPackagePlanId())
+                .packageId(up.getPackageId())
+                .packageName(plan.getPackageName())
+                .description(plan.getDescription())
+                .price(plan.getPrice())
+                .durationDays(plan.getDurationDays())
+                .purchaseDate(up.getTransactionDate())
+                .status(up.getStatus())
+                .remainingDays(up.getRemainingDays())
+                .expiryDate(expiryDate)
+                .usageCount(payPerUse ? ("Used".equals(up.getStatus()) ? 1 : 0) : null)
+                .maxUsage(payPerUse ? 1 : null)
+                .build();
+    }
+}
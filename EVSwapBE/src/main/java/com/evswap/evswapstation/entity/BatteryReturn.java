@@ -1,6 +1,8 @@
 package com.evswap.evswapstation.entity;
 import jakarta.persistence.*;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
+
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
@@ -9,10 +11,8 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder
 @IdClass(BatteryReturn.BatteryReturnId.class)
-public class BatteryReturn {
+public class BatteryReturn implements Persistable<BatteryReturn.BatteryReturnId> {
 
     @Id
     @Column(name = "BatteryID")
@@ -38,6 +38,42 @@ public class BatteryReturn {
     @JoinColumn(name = "BatteryID", insertable = false, updatable = false)
     private Battery battery;
 
+    // Khóa do client gán nên save() mặc định gọi merge (SELECT trước rồi mới INSERT);
+    // bản ghi mới tạo được persist thẳng, sau khi load / persist thì coi là đã tồn tại
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
+    // Viết tay thay cho @AllArgsConstructor để builder không nhận cờ newEntity
+    @Builder
+    public BatteryReturn(Integer batteryID, Integer transactionID, LocalDateTime returnDateTime,
+                         String customer, String phone, String status, Battery battery) {
+        this.batteryID = batteryID;
+        this.transactionID = transactionID;
+        this.returnDateTime = returnDateTime;
+        this.customer = customer;
+        this.phone = phone;
+        this.status = status;
+        this.battery = battery;
+    }
+
+    @Override
+    public BatteryReturnId getId() {
+        return new BatteryReturnId(batteryID, transactionID);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newEntity = false;
+    }
+
     // Composite Key Class
     @Data
     @NoArgsConstructor
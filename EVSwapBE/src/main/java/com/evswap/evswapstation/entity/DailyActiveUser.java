@@ -0,0 +1,45 @@
+package com.evswap.evswapstation.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Đánh dấu (ngày, user) đã có giao dịch (xem db/daily-stats-rollup.sql).
+ * Khóa chính là (ngày, user) nên insert-if-absent cho biết chính xác khi nào ActiveUsers tăng / giảm.
+ */
+@Entity
+@Table(name = "DailyActiveUser")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DailyActiveUser.DailyActiveUserId.class)
+public class DailyActiveUser {
+
+    @Id
+    @Column(name = "StatDate")
+    private LocalDate statDate;
+
+    @Id
+    @Column(name = "UserID")
+    private Integer userId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyActiveUserId implements Serializable {
+        private LocalDate statDate;
+        private Integer userId;
+    }
+}
@@ -0,0 +1,41 @@
+package com.evswap.evswapstation.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Bảng tổng hợp theo ngày cho admin dashboard (xem db/daily-stats-rollup.sql).
+ * Được cập nhật tăng dần khi có giao dịch / user mới, dashboard chỉ đọc vài dòng.
+ */
+@Entity
+@Table(name = "DailyStatsRollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyStatsRollup {
+
+    @Id
+    @Column(name = "StatDate")
+    private LocalDate statDate;
+
+    @Column(name = "SwapCount", nullable = false)
+    private long swapCount;
+
+    @Column(name = "NewUsers", nullable = false)
+    private long newUsers;
+
+    // Số user khác nhau có giao dịch trong ngày
+    @Column(name = "ActiveUsers", nullable = false)
+    private long activeUsers;
+}
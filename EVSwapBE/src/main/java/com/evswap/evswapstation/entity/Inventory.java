@@ -1,5 +1,6 @@
 package com.evswap.evswapstation.entity;
 
+import com.evswap.evswapstation.event.InventoryEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -10,6 +11,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(InventoryEntityListener.class)
 public class Inventory {
 
     @Id
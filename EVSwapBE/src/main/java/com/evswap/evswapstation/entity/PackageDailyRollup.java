@@ -0,0 +1,54 @@
+package com.evswap.evswapstation.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số giao dịch COMPLETED và doanh thu theo (ngày, gói) (xem db/package-daily-rollup.sql).
+ * Biểu đồ phân phối gói / doanh thu theo gói chỉ đọc bảng này, không quét Transactions.
+ */
+@Entity
+@Table(name = "PackageDailyRollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@IdClass(PackageDailyRollup.PackageDailyRollupId.class)
+public class PackageDailyRollup {
+
+    @Id
+    @Column(name = "StatDate")
+    private LocalDate statDate;
+
+    @Id
+    @Column(name = "PackageID")
+    private Long packageId;
+
+    @Column(name = "CompletedCount", nullable = false)
+    private long completedCount;
+
+    @Column(name = "Revenue", nullable = false, precision = 18, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PackageDailyRollupId implements Serializable {
+        private LocalDate statDate;
+        private Long packageId;
+    }
+}
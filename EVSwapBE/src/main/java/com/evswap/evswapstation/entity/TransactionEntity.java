@@ -1,10 +1,15 @@
 package com.evswap.evswapstation.entity;
 
+import com.evswap.evswapstation.event.TransactionEntityListener;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -14,6 +19,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(TransactionEntityListener.class)
 public class TransactionEntity {
 
     @Id
@@ -51,6 +57,10 @@ public class TransactionEntity {
     @Column(name = "PaymentID")
     private Long paymentId;
 
+    // VIN của xe dùng trong giao dịch, ghi lúc tạo để danh sách không phải JOIN Vehicle
+    @Column(name = "VIN")
+    private String vin;
+
 
     @Column(name = "PayPalTransactionID")
     private String payPalTransactionId;
@@ -70,4 +80,11 @@ public class TransactionEntity {
 
     @Column(name = "Return Date")
     private LocalDateTime returnDate;
+
+    // Trạng thái lúc load từ DB, dùng để tính delta cho các bộ đếm dashboard
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private TransactionSnapshot loadedState;
 }
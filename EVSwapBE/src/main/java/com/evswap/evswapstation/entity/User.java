@@ -1,6 +1,7 @@
 package com.evswap.evswapstation.entity;
 
 import com.evswap.evswapstation.enums.Role;
+import com.evswap.evswapstation.event.UserEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -14,6 +15,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(UserEntityListener.class)
 public class User {
 
     @Id
@@ -0,0 +1,45 @@
+package com.evswap.evswapstation.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Đánh dấu (tháng, user) đã có giao dịch (xem db/user-monthly-cohort.sql).
+ * Khóa chính là (tháng, user) nên insert-if-absent cho biết chính xác khi nào ActiveUsers của tháng tăng / giảm.
+ */
+@Entity
+@Table(name = "UserMonthlyActiveUser")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(UserMonthlyActiveUser.UserMonthlyActiveUserId.class)
+public class UserMonthlyActiveUser {
+
+    @Id
+    @Column(name = "MonthStart")
+    private LocalDate monthStart;
+
+    @Id
+    @Column(name = "UserID")
+    private Integer userId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserMonthlyActiveUserId implements Serializable {
+        private LocalDate monthStart;
+        private Integer userId;
+    }
+}
@@ -0,0 +1,38 @@
+package com.evswap.evswapstation.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Số user mới / user active theo tháng (xem db/user-monthly-cohort.sql).
+ * Khóa là ngày đầu tháng nên (năm, tháng) không bao giờ trùng giữa các năm.
+ */
+@Entity
+@Table(name = "UserMonthlyCohort")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserMonthlyCohort {
+
+    @Id
+    @Column(name = "MonthStart")
+    private LocalDate monthStart;
+
+    @Column(name = "NewUsers", nullable = false)
+    private long newUsers;
+
+    // Số user khác nhau có giao dịch trong tháng
+    @Column(name = "ActiveUsers", nullable = false)
+    private long activeUsers;
+}
@@ -0,0 +1,7 @@
+package com.evswap.evswapstation.event;
+
+/**
+ * Phát ra sau khi một dòng Inventory được thêm / sửa / xóa.
+ */
+public record InventoryChangedEvent(Integer inventoryId, Integer stationId) {
+}
@@ -0,0 +1,27 @@
+package com.evswap.evswapstation.event;
+
+import com.evswap.evswapstation.entity.Inventory;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener cho Inventory: phát InventoryChangedEvent sau mỗi insert / update / delete.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Inventory inventory) {
+        Integer stationId = inventory.getStation() != null ? inventory.getStation().getStationID() : null;
+        eventPublisher.publishEvent(new InventoryChangedEvent(inventory.getInventoryID(), stationId));
+    }
+}
@@ -0,0 +1,8 @@
+package com.evswap.evswapstation.event;
+
+/**
+ * Phát ra khi số pin sẵn sàng / trạng thái của một trạm có thể đã đổi
+ * (booking giữ pin, trả pin, đổi trạng thái trạm).
+ */
+public record StationAvailabilityChangedEvent(Integer stationId) {
+}
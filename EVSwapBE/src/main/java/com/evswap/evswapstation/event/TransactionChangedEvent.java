@@ -0,0 +1,20 @@
+package com.evswap.evswapstation.event;
+
+/**
+ * Phát ra mỗi khi một giao dịch được tạo, cập nhật hoặc xóa.
+ * before == null: giao dịch mới; after == null: giao dịch đã bị xóa.
+ */
+public record TransactionChangedEvent(
+        Long transactionId,
+        TransactionSnapshot before,
+        TransactionSnapshot after
+) {
+
+    public boolean isCreated() {
+        return before == null && after != null;
+    }
+
+    public boolean isDeleted() {
+        return before != null && after == null;
+    }
+}
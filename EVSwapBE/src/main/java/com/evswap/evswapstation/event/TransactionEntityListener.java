@@ -0,0 +1,51 @@
+package com.evswap.evswapstation.event;
+
+import com.evswap.evswapstation.entity.TransactionEntity;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener cho TransactionEntity: ghi nhớ trạng thái lúc load
+ * và phát TransactionChangedEvent khi giao dịch được insert / update / delete.
+ * Mọi nơi lưu giao dịch (TransactionService, PayPalService, BatteryReturnService...)
+ * đều đi qua đây nên các bộ đếm dashboard không bị sót.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void onLoad(TransactionEntity transaction) {
+        transaction.setLoadedState(TransactionSnapshot.of(transaction));
+    }
+
+    @PostPersist
+    public void onPersist(TransactionEntity transaction) {
+        TransactionSnapshot after = TransactionSnapshot.of(transaction);
+        eventPublisher.publishEvent(new TransactionChangedEvent(transaction.getTransactionId(), null, after));
+        transaction.setLoadedState(after);
+    }
+
+    @PostUpdate
+    public void onUpdate(TransactionEntity transaction) {
+        TransactionSnapshot after = TransactionSnapshot.of(transaction);
+        eventPublisher.publishEvent(new TransactionChangedEvent(
+                transaction.getTransactionId(), transaction.getLoadedState(), after));
+        transaction.setLoadedState(after);
+    }
+
+    @PostRemove
+    public void onRemove(TransactionEntity transaction) {
+        TransactionSnapshot before = transaction.getLoadedState() != null
+                ? transaction.getLoadedState()
+                : TransactionSnapshot.of(transaction);
+        eventPublisher.publishEvent(new TransactionChangedEvent(transaction.getTransactionId(), before, null));
+    }
+}
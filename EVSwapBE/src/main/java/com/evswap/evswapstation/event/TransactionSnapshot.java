@@ -0,0 +1,40 @@
+package com.evswap.evswapstation.event;
+
+import com.evswap.evswapstation.entity.TransactionEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ảnh chụp các field của TransactionEntity mà các bộ đếm dashboard cần.
+ * Dùng để so sánh trạng thái trước / sau khi một giao dịch thay đổi.
+ * transactionDate là lúc giao dịch được ghi nhận (cột TransactionDate, mốc của các rollup doanh thu);
+ * timeDate là thời điểm swap thực tế (cột TimeDate), có thể sớm hơn khi nhập bù qua bulk upload.
+ */
+public record TransactionSnapshot(
+        Integer userId,
+        Long stationId,
+        Long packageId,
+        BigDecimal amount,
+        String status,
+        LocalDateTime transactionDate,
+        LocalDateTime timeDate
+) {
+
+    public static TransactionSnapshot of(TransactionEntity transaction) {
+        Integer userId = transaction.getUser() != null ? transaction.getUser().getUserID() : null;
+        return new TransactionSnapshot(
+                userId,
+                transaction.getStationId(),
+                transaction.getPackageId(),
+                transaction.getAmount(),
+                transaction.getStatus(),
+                transaction.getTransactionDate(),
+                transaction.getTimeDate()
+        );
+    }
+
+    public boolean isCompleted() {
+        return "COMPLETED".equalsIgnoreCase(status);
+    }
+}
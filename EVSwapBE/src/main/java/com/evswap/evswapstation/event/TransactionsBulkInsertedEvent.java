@@ -0,0 +1,10 @@
+package com.evswap.evswapstation.event;
+
+import java.util.List;
+
+/**
+ * Phát ra sau mỗi lô giao dịch được insert bằng JDBC batch (không đi qua TransactionEntityListener).
+ * Listener xử lý cả lô một lần thay vì từng TransactionChangedEvent.
+ */
+public record TransactionsBulkInsertedEvent(List<TransactionSnapshot> created) {
+}
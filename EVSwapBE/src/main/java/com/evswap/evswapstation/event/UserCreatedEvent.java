@@ -0,0 +1,9 @@
+package com.evswap.evswapstation.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra sau khi một user mới được lưu vào database.
+ */
+public record UserCreatedEvent(Integer userId, LocalDateTime createdAt) {
+}
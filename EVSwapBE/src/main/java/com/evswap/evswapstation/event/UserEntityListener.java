@@ -0,0 +1,22 @@
+package com.evswap.evswapstation.event;
+
+import com.evswap.evswapstation.entity.User;
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener cho User: phát UserCreatedEvent sau khi insert.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(User user) {
+        eventPublisher.publishEvent(new UserCreatedEvent(user.getUserID(), user.getCreatedAt()));
+    }
+}
@@ -2,11 +2,13 @@ package com.evswap.evswapstation.repository;
 
 import com.evswap.evswapstation.entity.Battery;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface BatteryRepository extends JpaRepository<Battery, Integer> {
     List<Battery> findByBatteryNameContaining(String keyword);
@@ -38,4 +40,14 @@ public interface BatteryRepository extends JpaRepository<Battery, Integer> {
     @Query("SELECT b.status, COUNT(b) FROM Battery b GROUP BY b.status")
     List<Object[]> countByStatusGrouped();
 
+    /**
+     * Đổi trạng thái pin chỉ khi trạng thái hiện tại đúng như mong đợi (compare-and-set ở DB).
+     * Trả về 1 nếu thành công, 0 nếu pin đã bị request khác lấy.
+     */
+    @Modifying
+    @Query("UPDATE Battery b SET b.status = :newStatus " +
+            "WHERE b.batteryID = :batteryId AND b.status = :expectedStatus")
+    int compareAndSetStatus(@Param("batteryId") UUID batteryId,
+                            @Param("expectedStatus") String expectedStatus,
+                            @Param("newStatus") String newStatus);
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.evswap.evswapstation.repository;
+
+import com.evswap.evswapstation.entity.DailyActiveUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Repository
+public interface DailyActiveUserRepository
+        extends JpaRepository<DailyActiveUser, DailyActiveUser.DailyActiveUserId> {
+
+    /**
+     * Đánh dấu user active trong ngày nếu chưa có; trả về 1 khi dòng mới được tạo
+     */
+    @Modifying
+    @Query(value = "INSERT INTO DailyActiveUser (StatDate, UserID) SELECT :day, :userId " +
+            "WHERE NOT EXISTS (SELECT 1 FROM DailyActiveUser WITH (UPDLOCK, HOLDLOCK) " +
+            "  WHERE StatDate = :day AND UserID = :userId)",
+            nativeQuery = true)
+    int markActive(@Param("day") LocalDate day, @Param("userId") Integer userId);
+
+    /**
+     * Bỏ đánh dấu khi user không còn giao dịch nào trong ngày; trả về 1 khi dòng bị xóa.
+     * Điều kiện NOT EXISTS nằm trong cùng câu lệnh nên giao dịch commit song song không bị bỏ sót.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM DailyActiveUser WHERE StatDate = :day AND UserID = :userId " +
+            "AND NOT EXISTS (SELECT 1 FROM Transactions t WHERE t.UserID = :userId " +
+            "  AND t.TransactionDate >= :startDate AND t.TransactionDate < :endDate)",
+            nativeQuery = true)
+    int unmarkIfIdle(@Param("day") LocalDate day,
+                     @Param("userId") Integer userId,
+                     @Param("startDate") LocalDateTime startDate,
+                     @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Backfill từ Transactions khi bảng còn trống
+     */
+    @Modifying
+    @Query(value = "INSERT INTO DailyActiveUser (StatDate, UserID) " +
+            "SELECT DISTINCT CAST(t.TransactionDate AS DATE), t.UserID FROM Transactions t " +
+            "WHERE t.TransactionDate IS NOT NULL AND t.UserID IS NOT NULL",
+            nativeQuery = true)
+    int backfillFromTransactions();
+}
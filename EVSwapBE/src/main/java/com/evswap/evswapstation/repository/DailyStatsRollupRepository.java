@@ -0,0 +1,44 @@
+package com.evswap.evswapstation.repository;
+
+import com.evswap.evswapstation.entity.DailyStatsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyStatsRollupRepository extends JpaRepository<DailyStatsRollup, LocalDate> {
+
+    List<DailyStatsRollup> findByStatDateBetweenOrderByStatDateAsc(LocalDate from, LocalDate to);
+
+    /**
+     * Cộng dồn bộ đếm của một ngày, tự tạo dòng nếu chưa có (upsert 1 round-trip)
+     */
+    @Modifying
+    @Query(value = "MERGE DailyStatsRollup WITH (HOLDLOCK) AS target " +
+            "USING (SELECT :day AS StatDate) AS src ON target.StatDate = src.StatDate " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "  SwapCount = target.SwapCount + :swaps, " +
+            "  NewUsers = target.NewUsers + :newUsers, " +
+            "  ActiveUsers = target.ActiveUsers + :activeUsers " +
+            "WHEN NOT MATCHED THEN INSERT (StatDate, SwapCount, NewUsers, ActiveUsers) " +
+            "  VALUES (:day, :swaps, :newUsers, :activeUsers);",
+            nativeQuery = true)
+    int increment(@Param("day") LocalDate day,
+                  @Param("swaps") long swaps,
+                  @Param("newUsers") long newUsers,
+                  @Param("activeUsers") long activeUsers);
+
+    /**
+     * Tính lại ActiveUsers của mọi ngày theo bảng DailyActiveUser (sau khi backfill bảng đó)
+     */
+    @Modifying
+    @Query(value = "UPDATE DailyStatsRollup SET ActiveUsers = " +
+            "(SELECT COUNT(*) FROM DailyActiveUser p WHERE p.StatDate = DailyStatsRollup.StatDate)",
+            nativeQuery = true)
+    int recomputeActiveUsers();
+}
@@ -36,6 +36,14 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
             "ORDER BY COUNT(i) DESC")
     List<InventoryStatusCountDTO> countByStatusAndStationId(@Param("stationId") Integer stationId);
 
+    /**
+     * (stationID, status, count) cho toàn bộ trạm trong 1 query (health overview)
+     */
+    @Query("SELECT i.station.stationID, i.status, COUNT(i) " +
+            "FROM Inventory i " +
+            "GROUP BY i.station.stationID, i.status")
+    List<Object[]> countByStationAndStatus();
+
     @EntityGraph(attributePaths = {"battery"})
     Page<Inventory> findByStationStationID(Integer stationId, Pageable pageable);
 
@@ -43,4 +51,21 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
     Page<Inventory> findByStationStationIDAndStatusIn(Integer stationId, List<String> statuses, Pageable pageable);
 
     long countByStationStationID(Integer stationId);
+
+    @EntityGraph(attributePaths = {"battery"})
+    List<Inventory> findByStationStationIDAndSlotNumberIn(Integer stationId, List<Integer> slotNumbers);
+
+    /**
+     * (stationID, batteryID, SerialNumber, BatteryType) của các pin đang nằm trong slot với trạng thái cho trước
+     */
+    @Query("SELECT i.station.stationID, b.batteryID, b.batteryName, b.batteryType " +
+            "FROM Inventory i JOIN i.battery b " +
+            "WHERE b.status = :batteryStatus")
+    List<Object[]> findSlottedBatteriesByStatus(@Param("batteryStatus") String batteryStatus);
+
+    @Query("SELECT i.station.stationID, b.batteryID, b.batteryName, b.batteryType " +
+            "FROM Inventory i JOIN i.battery b " +
+            "WHERE i.station.stationID = :stationId AND b.status = :batteryStatus")
+    List<Object[]> findSlottedBatteriesByStationAndStatus(@Param("stationId") Integer stationId,
+                                                          @Param("batteryStatus") String batteryStatus);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.evswap.evswapstation.repository;
+
+import com.evswap.evswapstation.entity.PackageDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PackageDailyRollupRepository
+        extends JpaRepository<PackageDailyRollup, PackageDailyRollup.PackageDailyRollupId> {
+
+    /**
+     * (packageId, số giao dịch, doanh thu) trong khoảng ngày [from, to]
+     */
+    @Query("SELECT r.packageId, SUM(r.completedCount), SUM(r.revenue) FROM PackageDailyRollup r " +
+            "WHERE r.statDate BETWEEN :from AND :to " +
+            "GROUP BY r.packageId")
+    List<Object[]> sumByPackageBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Cộng dồn bộ đếm của một (ngày, gói), tự tạo dòng nếu chưa có (upsert 1 round-trip)
+     */
+    @Modifying
+    @Query(value = "MERGE PackageDailyRollup WITH (HOLDLOCK) AS target " +
+            "USING (SELECT :day AS StatDate, :packageId AS PackageID) AS src " +
+            "ON target.StatDate = src.StatDate AND target.PackageID = src.PackageID " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "  CompletedCount = target.CompletedCount + :count, " +
+            "  Revenue = target.Revenue + :revenue " +
+            "WHEN NOT MATCHED THEN INSERT (StatDate, PackageID, CompletedCount, Revenue) " +
+            "  VALUES (:day, :packageId, :count, :revenue);",
+            nativeQuery = true)
+    int increment(@Param("day") LocalDate day,
+                  @Param("packageId") Long packageId,
+                  @Param("count") long count,
+                  @Param("revenue") BigDecimal revenue);
+}
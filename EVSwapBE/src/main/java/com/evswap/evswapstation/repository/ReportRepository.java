@@ -1,19 +1,57 @@
 package com.evswap.evswapstation.repository;
 
+import com.evswap.evswapstation.dto.ReportDTO;
 import com.evswap.evswapstation.entity.Report;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long> {
 
+    String REPORT_WITH_USER_NAME = "SELECT new com.evswap.evswapstation.dto.ReportDTO(" +
+            "r.reportId, r.userId, COALESCE(u.userName, 'Unknown'), COALESCE(u.fullName, 'Unknown User'), " +
+            "r.transactionId, r.reportContent, r.reportDate, r.status, r.description) " +
+            "FROM Report r LEFT JOIN User u ON u.userID = r.userId ";
+
+    String REPORT_FILTER = "WHERE (:status IS NULL OR r.status = :status) " +
+            "AND (:fromDate IS NULL OR r.reportDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR r.reportDate < :toDate)";
+
     // Query để lấy Reports với userId (Integer thay vì Long)
     @Query("SELECT r FROM Report r WHERE r.userId = :userId")
     List<Report> findByUserId(Integer userId);
 
     // Query để lấy tất cả reports
     List<Report> findAll();
-}
\ No newline at end of file
+
+    /**
+     * Reports kèm tên user trong 1 câu JOIN (tránh N+1 findById), có lọc status / khoảng ngày
+     */
+    @Query(value = REPORT_WITH_USER_NAME + REPORT_FILTER,
+            countQuery = "SELECT COUNT(r) FROM Report r " + REPORT_FILTER)
+    Page<ReportDTO> findWithUserName(@Param("status") String status,
+                                     @Param("fromDate") Date fromDate,
+                                     @Param("toDate") Date toDate,
+                                     Pageable pageable);
+
+    @Query(REPORT_WITH_USER_NAME + REPORT_FILTER)
+    List<ReportDTO> findWithUserName(@Param("status") String status,
+                                     @Param("fromDate") Date fromDate,
+                                     @Param("toDate") Date toDate,
+                                     Sort sort);
+
+    @Query(REPORT_WITH_USER_NAME + "WHERE r.reportId = :reportId")
+    Optional<ReportDTO> findByIdWithUserName(@Param("reportId") Long reportId);
+
+    @Query(REPORT_WITH_USER_NAME + "WHERE r.userId = :userId")
+    List<ReportDTO> findByUserIdWithUserName(@Param("userId") Integer userId);
+}
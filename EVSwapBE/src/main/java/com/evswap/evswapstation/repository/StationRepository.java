@@ -4,8 +4,19 @@ import com.evswap.evswapstation.entity.Station;
 import com.evswap.evswapstation.enums.StationStatus;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface StationRepository extends JpaRepository<Station, Integer> {
     List<Station> findByStationStatus(StationStatus stationStatus);
     List<Station> findByAddressContaining(String address);
+
+    /**
+     * Header của trạm + (inventoryID, slotNumber, status) của từng slot có inventory, trong 1 round-trip.
+     * Trạm không có inventory vẫn trả về 1 dòng với 3 cột cuối null; không có dòng nào nghĩa là không có trạm.
+     */
+    @Query("SELECT s.slots, s.stationName, s.stationStatus, i.inventoryID, i.slotNumber, i.status " +
+            "FROM Station s LEFT JOIN s.inventories i " +
+            "WHERE s.stationID = :stationId")
+    List<Object[]> findSlotView(@Param("stationId") Integer stationId);
 }
@@ -3,6 +3,7 @@ package com.evswap.evswapstation.repository;
 import com.evswap.evswapstation.dto.TransactionBatteryDTO;
 import com.evswap.evswapstation.entity.TransactionEntity;
 import com.evswap.evswapstation.dto.TransactionDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,25 +20,40 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
     TransactionEntity findByPayPalTransactionId(String payPalTransactionId);
     List<TransactionEntity> findByStatus(String status);
 
-    // QUERY ĐÃ SỬA - Sử dụng CONCAT để convert sang String
+    /**
+     * Danh sách giao dịch theo keyset (timeDate, transactionId) giảm dần.
+     * VIN đọc thẳng từ Transactions (ghi lúc tạo giao dịch), không JOIN Vehicle;
+     * truyền PageRequest.of(0, size + 1) để biết còn trang sau hay không; xuất toàn bộ đi qua TransactionExportService (JDBC stream).
+     */
     @Query("""
        SELECT new com.evswap.evswapstation.dto.TransactionDTO(
             t.transactionId,
             t.timeDate,
             u.fullName,
             u.email,
-            MIN(v.vin),
+            t.vin,
             t.amount,
             CONCAT('', t.paymentId),
             t.status
        )
        FROM TransactionEntity t
        LEFT JOIN t.user u
-       LEFT JOIN Vehicle v ON v.user = u
-       GROUP BY t.transactionId, t.timeDate, u.fullName, u.email, t.amount, t.paymentId, t.status
-       ORDER BY t.timeDate DESC
+       WHERE (:status IS NULL OR t.status = :status)
+         AND (:stationId IS NULL OR t.stationId = :stationId)
+         AND (:from IS NULL OR t.timeDate >= :from)
+         AND (:to IS NULL OR t.timeDate < :to)
+         AND (:cursorTime IS NULL
+              OR t.timeDate < :cursorTime
+              OR (t.timeDate = :cursorTime AND t.transactionId < :cursorId))
+       ORDER BY t.timeDate DESC, t.transactionId DESC
        """)
-    List<TransactionDTO> findAllTransactionsWithDetails();
+    List<TransactionDTO> findPageWithDetails(@Param("status") String status,
+                                             @Param("stationId") Long stationId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("cursorTime") LocalDateTime cursorTime,
+                                             @Param("cursorId") Long cursorId,
+                                             Pageable pageable);
 
     @Query("SELECT t FROM TransactionEntity t " +
             "LEFT JOIN FETCH t.user " +
@@ -138,72 +154,47 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
     List<TransactionEntity> findTop10ByOrderByTransactionDateDesc();
 
     /**
-     * Đếm giao dịch theo giờ trong ngày (Peak Hours)
+     * Số giao dịch COMPLETED và doanh thu theo (trạm, ngày) từ một mốc thời gian (seed StationLeaderboard)
      */
-    @Query("SELECT " +
-            "CASE " +
-            "  WHEN HOUR(t.transactionDate) < 10 THEN CONCAT('0', CAST(HOUR(t.transactionDate) AS string), ':00') " +
-            "  ELSE CONCAT(CAST(HOUR(t.transactionDate) AS string), ':00') " +
-            "END, " +
-            "COUNT(t) " +
+    @Query("SELECT t.stationId, CAST(t.transactionDate AS LocalDate), COUNT(t), SUM(t.amount) " +
             "FROM TransactionEntity t " +
-            "WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY HOUR(t.transactionDate) " +
-            "ORDER BY HOUR(t.transactionDate)")
-    List<Object[]> countByHourOfDay(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
+            "WHERE t.transactionDate >= :since AND t.status = 'COMPLETED' AND t.stationId IS NOT NULL " +
+            "GROUP BY t.stationId, CAST(t.transactionDate AS LocalDate)")
+    List<Object[]> sumCompletedByStationAndDay(@Param("since") LocalDateTime since);
 
     /**
-     * Top stations theo số lượng giao dịch
-     * ✅ FIX: Dùng stationID từ TransactionEntity
+     * Số giao dịch COMPLETED và doanh thu theo (ngày, gói) (backfill PackageDailyRollup)
      */
-    @Query("SELECT s.stationName, COUNT(t), SUM(t.amount), " +
-            "CAST((COUNT(t) * 100.0 / :totalCapacity) AS int) " +
+    @Query("SELECT CAST(t.transactionDate AS LocalDate), t.packageId, COUNT(t), SUM(t.amount) " +
             "FROM TransactionEntity t " +
-            "JOIN Station s ON t.stationId = s.stationID " +
-            "WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY s.stationID, s.stationName " +
-            "ORDER BY COUNT(t) DESC")
-    List<Object[]> findTopStationPerformance(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("totalCapacity") Integer totalCapacity
-    );
+            "WHERE t.status = 'COMPLETED' AND t.packageId IS NOT NULL AND t.transactionDate IS NOT NULL " +
+            "GROUP BY CAST(t.transactionDate AS LocalDate), t.packageId")
+    List<Object[]> sumCompletedByPackageAndDay();
 
     /**
-     * Đếm user mới theo tháng (cho User Growth)
-     * ✅ FIX: Sử dụng createdAt từ User entity
+     * Số user khác nhau có giao dịch theo (năm, tháng) (backfill UserMonthlyCohort)
      */
-    @Query("SELECT " +
-            "CASE MONTH(u.createdAt) " +
-            "  WHEN 1 THEN 'Jan' WHEN 2 THEN 'Feb' WHEN 3 THEN 'Mar' " +
-            "  WHEN 4 THEN 'Apr' WHEN 5 THEN 'May' WHEN 6 THEN 'Jun' " +
-            "  WHEN 7 THEN 'Jul' WHEN 8 THEN 'Aug' WHEN 9 THEN 'Sep' " +
-            "  WHEN 10 THEN 'Oct' WHEN 11 THEN 'Nov' WHEN 12 THEN 'Dec' " +
-            "END, " +
-            "COUNT(u), " +
-            "MONTH(u.createdAt) " +
-            "FROM User u " +
-            "WHERE u.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY MONTH(u.createdAt) " +
-            "ORDER BY MONTH(u.createdAt)")
-    List<Object[]> countUsersByMonth(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
+    @Query("SELECT YEAR(t.transactionDate), MONTH(t.transactionDate), COUNT(DISTINCT t.user.userID) " +
+            "FROM TransactionEntity t " +
+            "WHERE t.transactionDate IS NOT NULL " +
+            "GROUP BY YEAR(t.transactionDate), MONTH(t.transactionDate)")
+    List<Object[]> countActiveUsersByYearMonth();
 
     /**
-     * Đếm user active (có giao dịch trong tháng)
+     * Số giao dịch và số user active theo từng ngày (backfill DailyStatsRollup)
      */
-    @Query("SELECT MONTH(t.transactionDate), COUNT(DISTINCT t.user.userID) " +
+    @Query("SELECT CAST(t.transactionDate AS LocalDate), COUNT(t), COUNT(DISTINCT t.user.userID) " +
             "FROM TransactionEntity t " +
-            "WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY MONTH(t.transactionDate) " +
-            "ORDER BY MONTH(t.transactionDate)")
-    List<Object[]> countActiveUsersByMonth(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
-}
\ No newline at end of file
+            "WHERE t.transactionDate IS NOT NULL " +
+            "GROUP BY CAST(t.transactionDate AS LocalDate)")
+    List<Object[]> countSwapsAndActiveUsersByDay();
+
+    /**
+     * Số giao dịch và tổng doanh thu theo (ngày, giờ) từ một mốc thời gian (seed TransactionMetricsEngine)
+     */
+    @Query("SELECT CAST(t.transactionDate AS LocalDate), HOUR(t.transactionDate), COUNT(t), SUM(t.amount) " +
+            "FROM TransactionEntity t " +
+            "WHERE t.transactionDate >= :since " +
+            "GROUP BY CAST(t.transactionDate AS LocalDate), HOUR(t.transactionDate)")
+    List<Object[]> sumCountAndRevenueByHour(@Param("since") LocalDateTime since);
+}
@@ -0,0 +1,50 @@
+package com.evswap.evswapstation.repository;
+
+import com.evswap.evswapstation.entity.UserMonthlyActiveUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Repository
+public interface UserMonthlyActiveUserRepository
+        extends JpaRepository<UserMonthlyActiveUser, UserMonthlyActiveUser.UserMonthlyActiveUserId> {
+
+    /**
+     * Đánh dấu user active trong tháng nếu chưa có; trả về 1 khi dòng mới được tạo
+     */
+    @Modifying
+    @Query(value = "INSERT INTO UserMonthlyActiveUser (MonthStart, UserID) SELECT :monthStart, :userId " +
+            "WHERE NOT EXISTS (SELECT 1 FROM UserMonthlyActiveUser WITH (UPDLOCK, HOLDLOCK) " +
+            "  WHERE MonthStart = :monthStart AND UserID = :userId)",
+            nativeQuery = true)
+    int markActive(@Param("monthStart") LocalDate monthStart, @Param("userId") Integer userId);
+
+    /**
+     * Bỏ đánh dấu khi user không còn giao dịch nào trong tháng; trả về 1 khi dòng bị xóa
+     */
+    @Modifying
+    @Query(value = "DELETE FROM UserMonthlyActiveUser WHERE MonthStart = :monthStart AND UserID = :userId " +
+            "AND NOT EXISTS (SELECT 1 FROM Transactions t WHERE t.UserID = :userId " +
+            "  AND t.TransactionDate >= :startDate AND t.TransactionDate < :endDate)",
+            nativeQuery = true)
+    int unmarkIfIdle(@Param("monthStart") LocalDate monthStart,
+                     @Param("userId") Integer userId,
+                     @Param("startDate") LocalDateTime startDate,
+                     @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Backfill từ Transactions khi bảng còn trống
+     */
+    @Modifying
+    @Query(value = "INSERT INTO UserMonthlyActiveUser (MonthStart, UserID) " +
+            "SELECT DISTINCT DATEADD(DAY, 1 - DAY(t.TransactionDate), CAST(t.TransactionDate AS DATE)), t.UserID " +
+            "FROM Transactions t " +
+            "WHERE t.TransactionDate IS NOT NULL AND t.UserID IS NOT NULL",
+            nativeQuery = true)
+    int backfillFromTransactions();
+}
@@ -0,0 +1,46 @@
+package com.evswap.evswapstation.repository;
+
+import com.evswap.evswapstation.entity.UserMonthlyCohort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserMonthlyCohortRepository extends JpaRepository<UserMonthlyCohort, LocalDate> {
+
+    List<UserMonthlyCohort> findByMonthStartBetweenOrderByMonthStartAsc(LocalDate from, LocalDate to);
+
+    // Tổng user mới của các tháng trước một mốc (điểm bắt đầu cho số user cộng dồn)
+    @Query("SELECT COALESCE(SUM(c.newUsers), 0) FROM UserMonthlyCohort c WHERE c.monthStart < :monthStart")
+    long sumNewUsersBefore(@Param("monthStart") LocalDate monthStart);
+
+    /**
+     * Cộng dồn bộ đếm của một tháng, tự tạo dòng nếu chưa có (upsert 1 round-trip)
+     */
+    @Modifying
+    @Query(value = "MERGE UserMonthlyCohort WITH (HOLDLOCK) AS target " +
+            "USING (SELECT :monthStart AS MonthStart) AS src ON target.MonthStart = src.MonthStart " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "  NewUsers = target.NewUsers + :newUsers, " +
+            "  ActiveUsers = target.ActiveUsers + :activeUsers " +
+            "WHEN NOT MATCHED THEN INSERT (MonthStart, NewUsers, ActiveUsers) " +
+            "  VALUES (:monthStart, :newUsers, :activeUsers);",
+            nativeQuery = true)
+    int increment(@Param("monthStart") LocalDate monthStart,
+                  @Param("newUsers") long newUsers,
+                  @Param("activeUsers") long activeUsers);
+
+    /**
+     * Tính lại ActiveUsers của mọi tháng theo bảng UserMonthlyActiveUser (sau khi backfill bảng đó)
+     */
+    @Modifying
+    @Query(value = "UPDATE UserMonthlyCohort SET ActiveUsers = " +
+            "(SELECT COUNT(*) FROM UserMonthlyActiveUser p WHERE p.MonthStart = UserMonthlyCohort.MonthStart)",
+            nativeQuery = true)
+    int recomputeActiveUsers();
+}
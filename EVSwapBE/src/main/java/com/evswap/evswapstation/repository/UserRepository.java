@@ -22,4 +22,20 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     // SỬA LẠI: Đổi từ findByUserId -> findByUserID và trả về User
     Optional<User> findByUserID(Long userID);
-}
\ No newline at end of file
+
+    // Đếm user đang active (status ACTIVE hoặc chưa có status)
+    @Query("SELECT COUNT(u) FROM User u WHERE u.status IS NULL OR UPPER(u.status) = 'ACTIVE'")
+    long countActiveUsers();
+
+    // Số user mới theo từng ngày (backfill DailyStatsRollup)
+    @Query("SELECT CAST(u.createdAt AS LocalDate), COUNT(u) FROM User u " +
+            "WHERE u.createdAt IS NOT NULL " +
+            "GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<Object[]> countNewUsersByDay();
+
+    // Số user mới theo (năm, tháng) (backfill UserMonthlyCohort)
+    @Query("SELECT YEAR(u.createdAt), MONTH(u.createdAt), COUNT(u) FROM User u " +
+            "WHERE u.createdAt IS NOT NULL " +
+            "GROUP BY YEAR(u.createdAt), MONTH(u.createdAt)")
+    List<Object[]> countNewUsersByMonth();
+}
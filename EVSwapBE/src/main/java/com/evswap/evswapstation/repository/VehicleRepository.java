@@ -2,8 +2,11 @@ package com.evswap.evswapstation.repository;
 
 import com.evswap.evswapstation.entity.Vehicle;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +24,15 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Integer> {
 
     // Đếm số lượng vehicles của một user
     long countByUser_UserID(Integer userId);
+
+    // VIN chính của user (VIN nhỏ nhất), ghi kèm vào giao dịch lúc tạo; null nếu user chưa có xe
+    @Query("SELECT MIN(v.vin) FROM Vehicle v WHERE v.user.userID = :userId")
+    String findPrimaryVin(@Param("userId") Integer userId);
+
+    // VIN client gửi lên có phải xe đã đăng ký của user không
+    boolean existsByVinAndUser_UserID(String vin, Integer userId);
+
+    // (userID, VIN) mọi xe của nhiều user trong một query, dùng khi nhập giao dịch hàng loạt
+    @Query("SELECT v.user.userID, v.vin FROM Vehicle v WHERE v.user.userID IN :userIds")
+    List<Object[]> findVinsByUserIds(@Param("userIds") Collection<Integer> userIds);
 }
\ No newline at end of file
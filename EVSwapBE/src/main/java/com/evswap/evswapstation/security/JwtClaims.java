@@ -0,0 +1,9 @@
+package com.evswap.evswapstation.security;
+
+import java.util.Date;
+
+/**
+ * Các claim cần dùng sau khi token đã được verify (subject là email)
+ */
+public record JwtClaims(String subject, String role, Date issuedAt, Date expiresAt) {
+}
@@ -0,0 +1,93 @@
+package com.evswap.evswapstation.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache UserDetails load từ DB theo email cho JwtAuthenticationFilter (giới hạn số lượng + TTL).
+ * Khi user bị đổi role / trạng thái / xóa, UserService gọi invalidate() để request sau load lại ngay
+ * trên instance này; instance khác thấy thay đổi khi entry của nó hết TTL.
+ * Mỗi lần invalidate tăng generation của email; put() mang generation đọc trước khi load UserDetails
+ * và bị bỏ nếu trong lúc đó email đã bị invalidate, nên cache không giữ role cũ.
+ */
+@Component
+public class UserDetailsCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = Duration.ofMinutes(5).toMillis();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Invalidation> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    public UserDetails get(String email) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(email, entry);
+            return null;
+        }
+        return entry.details;
+    }
+
+    /**
+     * Đọc trước khi dựng / load UserDetails rồi truyền lại cho put()
+     */
+    public long generation(String email) {
+        Invalidation invalidation = invalidatedAt.get(email);
+        return invalidation == null ? 0 : invalidation.generation();
+    }
+
+    public void put(String email, UserDetails details, long generation) {
+        if (entries.size() >= MAX_ENTRIES) {
+            evict();
+        }
+        Entry entry = new Entry(details, System.currentTimeMillis() + TTL_MILLIS);
+        entries.put(email, entry);
+        // invalidate() ghi generation trước rồi mới xóa entry: kiểm tra lại sau khi put là đủ,
+        // invalidate chen vào lúc nào thì entry cũ cũng bị một trong hai bên xóa
+        if (generation(email) != generation) {
+            entries.remove(email, entry);
+        }
+    }
+
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        invalidatedAt.put(email, new Invalidation(System.currentTimeMillis(), generations.incrementAndGet()));
+        entries.remove(email);
+    }
+
+    // Xóa entry hết hạn, nếu vẫn đầy thì bỏ 10% entry cũ nhất
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt < now);
+        // Một lần load + put không kéo dài quá TTL nên generation cũ hơn thế không còn cần để so
+        invalidatedAt.entrySet().removeIf(e -> e.getValue().at() + TTL_MILLIS < now);
+
+        int overflow = entries.size() - MAX_ENTRIES * 9 / 10;
+        if (overflow > 0) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(entries::remove);
+        }
+    }
+
+    private record Entry(UserDetails details, long expiresAt) {
+    }
+
+    private record Invalidation(long at, long generation) {
+    }
+}
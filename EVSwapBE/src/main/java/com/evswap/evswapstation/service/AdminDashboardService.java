@@ -2,12 +2,13 @@ package com.evswap.evswapstation.service;
 
 import com.evswap.evswapstation.dto.AdminDashboardStatsDTO;
 import com.evswap.evswapstation.dto.WeeklySwapDTO;
+import com.evswap.evswapstation.entity.DailyStatsRollup;
 import com.evswap.evswapstation.repository.StationRepository;
-import com.evswap.evswapstation.repository.TransactionRepository;
 import com.evswap.evswapstation.repository.UserRepository;
 import com.evswap.evswapstation.repository.BatteryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -16,20 +17,20 @@ import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AdminDashboardService {
 
     private final StationRepository stationRepository;
-    private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
     private final BatteryRepository batteryRepository;
+    private final DailyStatsRollupService dailyStatsRollupService;
 
     /**
      * Lấy thống kê tổng quan cho admin dashboard
      */
+    @Transactional(readOnly = true)
     public AdminDashboardStatsDTO getDashboardStats() {
         LocalDateTime now = LocalDateTime.now();
         LocalDate today = LocalDate.now();
@@ -67,38 +68,26 @@ public class AdminDashboardService {
         }
 
         // 5. Active Users (có status ACTIVE hoặc không có status field)
-        int activeUsers = (int) userRepository.findAll().stream()
-                .filter(u -> u.getStatus() == null ||
-                        "ACTIVE".equalsIgnoreCase(u.getStatus()))
-                .count();
+        int activeUsers = (int) userRepository.countActiveUsers();
 
-        // 6. Users growth (% increase compared to last month)
-        long usersThisMonth = userRepository.findAll().stream()
-                .filter(u -> u.getCreatedAt() != null &&
-                        u.getCreatedAt().isAfter(startOfMonth))
-                .count();
+        // Đọc các dòng rollup từ đầu tháng trước đến hôm nay thay vì quét bảng Users / Transactions
+        Map<LocalDate, DailyStatsRollup> rollups =
+                dailyStatsRollupService.getRange(startOfLastMonth.toLocalDate(), today);
 
-        long usersLastMonth = userRepository.findAll().stream()
-                .filter(u -> u.getCreatedAt() != null &&
-                        u.getCreatedAt().isAfter(startOfLastMonth) &&
-                        u.getCreatedAt().isBefore(startOfMonth))
-                .count();
+        // 6. Users growth (% increase compared to last month)
+        long usersThisMonth = sumNewUsers(rollups, startOfMonth.toLocalDate(), today);
+        long usersLastMonth = sumNewUsers(rollups, startOfLastMonth.toLocalDate(),
+                startOfMonth.toLocalDate().minusDays(1));
 
         double usersGrowth = usersLastMonth > 0
                 ? ((double) (usersThisMonth - usersLastMonth) / usersLastMonth) * 100
                 : 100.0;
 
         // 7. Today's swaps (transactions today)
-        long todaySwaps = transactionRepository.findAll().stream()
-                .filter(t -> t.getTransactionDate() != null &&
-                        t.getTransactionDate().toLocalDate().equals(today))
-                .count();
+        long todaySwaps = swapsOn(rollups, today);
 
         // 8. Swaps growth compared to yesterday
-        long yesterdaySwaps = transactionRepository.findAll().stream()
-                .filter(t -> t.getTransactionDate() != null &&
-                        t.getTransactionDate().toLocalDate().equals(yesterday))
-                .count();
+        long yesterdaySwaps = swapsOn(rollups, yesterday);
 
         double swapsGrowth = yesterdaySwaps > 0
                 ? ((double) (todaySwaps - yesterdaySwaps) / yesterdaySwaps) * 100
@@ -119,33 +108,32 @@ public class AdminDashboardService {
     /**
      * Lấy số lượng swap theo từng ngày trong tuần
      */
+    @Transactional(readOnly = true)
     public List<WeeklySwapDTO> getWeeklySwaps() {
-        LocalDateTime startOfWeek = LocalDateTime.now()
-                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-
-        LocalDateTime endOfWeek = startOfWeek.plusWeeks(1);
-
-        // Get all transactions this week
-        var transactions = transactionRepository.findByTransactionDateBetween(startOfWeek, endOfWeek);
-
-        // Group by day of week
-        Map<String, Long> swapsByDay = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getTransactionDate().getDayOfWeek().toString(),
-                        Collectors.counting()
-                ));
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        Map<LocalDate, DailyStatsRollup> rollups = dailyStatsRollupService.getRange(monday, monday.plusDays(6));
 
         // Convert to DTO with proper day order
-        String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY"};
         String[] dayNames = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
 
         List<WeeklySwapDTO> result = new ArrayList<>();
-        for (int i = 0; i < days.length; i++) {
-            Long count = swapsByDay.getOrDefault(days[i], 0L);
+        for (int i = 0; i < dayNames.length; i++) {
+            Long count = swapsOn(rollups, monday.plusDays(i));
             result.add(new WeeklySwapDTO(dayNames[i], count));
         }
 
         return result;
     }
+
+    private long swapsOn(Map<LocalDate, DailyStatsRollup> rollups, LocalDate day) {
+        DailyStatsRollup row = rollups.get(day);
+        return row != null ? row.getSwapCount() : 0L;
+    }
+
+    private long sumNewUsers(Map<LocalDate, DailyStatsRollup> rollups, LocalDate from, LocalDate to) {
+        return rollups.values().stream()
+                .filter(r -> !r.getStatDate().isBefore(from) && !r.getStatDate().isAfter(to))
+                .mapToLong(DailyStatsRollup::getNewUsers)
+                .sum();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.repository.BatteryRepository;
+import com.evswap.evswapstation.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Cấp phát pin cho booking.
+ * Index in-memory (stationId, loại pin đã chuẩn hóa) -> hàng đợi pin đang "Full" trong slot của trạm,
+ * lấy pin bằng poll() không khóa rồi xác nhận bằng UPDATE có điều kiện ở DB (nguồn sự thật):
+ * hai booking đồng thời không bao giờ nhận cùng một pin, và không phải quét toàn bộ pin của hệ thống.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatteryAllocationService {
+
+    public static final String STATUS_AVAILABLE = "Full";
+    public static final String STATUS_CLAIMED = "IN_USE";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final BatteryRepository batteryRepository;
+    private final InventoryRepository inventoryRepository;
+
+    private final Map<SlotKey, Queue<AvailableBattery>> index = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        try {
+            Map<SlotKey, Queue<AvailableBattery>> fresh = group(
+                    inventoryRepository.findSlottedBatteriesByStatus(STATUS_AVAILABLE));
+            index.clear();
+            index.putAll(fresh);
+            log.info("Battery allocation index built with {} station/type buckets", fresh.size());
+        } catch (Exception e) {
+            log.warn("Could not build battery allocation index, starting empty: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Giữ một pin đúng loại tại trạm. Trả về empty nếu trạm không còn pin phù hợp.
+     */
+    @Transactional
+    public Optional<AvailableBattery> claim(Integer stationId, String batteryType) {
+        SlotKey key = new SlotKey(stationId, normalizeType(batteryType));
+
+        Optional<AvailableBattery> claimed = pollAndClaim(key);
+        if (claimed.isPresent()) {
+            return claimed;
+        }
+
+        // Index có thể chưa biết pin vừa sạc đầy / vừa gắn vào slot: nạp lại riêng trạm này rồi thử lần nữa
+        refreshStation(stationId);
+        return pollAndClaim(key);
+    }
+
+    /**
+     * Trả pin về trạng thái sẵn sàng khi booking không lưu được.
+     * REQUIRES_NEW: được gọi từ afterCompletion của transaction booking đã rollback.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(Integer stationId, AvailableBattery battery) {
+        if (batteryRepository.compareAndSetStatus(battery.batteryId(), STATUS_CLAIMED, STATUS_AVAILABLE) == 1) {
+            index.computeIfAbsent(new SlotKey(stationId, normalizeType(battery.batteryType())),
+                    k -> new ConcurrentLinkedQueue<>()).offer(battery);
+        }
+    }
+
+    private Optional<AvailableBattery> pollAndClaim(SlotKey key) {
+        Queue<AvailableBattery> queue = index.get(key);
+        if (queue == null) {
+            return Optional.empty();
+        }
+        AvailableBattery candidate;
+        while ((candidate = queue.poll()) != null) {
+            // Entry cũ (pin đã đổi trạng thái ở chỗ khác) sẽ trả về 0 và bị bỏ qua
+            if (batteryRepository.compareAndSetStatus(candidate.batteryId(), STATUS_AVAILABLE, STATUS_CLAIMED) == 1) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void refreshStation(Integer stationId) {
+        Map<SlotKey, Queue<AvailableBattery>> fresh = group(
+                inventoryRepository.findSlottedBatteriesByStationAndStatus(stationId, STATUS_AVAILABLE));
+        index.keySet().removeIf(k -> k.stationId().equals(stationId) && !fresh.containsKey(k));
+        index.putAll(fresh);
+    }
+
+    private Map<SlotKey, Queue<AvailableBattery>> group(List<Object[]> rows) {
+        Map<SlotKey, Queue<AvailableBattery>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            Integer stationId = (Integer) row[0];
+            AvailableBattery battery = new AvailableBattery((UUID) row[1], (String) row[2], (String) row[3]);
+            grouped.computeIfAbsent(new SlotKey(stationId, normalizeType(battery.batteryType())),
+                    k -> new ConcurrentLinkedQueue<>()).offer(battery);
+        }
+        return grouped;
+    }
+
+    // So khớp loại pin bỏ qua khoảng trắng và hoa/thường (giống logic cũ trong BookingController)
+    static String normalizeType(String batteryType) {
+        return batteryType == null ? "" : WHITESPACE.matcher(batteryType).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private record SlotKey(Integer stationId, String batteryType) {
+    }
+
+    /**
+     * Thông tin tối thiểu của pin được cấp, đủ để trả về cho client mà không cần load lại entity
+     */
+    public record AvailableBattery(UUID batteryId, String batteryName, String batteryType) {
+    }
+}
@@ -5,10 +5,12 @@ import com.evswap.evswapstation.dto.BatteryReturnRequest;
 import com.evswap.evswapstation.entity.Battery;
 import com.evswap.evswapstation.entity.BatteryReturn;
 import com.evswap.evswapstation.entity.TransactionEntity;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
 import com.evswap.evswapstation.repository.BatteryRepository;
 import com.evswap.evswapstation.repository.BatteryReturnRepository;
 import com.evswap.evswapstation.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +25,7 @@ public class BatteryReturnService {
     private final BatteryReturnRepository batteryReturnRepository;
     private final BatteryRepository batteryRepository;
     private final TransactionRepository transactionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<BatteryReturnDTO> getAllBatteryReturns() {
         return batteryReturnRepository.findAll().stream()
@@ -84,14 +87,19 @@ public class BatteryReturnService {
 
         // 6. Cập nhật borrowStatus nếu cần
         battery.setBorrowStatus("Available");
-        batteryRepository.save(battery);
 
         // 7. Cập nhật Return Date trong Transaction
         transaction.setReturnDate(returnTime);
 
         // 8. Cập nhật status của transaction thành COMPLETED
+        // battery và transaction đang được quản lý bởi persistence context: thay đổi được flush
+        // (UPDATE theo batch) khi commit, không cần save() lại
         transaction.setStatus("COMPLETED");
-        transactionRepository.save(transaction);
+
+        // 9. Báo cho stream availability: trạm vừa nhận lại pin
+        if (transaction.getStationId() != null) {
+            eventPublisher.publishEvent(new StationAvailabilityChangedEvent(transaction.getStationId().intValue()));
+        }
 
         return convertToDTO(saved);
     }
@@ -105,8 +113,7 @@ public class BatteryReturnService {
                         "Không tìm thấy battery return với BatteryID: " + batteryID + " và TransactionID: " + transactionID));
 
         batteryReturn.setStatus(newStatus);
-        BatteryReturn updated = batteryReturnRepository.save(batteryReturn);
-        return convertToDTO(updated);
+        return convertToDTO(batteryReturn);
     }
 
     private BatteryReturnDTO convertToDTO(BatteryReturn batteryReturn) {
@@ -0,0 +1,75 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.BookingRequest;
+import com.evswap.evswapstation.entity.BookingEntity;
+import com.evswap.evswapstation.entity.PackagePlan;
+import com.evswap.evswapstation.entity.UserPackagePlans;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
+import com.evswap.evswapstation.repository.BookingRepository;
+import com.evswap.evswapstation.repository.UserPackagePlansRepository;
+import com.evswap.evswapstation.service.BatteryAllocationService.AvailableBattery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingService {
+
+    private final BookingRepository bookingRepository;
+    private final UserPackagePlansRepository userPackageRepository;
+    private final BatteryAllocationService batteryAllocationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Lưu booking cho pin đã được claim và đánh dấu gói trả theo lượt là đã dùng, trong một transaction.
+     * Transaction rollback (kể cả lỗi lúc commit) thì pin được trả lại cho trạm.
+     */
+    @Transactional
+    public BookingEntity saveBooking(BookingRequest request,
+                                     UserPackagePlans userPackage,
+                                     PackagePlan packageEntity,
+                                     AvailableBattery selectedBattery) {
+        Integer stationId = request.getStationId().intValue();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    log.warn("Booking rolled back, releasing battery {}", selectedBattery.batteryId());
+                    batteryAllocationService.release(stationId, selectedBattery);
+                }
+            }
+        });
+
+        BookingEntity booking = new BookingEntity();
+        booking.setUserId(request.getUserId());
+        booking.setStationId(request.getStationId());
+        booking.setVehicleId(request.getVehicleId());
+        booking.setPackageId(userPackage.getPackageId());
+        booking.setTimeDate(LocalDateTime.now());
+        booking.setStatus("BOOKED");
+        booking.setPrice(packageEntity.getPrice());
+        booking.setBatteryId(selectedBattery.batteryId());
+
+        BookingEntity savedBooking = bookingRepository.save(booking);
+        log.info("✅ Booking saved: {}", savedBooking.getBookingId());
+
+        log.info("✅ Battery {} marked as {}", selectedBattery.batteryId(), BatteryAllocationService.STATUS_CLAIMED);
+        eventPublisher.publishEvent(new StationAvailabilityChangedEvent(stationId));
+
+        // Update package if pay-per-use
+        if (packageEntity.getDurationDays() == null) {
+            userPackage.setStatus("Used");
+            userPackageRepository.save(userPackage);
+            log.info("✅ Package marked as Used");
+        }
+        return savedBooking;
+    }
+}
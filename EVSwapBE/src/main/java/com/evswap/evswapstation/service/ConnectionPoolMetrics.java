@@ -0,0 +1,137 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.ConnectionPoolStatsDTO;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số liệu của các pool Hikari (active / idle / pending, thời gian chờ lấy connection, timeout)
+ * để định cỡ pool. Được gắn vào mọi HikariDataSource bởi DataSourceMetricsConfig.
+ */
+@Service
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    // Cận trên (ms) của các bucket thời gian chờ; bucket cuối là phần còn lại
+    private static final long[] WAIT_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final Map<String, PoolTracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolTracker tracker = new PoolTracker(poolName, poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    public List<ConnectionPoolStatsDTO> snapshot() {
+        List<ConnectionPoolStatsDTO> result = new ArrayList<>();
+        trackers.values().forEach(tracker -> result.add(tracker.snapshot()));
+        result.sort(Comparator.comparing(ConnectionPoolStatsDTO::getPoolName));
+        return result;
+    }
+
+    private final class PoolTracker implements IMetricsTracker {
+
+        private final String poolName;
+        private final PoolStats poolStats;
+
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final LongAdder[] waitBuckets = new LongAdder[WAIT_BUCKETS_MS.length + 1];
+        private final LongAdder usageMillis = new LongAdder();
+        private final AtomicLong maxUsageMillis = new AtomicLong();
+        private final LongAdder released = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder created = new LongAdder();
+
+        PoolTracker(String poolName, PoolStats poolStats) {
+            this.poolName = poolName;
+            this.poolStats = poolStats;
+            for (int i = 0; i < waitBuckets.length; i++) {
+                waitBuckets[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.increment();
+            waitNanos.add(elapsedAcquiredNanos);
+            maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            waitBuckets[bucketOf(TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos))].increment();
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            released.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+            maxUsageMillis.accumulateAndGet(elapsedBorrowedMillis, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            created.increment();
+        }
+
+        @Override
+        public void close() {
+            trackers.remove(poolName, this);
+        }
+
+        ConnectionPoolStatsDTO snapshot() {
+            long acquiredCount = acquired.sum();
+            long releasedCount = released.sum();
+
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < waitBuckets.length; i++) {
+                String label = i < WAIT_BUCKETS_MS.length
+                        ? "<" + WAIT_BUCKETS_MS[i] + "ms"
+                        : ">=" + WAIT_BUCKETS_MS[WAIT_BUCKETS_MS.length - 1] + "ms";
+                histogram.put(label, waitBuckets[i].sum());
+            }
+
+            return ConnectionPoolStatsDTO.builder()
+                    .poolName(poolName)
+                    .active(poolStats.getActiveConnections())
+                    .idle(poolStats.getIdleConnections())
+                    .pending(poolStats.getPendingThreads())
+                    .total(poolStats.getTotalConnections())
+                    .max(poolStats.getMaxConnections())
+                    .acquiredCount(acquiredCount)
+                    .avgWaitMs(acquiredCount > 0 ? waitNanos.sum() / 1_000_000.0 / acquiredCount : 0.0)
+                    .maxWaitMs(maxWaitNanos.get() / 1_000_000.0)
+                    .waitHistogram(histogram)
+                    .avgUsageMs(releasedCount > 0 ? (double) usageMillis.sum() / releasedCount : 0.0)
+                    .maxUsageMs(maxUsageMillis.get())
+                    .timeouts(timeouts.sum())
+                    .connectionsCreated(created.sum())
+                    .build();
+        }
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < WAIT_BUCKETS_MS.length; i++) {
+            if (millis < WAIT_BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return WAIT_BUCKETS_MS.length;
+    }
+}
@@ -0,0 +1,202 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.entity.DailyStatsRollup;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.event.UserCreatedEvent;
+import com.evswap.evswapstation.repository.DailyActiveUserRepository;
+import com.evswap.evswapstation.repository.DailyStatsRollupRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Duy trì bảng DailyStatsRollup (swap / user mới / user active theo ngày).
+ * Bộ đếm được cộng dồn sau khi transaction gốc commit, nên rollback không làm lệch số liệu.
+ * ActiveUsers đi theo bảng DailyActiveUser: chỉ tăng / giảm khi dòng (ngày, user) thực sự được thêm / xóa.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyStatsRollupService {
+
+    private final DailyStatsRollupRepository rollupRepository;
+    private final DailyActiveUserRepository activeUserRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Lấy các dòng rollup trong khoảng ngày [from, to], ngày không có dữ liệu sẽ không có dòng
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, DailyStatsRollup> getRange(LocalDate from, LocalDate to) {
+        Map<LocalDate, DailyStatsRollup> result = new TreeMap<>();
+        for (DailyStatsRollup row : rollupRepository.findByStatDateBetweenOrderByStatDateAsc(from, to)) {
+            result.put(row.getStatDate(), row);
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = event.before();
+        TransactionSnapshot after = event.after();
+
+        if (event.isCreated()) {
+            if (after.transactionDate() == null) {
+                return;
+            }
+            LocalDate day = after.transactionDate().toLocalDate();
+            rollupRepository.increment(day, 1, 0, markActive(after.userId(), day));
+            return;
+        }
+
+        LocalDate oldDay = dayOf(before);
+        LocalDate newDay = dayOf(after);
+        Integer oldUser = before != null ? before.userId() : null;
+        Integer newUser = after != null ? after.userId() : null;
+
+        // Chỉ cần chỉnh khi giao dịch bị xóa, bị dời sang ngày khác hoặc đổi user
+        boolean dayChanged = !Objects.equals(oldDay, newDay);
+        if (!dayChanged && Objects.equals(oldUser, newUser)) {
+            return;
+        }
+        // Đánh dấu (user, ngày) mới trước rồi mới bỏ đánh dấu cái cũ
+        if (newDay != null) {
+            adjust(newDay, dayChanged ? 1 : 0, markActive(newUser, newDay));
+        }
+        if (oldDay != null) {
+            adjust(oldDay, dayChanged ? -1 : 0, -unmarkIfIdle(oldUser, oldDay));
+        }
+    }
+
+    /**
+     * Cả lô insert hàng loạt: một increment cho mỗi ngày.
+     * ActiveUsers chỉ tăng với các (user, ngày) lần đầu được đánh dấu trong bảng DailyActiveUser.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        Map<LocalDate, Long> swapsByDay = new TreeMap<>();
+        Set<UserDay> userDays = new HashSet<>();
+        for (TransactionSnapshot created : event.created()) {
+            if (created.transactionDate() == null) {
+                continue;
+            }
+            LocalDate day = created.transactionDate().toLocalDate();
+            swapsByDay.merge(day, 1L, Long::sum);
+            if (created.userId() != null) {
+                userDays.add(new UserDay(created.userId(), day));
+            }
+        }
+        if (swapsByDay.isEmpty()) {
+            return;
+        }
+
+        Map<LocalDate, Long> newActiveByDay = new HashMap<>();
+        for (UserDay userDay : userDays) {
+            newActiveByDay.merge(userDay.day(), markActive(userDay.userId(), userDay.day()), Long::sum);
+        }
+
+        swapsByDay.forEach((day, swaps) ->
+                rollupRepository.increment(day, swaps, 0, newActiveByDay.getOrDefault(day, 0L)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onUserCreated(UserCreatedEvent event) {
+        LocalDate day = event.createdAt() != null ? event.createdAt().toLocalDate() : LocalDate.now();
+        rollupRepository.increment(day, 0, 1, 0);
+    }
+
+    /**
+     * Backfill một lần khi bảng rollup còn trống (lần deploy đầu tiên)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+
+        Map<LocalDate, DailyStatsRollup> rows = new TreeMap<>();
+        for (Object[] row : transactionRepository.countSwapsAndActiveUsersByDay()) {
+            DailyStatsRollup rollup = rows.computeIfAbsent((LocalDate) row[0], this::emptyRow);
+            rollup.setSwapCount(((Number) row[1]).longValue());
+            rollup.setActiveUsers(((Number) row[2]).longValue());
+        }
+        for (Object[] row : userRepository.countNewUsersByDay()) {
+            DailyStatsRollup rollup = rows.computeIfAbsent((LocalDate) row[0], this::emptyRow);
+            rollup.setNewUsers(((Number) row[1]).longValue());
+        }
+
+        List<DailyStatsRollup> toSave = List.copyOf(rows.values());
+        rollupRepository.saveAll(toSave);
+        log.info("Backfilled DailyStatsRollup with {} days", toSave.size());
+    }
+
+    /**
+     * Bảng DailyActiveUser trống (mới tạo): dựng lại từ Transactions rồi tính lại ActiveUsers theo nó
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillActiveUsersIfEmpty() {
+        if (activeUserRepository.count() > 0) {
+            return;
+        }
+        int marked = activeUserRepository.backfillFromTransactions();
+        rollupRepository.recomputeActiveUsers();
+        log.info("Backfilled DailyActiveUser with {} (user, day) rows", marked);
+    }
+
+    private void adjust(LocalDate day, long swaps, long activeUsers) {
+        if (swaps != 0 || activeUsers != 0) {
+            rollupRepository.increment(day, swaps, 0, activeUsers);
+        }
+    }
+
+    // 1 nếu đây là giao dịch đầu tiên của user trong ngày (dòng presence mới được tạo)
+    private long markActive(Integer userId, LocalDate day) {
+        return userId == null ? 0 : activeUserRepository.markActive(day, userId);
+    }
+
+    // 1 nếu user không còn giao dịch nào trong ngày (dòng presence bị xóa)
+    private long unmarkIfIdle(Integer userId, LocalDate day) {
+        if (userId == null) {
+            return 0;
+        }
+        LocalDateTime start = day.atStartOfDay();
+        return activeUserRepository.unmarkIfIdle(day, userId, start, start.plusDays(1));
+    }
+
+    private static LocalDate dayOf(TransactionSnapshot snapshot) {
+        return snapshot != null && snapshot.transactionDate() != null
+                ? snapshot.transactionDate().toLocalDate() : null;
+    }
+
+    private DailyStatsRollup emptyRow(LocalDate day) {
+        return new DailyStatsRollup(day, 0, 0, 0);
+    }
+
+    private record UserDay(Integer userId, LocalDate day) {
+    }
+}
@@ -7,7 +7,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,6 +15,7 @@ import org.springframework.stereotype.Service;
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final PinningGuard pinningGuard;
 
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
@@ -23,7 +23,7 @@ public class EmailService {
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-    @Async
+    // Gửi đồng bộ trong transaction tạo token: gửi lỗi thì token bị rollback, user có thể yêu cầu lại ngay
     public void sendPasswordResetEmail(String recipientEmail, String token, String userName) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -38,7 +38,11 @@ public class EmailService {
             String content = buildEmailContent(userName, resetUrl);
 
             helper.setText(content, true);
-            mailSender.send(message);
+            // SMTPTransport.sendMessage là synchronized: chạy qua PinningGuard khi dùng virtual thread
+            pinningGuard.call(() -> {
+                mailSender.send(message);
+                return null;
+            });
 
             log.info("Đã gửi email đặt lại mật khẩu đến: {}", recipientEmail);
 
@@ -1,31 +1,203 @@
 package com.evswap.evswapstation.service;
 
+import com.evswap.evswapstation.dto.GoogleTokenVerifierStatsDTO;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.Clock;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Xác thực Google ID token với một GoogleIdTokenVerifier dùng chung (một HttpTransport, một cache public key).
+ * GooglePublicKeysManager giữ key theo Cache-Control max-age / Age của Google và tự tải lại khi còn 5 phút;
+ * refreshKeysAhead() gọi nó định kỳ nên việc tải lại diễn ra trên scheduler thay vì trên request đăng nhập.
+ * Token đã xác thực được nhớ ngắn hạn theo SHA-256 để client gửi lại (retry) không phải xác thực lại.
+ */
 @Service
+@Slf4j
 public class GoogleTokenVerifierService {
 
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
     @Value("${google.client.id}")
     private String clientId;
 
-    public GoogleIdToken.Payload verify(String token) throws Exception {
-        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance()
-        )
+    @Value("${google.token.certs-url:https://www.googleapis.com/oauth2/v1/certs}")
+    private String certsUrl;
+
+    @Value("${google.token.verified-cache-ttl-seconds:60}")
+    private long verifiedCacheTtlSeconds;
+
+    // NetHttpTransport an toàn khi dùng chung giữa các thread
+    private final HttpTransport transport = new NetHttpTransport();
+
+    // Đồng hồ chung cho hạn public key, hạn token và cache token đã xác thực (test thay bằng đồng hồ giả)
+    private Clock clock = Clock.SYSTEM;
+
+    private GooglePublicKeysManager publicKeysManager;
+    private GoogleIdTokenVerifier verifier;
+
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final AtomicLong maxVerifyNanos = new AtomicLong();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder keyRefreshes = new LongAdder();
+    private final LongAdder keyRefreshFailures = new LongAdder();
+    private final AtomicLong lastKeyRefreshNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        publicKeysManager = new GooglePublicKeysManager.Builder(transport, GsonFactory.getDefaultInstance())
+                .setPublicCertsEncodedUrl(certsUrl)
+                .setClock(clock)
+                .build();
+        verifier = new GoogleIdTokenVerifier.Builder(publicKeysManager)
                 .setAudience(Collections.singletonList(clientId))
+                .setClock(clock)
                 .build();
+    }
+
+    public GoogleIdToken.Payload verify(String token) throws Exception {
+        String hash = sha256(token);
+        VerifiedToken cached = verifiedTokens.get(hash);
+        if (cached != null) {
+            if (cached.expiresAt() > clock.currentTimeMillis()) {
+                cacheHits.increment();
+                return cached.payload().clone();
+            }
+            verifiedTokens.remove(hash, cached);
+        }
+
+        long start = System.nanoTime();
+        GoogleIdToken idToken;
+        try {
+            idToken = verifier.verify(token);
+        } catch (Exception e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            verifications.increment();
+            verifyNanos.add(elapsed);
+            maxVerifyNanos.accumulateAndGet(elapsed, Math::max);
+        }
 
-        GoogleIdToken idToken = verifier.verify(token);
         if (idToken != null) {
+            remember(hash, idToken.getPayload());
             return idToken.getPayload();
         }
+        failures.increment();
         throw new IllegalArgumentException("Invalid Google token");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tải lại public key của Google trước khi hết hạn (getPublicKeys() chỉ gọi mạng khi key sắp hết hạn)
+     */
+    @Scheduled(fixedDelayString = "${google.token.keys-refresh-check-ms:60000}",
+            initialDelayString = "${google.token.keys-refresh-initial-delay-ms:5000}")
+    public void refreshKeysAhead() {
+        long expiresBefore = publicKeysManager.getExpirationTimeMilliseconds();
+        long start = System.nanoTime();
+        try {
+            publicKeysManager.getPublicKeys();
+            if (publicKeysManager.getExpirationTimeMilliseconds() != expiresBefore) {
+                keyRefreshes.increment();
+                lastKeyRefreshNanos.set(System.nanoTime() - start);
+                log.debug("Refreshed Google public keys, valid until {}", toDateTime(publicKeysManager.getExpirationTimeMilliseconds()));
+            }
+        } catch (GeneralSecurityException | IOException e) {
+            keyRefreshFailures.increment();
+            log.warn("Could not refresh Google public keys: {}", e.getMessage());
+        }
+    }
+
+    public GoogleTokenVerifierStatsDTO getStats() {
+        long count = verifications.sum();
+        long keysExpireAt = publicKeysManager.getExpirationTimeMilliseconds();
+        return GoogleTokenVerifierStatsDTO.builder()
+                .verifications(count)
+                .cacheHits(cacheHits.sum())
+                .failures(failures.sum())
+                .avgVerifyMs(count > 0 ? verifyNanos.sum() / 1_000_000.0 / count : 0.0)
+                .maxVerifyMs(maxVerifyNanos.get() / 1_000_000.0)
+                .cachedTokens(verifiedTokens.size())
+                .keysExpireAt(keysExpireAt > 0 ? toDateTime(keysExpireAt) : null)
+                .keyRefreshes(keyRefreshes.sum())
+                .keyRefreshFailures(keyRefreshFailures.sum())
+                .lastKeyRefreshMs(TimeUnit.NANOSECONDS.toMillis(lastKeyRefreshNanos.get()))
+                .build();
+    }
+
+    private void remember(String hash, GoogleIdToken.Payload payload) {
+        long now = clock.currentTimeMillis();
+        long expiresAt = now + TimeUnit.SECONDS.toMillis(verifiedCacheTtlSeconds);
+        // Không bao giờ nhớ lâu hơn hạn của chính token
+        if (payload.getExpirationTimeSeconds() != null) {
+            expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(payload.getExpirationTimeSeconds()));
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+            evict(now);
+        }
+        verifiedTokens.put(hash, new VerifiedToken(payload.clone(), expiresAt));
+    }
+
+    // Xóa entry hết hạn, nếu vẫn đầy thì bỏ 10% entry sắp hết hạn nhất
+    private void evict(long now) {
+        verifiedTokens.entrySet().removeIf(e -> e.getValue().expiresAt() <= now);
+        int overflow = verifiedTokens.size() - MAX_CACHED_TOKENS * 9 / 10;
+        if (overflow > 0) {
+            verifiedTokens.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(verifiedTokens::remove);
+        }
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record VerifiedToken(GoogleIdToken.Payload payload, long expiresAt) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.evswap.evswapstation.service;
 
 import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.security.JwtClaims;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Service;
@@ -21,9 +22,11 @@ public class JwtService {
     // Thời hạn token (1 ngày)
     private static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
+    // Key và parser là immutable, thread-safe nên chỉ tạo một lần
+    private final Key signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser jwtParser = Jwts.parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
 
     // Tạo token từ User
     public String generateToken(User user) {
@@ -36,7 +39,7 @@ public class JwtService {
                 .setSubject(user.getEmail()) // Luôn đặt subject là email để định danh duy nhất
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -60,19 +63,29 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Parse + kiểm tra chữ ký và hạn token một lần, ném JwtException nếu không hợp lệ
+     */
+    public JwtClaims parseAndValidate(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.getIssuedAt(),
+                claims.getExpiration()
+        );
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     // Kiểm tra token hợp lệ
     // userDetails có thể null (ví dụ trong /api/auth/me chỉ cần check token & expiry)
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        boolean notExpired = !isTokenExpired(token);
+        final Claims claims = extractAllClaims(token);
+        final String username = claims.getSubject();
+        boolean notExpired = !claims.getExpiration().before(new Date());
 
         if (userDetails == null) {
             return notExpired;
@@ -80,8 +93,4 @@ public class JwtService {
 
         return (username.equals(userDetails.getUsername()) && notExpired);
     }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
 }
@@ -1,4 +1,99 @@
 package com.evswap.evswapstation.service;
 
+import com.evswap.evswapstation.entity.PackagePlan;
+import com.evswap.evswapstation.repository.PackagePlanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Danh mục gói (PackagePlans) rất nhỏ và hiếm khi đổi nên giữ toàn bộ trong bộ nhớ.
+ * Nạp lần đầu khi có request, nạp lại sau mỗi lần tạo / sửa / xóa gói qua service này.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
 public class PackagePlanService {
+
+    private final PackagePlanRepository packagePlanRepository;
+
+    // Snapshot bất biến, thay nguyên map khi refresh nên đọc không cần khóa
+    private volatile Map<Integer, PackagePlan> catalogue;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public List<PackagePlan> getAll() {
+        return List.copyOf(catalogue().values());
+    }
+
+    public Optional<PackagePlan> getById(Integer id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        PackagePlan plan = catalogue().get(id);
+        if (plan != null) {
+            return Optional.of(plan);
+        }
+        // Gói mới tạo từ nơi khác (instance khác / SQL tay): đọc DB rồi nạp lại danh mục
+        Optional<PackagePlan> fromDb = packagePlanRepository.findById(id);
+        fromDb.ifPresent(p -> refresh());
+        return fromDb;
+    }
+
+    public PackagePlan create(PackagePlan plan) {
+        PackagePlan saved = packagePlanRepository.save(plan);
+        refresh();
+        return saved;
+    }
+
+    public Optional<PackagePlan> update(Integer id, PackagePlan updatedPlan) {
+        Optional<PackagePlan> result = packagePlanRepository.findById(id)
+                .map(existing -> {
+                    existing.setPackageName(updatedPlan.getPackageName());
+                    existing.setDescription(updatedPlan.getDescription());
+                    existing.setPrice(updatedPlan.getPrice());
+                    existing.setDurationDays(updatedPlan.getDurationDays());
+                    return packagePlanRepository.save(existing);
+                });
+        result.ifPresent(p -> refresh());
+        return result;
+    }
+
+    public boolean delete(Integer id) {
+        if (!packagePlanRepository.existsById(id)) {
+            return false;
+        }
+        packagePlanRepository.deleteById(id);
+        refresh();
+        return true;
+    }
+
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            Map<Integer, PackagePlan> fresh = new TreeMap<>();
+            for (PackagePlan plan : packagePlanRepository.findAll()) {
+                fresh.put(plan.getPackageId(), plan);
+            }
+            catalogue = Collections.unmodifiableMap(fresh);
+            log.debug("Package catalogue loaded with {} plans", fresh.size());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Map<Integer, PackagePlan> catalogue() {
+        Map<Integer, PackagePlan> current = catalogue;
+        if (current == null) {
+            refresh();
+            current = catalogue;
+        }
+        return current;
+    }
 }
@@ -0,0 +1,133 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.entity.PackageDailyRollup;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.PackageDailyRollupRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Duy trì bảng PackageDailyRollup (giao dịch COMPLETED + doanh thu theo ngày và gói).
+ * Cập nhật khi giao dịch chuyển sang / rời trạng thái COMPLETED (PayPalService.executePayment,
+ * cập nhật thủ công, nhập hàng loạt), sau khi transaction gốc commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PackageRollupService {
+
+    private final PackageDailyRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+
+    /**
+     * packageId -> (số giao dịch, doanh thu) trong [from, to]
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Totals> getTotals(LocalDate from, LocalDate to) {
+        Map<Long, Totals> totals = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByPackageBetween(from, to)) {
+            totals.put(((Number) row[0]).longValue(), new Totals(
+                    ((Number) row[1]).longValue(),
+                    row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO));
+        }
+        return totals;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = counts(event.before()) ? event.before() : null;
+        TransactionSnapshot after = counts(event.after()) ? event.after() : null;
+        if (before == null && after == null) {
+            return;
+        }
+        if (before != null && after != null
+                && before.packageId().equals(after.packageId())
+                && before.transactionDate().toLocalDate().equals(after.transactionDate().toLocalDate())
+                && amountOf(before).compareTo(amountOf(after)) == 0) {
+            return;
+        }
+        if (before != null) {
+            rollupRepository.increment(before.transactionDate().toLocalDate(), before.packageId(),
+                    -1, amountOf(before).negate());
+        }
+        if (after != null) {
+            rollupRepository.increment(after.transactionDate().toLocalDate(), after.packageId(),
+                    1, amountOf(after));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        Map<PackageDay, Totals> grouped = new HashMap<>();
+        for (TransactionSnapshot created : event.created()) {
+            if (counts(created)) {
+                grouped.merge(new PackageDay(created.transactionDate().toLocalDate(), created.packageId()),
+                        new Totals(1, amountOf(created)), Totals::plus);
+            }
+        }
+        grouped.forEach((key, totals) ->
+                rollupRepository.increment(key.day(), key.packageId(), totals.count(), totals.revenue()));
+    }
+
+    /**
+     * Backfill một lần khi bảng rollup còn trống (lần deploy đầu tiên)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+
+        List<PackageDailyRollup> rows = new ArrayList<>();
+        for (Object[] row : transactionRepository.sumCompletedByPackageAndDay()) {
+            rows.add(new PackageDailyRollup(
+                    (LocalDate) row[0],
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    row[3] != null ? new BigDecimal(row[3].toString()) : BigDecimal.ZERO));
+        }
+        rollupRepository.saveAll(rows);
+        log.info("Backfilled PackageDailyRollup with {} rows", rows.size());
+    }
+
+    private static boolean counts(TransactionSnapshot snapshot) {
+        return snapshot != null && snapshot.isCompleted()
+                && snapshot.packageId() != null && snapshot.transactionDate() != null;
+    }
+
+    private static BigDecimal amountOf(TransactionSnapshot snapshot) {
+        return snapshot.amount() != null ? snapshot.amount() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Số giao dịch COMPLETED và doanh thu của một gói
+     */
+    public record Totals(long count, BigDecimal revenue) {
+
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, revenue.add(other.revenue));
+        }
+    }
+
+    private record PackageDay(LocalDate day, Long packageId) {
+    }
+}
@@ -6,20 +6,29 @@ import com.evswap.evswapstation.entity.TransactionEntity;
 import com.evswap.evswapstation.entity.PaymentEntity;
 import com.evswap.evswapstation.entity.User;
 import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
 import com.paypal.api.payments.*;
+import com.paypal.base.Constants;
 import com.paypal.base.rest.APIContext;
 import com.paypal.base.rest.PayPalRESTException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
+/**
+ * Lời gọi REST tới PayPal nằm ngoài transaction DB: chỉ phần ghi Transactions / Payment mở transaction,
+ * nên connection không bị giữ trong lúc chờ PayPal.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -29,11 +38,13 @@ public class PayPalService {
     private final PaymentRepository paymentRepository;
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final PinningGuard pinningGuard;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * Tạo thanh toán PayPal
      */
-    @Transactional
     public Payment createPayment(
             int userId,
             Long stationId,
@@ -79,7 +90,7 @@ public class PayPalService {
         payment.setRedirectUrls(redirectUrls);
 
         // Tạo payment trong PayPal
-        Payment createdPayment = payment.create(apiContext);
+        Payment createdPayment = payment.create(callContext());
 
         // Lưu transaction vào database với status PENDING
         TransactionEntity dbTransaction = new TransactionEntity();
@@ -98,7 +109,9 @@ public class PayPalService {
         dbTransaction.setTransactionDate(LocalDateTime.now());
         dbTransaction.setRecord("PayPal Payment Created");
         dbTransaction.setPayPalTransactionId(createdPayment.getId());
+        dbTransaction.setVin(vehicleRepository.findPrimaryVin(user.getUserID()));
 
+        // save() tự mở transaction ngắn, chỉ sau khi PayPal đã trả về
         transactionRepository.save(dbTransaction);
 
         log.info("Payment created successfully. PaymentID: {}", createdPayment.getId());
@@ -108,7 +121,6 @@ public class PayPalService {
     /**
      * Thực thi thanh toán sau khi user approve
      */
-    @Transactional
     public Payment executePayment(
             String paymentId,
             String payerId
@@ -121,17 +133,26 @@ public class PayPalService {
         paymentExecution.setPayerId(payerId);
 
         // Execute payment
-        Payment executedPayment = payment.execute(apiContext, paymentExecution);
+        Payment executedPayment = payment.execute(callContext(), paymentExecution);
 
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> recordExecution(paymentId, executedPayment.getState()));
+
+        return executedPayment;
+    }
+
+    /**
+     * Ghi kết quả execute vào DB; gọi bên trong transaction của executePayment
+     */
+    void recordExecution(String paymentId, String state) {
         // Lấy transaction từ database
         TransactionEntity dbTransaction = transactionRepository.findByPayPalTransactionId(paymentId);
 
         if (dbTransaction != null) {
-            if ("approved".equals(executedPayment.getState())) {
+            if ("approved".equals(state)) {
                 // Cập nhật transaction thành COMPLETED
                 dbTransaction.setStatus("COMPLETED");
                 dbTransaction.setRecord("Payment completed successfully");
-                transactionRepository.save(dbTransaction);
 
                 // Tạo payment record
                 PaymentEntity dbPayment = new PaymentEntity();
@@ -140,28 +161,25 @@ public class PayPalService {
                 dbPayment.setAmount(dbTransaction.getAmount());
                 dbPayment.setStatus("SUCCESS");
                 dbPayment.setPayPalTransactionId(paymentId);
-                dbPayment.setPayPalResponseCode(executedPayment.getState());
+                dbPayment.setPayPalResponseCode(state);
                 dbPayment.setPackageId(dbTransaction.getPackageId());
                 dbPayment.setPaymentDate(LocalDateTime.now());
 
                 PaymentEntity savedPayment = paymentRepository.save(dbPayment);
 
                 // Cập nhật paymentId trong transaction
+                // dbTransaction đang được quản lý: status / record / paymentId được ghi bằng một UPDATE khi commit
                 dbTransaction.setPaymentId(savedPayment.getPaymentId());
-                transactionRepository.save(dbTransaction);
 
                 log.info("Payment executed successfully. TransactionID: {}", dbTransaction.getTransactionId());
             } else {
                 // Payment failed
                 dbTransaction.setStatus("FAILED");
-                dbTransaction.setRecord("Payment failed: " + executedPayment.getState());
-                transactionRepository.save(dbTransaction);
+                dbTransaction.setRecord("Payment failed: " + state);
 
-                log.error("Payment failed. State: {}", executedPayment.getState());
+                log.error("Payment failed. State: {}", state);
             }
         }
-
-        return executedPayment;
     }
 
     /**
@@ -174,9 +192,22 @@ public class PayPalService {
         if (dbTransaction != null) {
             dbTransaction.setStatus("CANCELLED");
             dbTransaction.setRecord("Payment cancelled by user");
-            transactionRepository.save(dbTransaction);
 
             log.info("Payment cancelled. PaymentID: {}", paymentId);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Context riêng cho một lời gọi, cùng clientId / secret / mode với context dùng chung.
+     * Chỉ bước lấy / làm mới OAuth token (HTTP bên trong synchronized(ACCESS_TOKENS) của OAuthTokenCredential)
+     * chạy qua PinningGuard. Token được SDK cache tĩnh theo clientId + secret, nên credential của context mới
+     * đọc lại đúng token vừa lấy mà không gọi mạng; lời gọi REST chính chạy trên thread hiện tại, số request
+     * PayPal song song không bị giới hạn bởi pool của guard.
+     * Context riêng cũng tránh việc SDK ghi header / requestId vào APIContext dùng chung giữa các thread.
+     */
+    private APIContext callContext() throws PayPalRESTException {
+        pinningGuard.call(apiContext::fetchAccessToken);
+        return new APIContext(apiContext.getClientID(), apiContext.getClientSecret(),
+                apiContext.getConfiguration(Constants.MODE), new HashMap<>(apiContext.getConfigurationMap()));
+    }
+}
@@ -0,0 +1,97 @@
+package com.evswap.evswapstation.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Khi chạy virtual thread (spring.threads.virtual.enabled=true trên Java 21+), các thư viện còn chặn I/O
+ * bên trong synchronized sẽ ghim (pin) carrier thread: PayPal SDK làm mới OAuth token trong
+ * OAuthTokenCredential (synchronized), JavaMail gửi SMTP trong SMTPTransport.sendMessage (synchronized).
+ * call() chuyển các lời gọi đó sang một nhóm platform thread cố định; virtual thread gọi chỉ chờ Future
+ * nên không giữ carrier. Khi không bật virtual thread, call() chạy trực tiếp trên thread hiện tại.
+ * (mssql-jdbc 12.x và HikariCP đã dùng ReentrantLock nên đường JDBC không cần offload.)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PinningGuard {
+
+    private final Environment environment;
+
+    @Value("${threads.pinning-guard.pool-size:64}")
+    private int poolSize;
+
+    // null khi không chạy virtual thread
+    private ExecutorService platformThreads;
+
+    @PostConstruct
+    public void init() {
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+                log.warn("spring.threads.virtual.enabled=true is ignored on Java {}, virtual threads need Java 21+",
+                        JavaVersion.getJavaVersion());
+            }
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        platformThreads = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "pinning-guard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Virtual threads enabled, pinning-prone calls run on {} platform threads", poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (platformThreads != null) {
+            platformThreads.shutdown();
+        }
+    }
+
+    /**
+     * Chạy một lời gọi blocking có thể pin carrier thread; ngoại lệ của lời gọi được ném lại nguyên vẹn
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T call(BlockingCall<T, E> call) throws E {
+        if (platformThreads == null) {
+            return call.call();
+        }
+        Future<T> future = platformThreads.submit(call::call);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for offloaded call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            // BlockingCall chỉ khai báo ném E
+            throw (E) cause;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BlockingCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
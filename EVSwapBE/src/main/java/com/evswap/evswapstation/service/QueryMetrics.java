@@ -0,0 +1,236 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.QueryStatsDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quan sát truy vấn thay cho spring.jpa.show-sql:
+ * - Histogram độ trễ theo method repository (ghi bởi interceptor gắn vào proxy Spring Data)
+ * - Slow-query log: câu lệnh JDBC chậm hơn ngưỡng được lấy mẫu, đẩy vào hàng đợi có giới hạn
+ *   và ghi ra logger "evswap.slow-query" bởi job định kỳ, nên thread xử lý request không bao giờ chờ I/O log.
+ * Chỉ ghi câu SQL và số tham số, không bao giờ ghi giá trị tham số.
+ */
+@Service
+public class QueryMetrics {
+
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("evswap.slow-query");
+
+    // Cận trên (ms) của các bucket độ trễ; bucket cuối là phần còn lại
+    private static final long[] LATENCY_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+    private static final int RECENT_SLOW_QUERIES = 100;
+    private static final int MAX_SQL_LENGTH = 2000;
+
+    // Method repository đang chạy trên thread hiện tại (gắn vào slow-query log)
+    private static final ThreadLocal<String> CURRENT_REPOSITORY_METHOD = new ThreadLocal<>();
+
+    @Value("${monitoring.slow-query.threshold-ms:200}")
+    private long thresholdMs;
+
+    @Value("${monitoring.slow-query.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value("${monitoring.slow-query.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private BlockingQueue<QueryStatsDTO.SlowQuery> pending;
+    private final Deque<QueryStatsDTO.SlowQuery> recent = new ArrayDeque<>();
+    private final ReentrantLock recentLock = new ReentrantLock();
+    private final Map<String, LatencyStats> repositoryMethods = new ConcurrentHashMap<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder slowStatements = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        pending = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    public static String currentRepositoryMethod() {
+        return CURRENT_REPOSITORY_METHOD.get();
+    }
+
+    /**
+     * Gán method repository cho thread hiện tại, trả về giá trị trước đó để khôi phục sau khi gọi xong
+     */
+    public static String enterRepositoryMethod(String method) {
+        String previous = CURRENT_REPOSITORY_METHOD.get();
+        CURRENT_REPOSITORY_METHOD.set(method);
+        return previous;
+    }
+
+    public static void exitRepositoryMethod(String previous) {
+        if (previous == null) {
+            CURRENT_REPOSITORY_METHOD.remove();
+        } else {
+            CURRENT_REPOSITORY_METHOD.set(previous);
+        }
+    }
+
+    public void recordRepositoryCall(String method, long elapsedNanos) {
+        repositoryMethods.computeIfAbsent(method, k -> new LatencyStats()).record(elapsedNanos);
+    }
+
+    /**
+     * Gọi sau mỗi lần execute trên Statement; rẻ khi câu lệnh nhanh hơn ngưỡng (không cấp phát gì)
+     */
+    public void recordStatement(String sql, int bindCount, int batchSize, long elapsedNanos, boolean failed) {
+        statements.increment();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (elapsedMs < thresholdMs) {
+            return;
+        }
+        slowStatements.increment();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
+        QueryStatsDTO.SlowQuery entry = QueryStatsDTO.SlowQuery.builder()
+                .at(LocalDateTime.now())
+                .durationMs(elapsedMs)
+                .repositoryMethod(currentRepositoryMethod())
+                .bindCount(bindCount)
+                .batchSize(batchSize)
+                .failed(failed)
+                .sql(truncate(sql))
+                .build();
+        if (!pending.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Ghi các slow query đang chờ ra log (chạy trên thread của scheduler)
+     */
+    @Scheduled(fixedDelayString = "${monitoring.slow-query.flush-interval-ms:1000}")
+    public void flush() {
+        List<QueryStatsDTO.SlowQuery> batch = new ArrayList<>();
+        pending.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (QueryStatsDTO.SlowQuery entry : batch) {
+            SLOW_QUERY_LOG.warn("slow_query duration_ms={} repository_method={} binds={} batch={} failed={} sql=\"{}\"",
+                    entry.getDurationMs(), entry.getRepositoryMethod(), entry.getBindCount(),
+                    entry.getBatchSize(), entry.isFailed(), entry.getSql());
+        }
+        recentLock.lock();
+        try {
+            for (QueryStatsDTO.SlowQuery entry : batch) {
+                if (recent.size() >= RECENT_SLOW_QUERIES) {
+                    recent.pollFirst();
+                }
+                recent.addLast(entry);
+            }
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    public QueryStatsDTO snapshot() {
+        List<QueryStatsDTO.RepositoryMethodStats> methods = new ArrayList<>();
+        repositoryMethods.forEach((method, stats) -> methods.add(stats.snapshot(method)));
+        methods.sort(Comparator.comparingDouble(QueryStatsDTO.RepositoryMethodStats::getTotalMs).reversed());
+
+        List<QueryStatsDTO.SlowQuery> recentSlow;
+        recentLock.lock();
+        try {
+            recentSlow = new ArrayList<>(recent);
+        } finally {
+            recentLock.unlock();
+        }
+        recentSlow.sort(Comparator.comparing(QueryStatsDTO.SlowQuery::getAt).reversed());
+
+        return QueryStatsDTO.builder()
+                .thresholdMs(thresholdMs)
+                .sampleRate(sampleRate)
+                .statements(statements.sum())
+                .slowStatements(slowStatements.sum())
+                .sampledOut(sampledOut.sum())
+                .dropped(dropped.sum())
+                .repositoryMethods(methods)
+                .recentSlowQueries(recentSlow)
+                .build();
+    }
+
+    private static String truncate(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String compact = sql.strip().replaceAll("\\s+", " ");
+        return compact.length() > MAX_SQL_LENGTH ? compact.substring(0, MAX_SQL_LENGTH) + "..." : compact;
+    }
+
+    private static final class LatencyStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+
+        LatencyStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            int bucket = LATENCY_BUCKETS_MS.length;
+            for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+                if (millis < LATENCY_BUCKETS_MS[i]) {
+                    bucket = i;
+                    break;
+                }
+            }
+            buckets[bucket].increment();
+        }
+
+        QueryStatsDTO.RepositoryMethodStats snapshot(String method) {
+            long calls = count.sum();
+            double totalMs = totalNanos.sum() / 1_000_000.0;
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < LATENCY_BUCKETS_MS.length
+                        ? "<" + LATENCY_BUCKETS_MS[i] + "ms"
+                        : ">=" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms";
+                histogram.put(label, buckets[i].sum());
+            }
+            return QueryStatsDTO.RepositoryMethodStats.builder()
+                    .method(method)
+                    .calls(calls)
+                    .totalMs(totalMs)
+                    .avgMs(calls > 0 ? totalMs / calls : 0.0)
+                    .maxMs(maxNanos.get() / 1_000_000.0)
+                    .histogram(histogram)
+                    .build();
+        }
+    }
+}
@@ -2,15 +2,20 @@ package com.evswap.evswapstation.service;
 
 import com.evswap.evswapstation.dto.ReportDTO;
 import com.evswap.evswapstation.entity.Report;
-import com.evswap.evswapstation.entity.User;
 import com.evswap.evswapstation.repository.ReportRepository;
-import com.evswap.evswapstation.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class ReportService {
@@ -18,15 +23,23 @@ public class ReportService {
     @Autowired
     private ReportRepository reportRepository;
 
-    @Autowired
-    private UserRepository userRepository;
-
-    // Lấy toàn bộ báo cáo với tên user
-    public List<ReportDTO> getAllReportsWithUserName() {
-        List<Report> reports = reportRepository.findAll();
-        return reports.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // Các cột cho phép sort, tránh client truyền tên field tùy ý vào JPQL
+    private static final Set<String> SORTABLE_FIELDS = Set.of("reportId", "reportDate", "status", "userId");
+
+    // Báo cáo kèm tên user (1 query JOIN), lọc theo status / khoảng ngày [from, to], không phân trang
+    public List<ReportDTO> getReportsWithUserName(String status, LocalDate from, LocalDate to,
+                                                  String sortBy, Sort.Direction direction) {
+        return reportRepository.findWithUserName(status, startOf(from), startOf(to != null ? to.plusDays(1) : null),
+                buildSort(sortBy, direction));
+    }
+
+    // Lọc theo status / khoảng ngày [from, to], có phân trang
+    public Page<ReportDTO> getReportsWithUserName(String status, LocalDate from, LocalDate to,
+                                                  int page, int size, String sortBy, Sort.Direction direction) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 200),
+                buildSort(sortBy, direction));
+        return reportRepository.findWithUserName(status, startOf(from), startOf(to != null ? to.plusDays(1) : null),
+                pageable);
     }
 
     // Lấy toàn bộ báo cáo (không có tên user - giữ lại cho tương thích)
@@ -36,8 +49,7 @@ public class ReportService {
 
     // Lấy báo cáo theo ID với tên user
     public ReportDTO getReportByIdWithUserName(Long reportId) {
-        Optional<Report> reportOptional = reportRepository.findById(reportId);
-        return reportOptional.map(this::convertToDTO).orElse(null);
+        return reportRepository.findByIdWithUserName(reportId).orElse(null);
     }
 
     // Lấy báo cáo theo ID (không có tên user - giữ lại cho tương thích)
@@ -48,10 +60,7 @@ public class ReportService {
 
     // Lấy reports theo userId với tên user
     public List<ReportDTO> getReportsByUserId(Integer userId) {
-        List<Report> reports = reportRepository.findByUserId(userId);
-        return reports.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return reportRepository.findByUserIdWithUserName(userId);
     }
 
     // Thêm báo cáo mới
@@ -79,20 +88,12 @@ public class ReportService {
         return false;
     }
 
-    // Convert Report entity sang ReportDTO với tên user
-    private ReportDTO convertToDTO(Report report) {
-        String userName = "Unknown";
-        String fullName = "Unknown User";
-
-        if (report.getUserId() != null) {
-            Optional<User> userOptional = userRepository.findById(report.getUserId());
-            if (userOptional.isPresent()) {
-                User user = userOptional.get();
-                userName = user.getUserName() != null ? user.getUserName() : "Unknown";
-                fullName = user.getFullName() != null ? user.getFullName() : "Unknown User";
-            }
-        }
+    private Sort buildSort(String sortBy, Sort.Direction direction) {
+        String field = sortBy != null && SORTABLE_FIELDS.contains(sortBy) ? sortBy : "reportDate";
+        return Sort.by(direction != null ? direction : Sort.Direction.DESC, field);
+    }
 
-        return ReportDTO.fromEntity(report, userName, fullName);
+    private Date startOf(LocalDate day) {
+        return day != null ? Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationHealthDTO;
+import com.evswap.evswapstation.event.InventoryChangedEvent;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đẩy số pin sẵn sàng của trạm qua Server-Sent Events thay cho việc client poll health / inventory.
+ * Thay đổi chỉ đánh dấu trạm "dirty"; mỗi nhịp flush tính health một lần cho mỗi trạm dirty
+ * rồi gửi cùng một payload cho mọi subscriber, bỏ qua nếu không khác lần gửi trước.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationAvailabilityStream {
+
+    public static final String EVENT_NAME = "station-availability";
+    private static final long EMITTER_TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+
+    private final StationService stationService;
+    private final ObjectMapper objectMapper;
+
+    // stationId -> subscriber của riêng trạm đó
+    private final Map<Integer, Set<SseEmitter>> stationSubscribers = new ConcurrentHashMap<>();
+    // subscriber nhận thay đổi của mọi trạm (wallboard)
+    private final Set<SseEmitter> overviewSubscribers = ConcurrentHashMap.newKeySet();
+
+    private final Set<Integer> dirtyStations = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, StationHealthDTO> lastPublished = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(Integer stationId) {
+        StationHealthDTO snapshot = stationService.getStationHealth(stationId);
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Set<SseEmitter> subscribers = stationSubscribers.computeIfAbsent(stationId, k -> ConcurrentHashMap.newKeySet());
+        subscribers.add(emitter);
+        Runnable cleanup = () -> {
+            subscribers.remove(emitter);
+            stationSubscribers.computeIfPresent(stationId, (k, v) -> v.isEmpty() ? null : v);
+        };
+        register(emitter, cleanup);
+        sendInitial(emitter, List.of(snapshot), cleanup);
+        return emitter;
+    }
+
+    public SseEmitter subscribeAll() {
+        List<StationHealthDTO> snapshot = stationService.getStationHealthOverview();
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        overviewSubscribers.add(emitter);
+        Runnable cleanup = () -> overviewSubscribers.remove(emitter);
+        register(emitter, cleanup);
+        sendInitial(emitter, snapshot, cleanup);
+        return emitter;
+    }
+
+    public void markDirty(Integer stationId) {
+        if (stationId != null) {
+            dirtyStations.add(stationId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        markDirty(event.stationId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(StationAvailabilityChangedEvent event) {
+        markDirty(event.stationId());
+    }
+
+    /**
+     * Gom mọi thay đổi trong một nhịp: N thay đổi của cùng trạm -> 1 lần tính, M subscriber -> 1 lần serialize
+     */
+    @Scheduled(fixedDelayString = "${station.stream.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirtyStations.isEmpty()) {
+            return;
+        }
+        List<Integer> stations = new ArrayList<>(dirtyStations);
+        dirtyStations.removeAll(stations);
+
+        for (Integer stationId : stations) {
+            Set<SseEmitter> subscribers = stationSubscribers.getOrDefault(stationId, Set.of());
+            if (subscribers.isEmpty() && overviewSubscribers.isEmpty()) {
+                // Không ai nghe: lần subscribe sau sẽ lấy snapshot mới
+                lastPublished.remove(stationId);
+                continue;
+            }
+            StationHealthDTO health;
+            try {
+                health = stationService.getStationHealth(stationId);
+            } catch (RuntimeException e) {
+                log.debug("Skip availability push for station {}: {}", stationId, e.getMessage());
+                lastPublished.remove(stationId);
+                continue;
+            }
+            if (Objects.equals(lastPublished.put(stationId, health), health)) {
+                continue;
+            }
+            String payload = toJson(List.of(health));
+            if (payload == null) {
+                continue;
+            }
+            broadcast(subscribers, payload);
+            broadcast(overviewSubscribers, payload);
+        }
+    }
+
+    // Comment định kỳ để proxy không cắt kết nối nhàn rỗi và để dọn các client đã rời đi
+    @Scheduled(fixedDelayString = "${station.stream.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        stationSubscribers.values().forEach(subscribers -> subscribers.forEach(emitter -> send(emitter,
+                SseEmitter.event().comment("ping"), () -> subscribers.remove(emitter))));
+        overviewSubscribers.forEach(emitter -> send(emitter,
+                SseEmitter.event().comment("ping"), () -> overviewSubscribers.remove(emitter)));
+    }
+
+    public int subscriberCount() {
+        return overviewSubscribers.size() + stationSubscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void register(SseEmitter emitter, Runnable cleanup) {
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+    }
+
+    private void sendInitial(SseEmitter emitter, List<StationHealthDTO> snapshot, Runnable cleanup) {
+        String payload = toJson(snapshot);
+        if (payload != null) {
+            send(emitter, SseEmitter.event().name(EVENT_NAME).data(payload, MediaType.APPLICATION_JSON), cleanup);
+        }
+    }
+
+    private void broadcast(Set<SseEmitter> subscribers, String payload) {
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, SseEmitter.event().name(EVENT_NAME).data(payload, MediaType.APPLICATION_JSON),
+                    () -> subscribers.remove(emitter));
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event, Runnable onFailure) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client đã đóng kết nối
+            onFailure.run();
+            emitter.completeWithError(e);
+        }
+    }
+
+    private String toJson(List<StationHealthDTO> stations) {
+        try {
+            return objectMapper.writeValueAsString(stations);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize station availability: {}", e.getMessage());
+            return null;
+        }
+    }
+}
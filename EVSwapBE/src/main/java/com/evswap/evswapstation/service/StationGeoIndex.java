@@ -0,0 +1,218 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.NearbyStationDTO;
+import com.evswap.evswapstation.entity.Station;
+import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.repository.StationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục không gian in-memory cho trạm: lưới ô vuông lat/lng (~11km mỗi ô).
+ * Truy vấn bán kính chỉ duyệt các ô nằm trong bounding box thay vì tính haversine cho mọi trạm.
+ * Đồng bộ bởi StationService khi create / update / delete.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationGeoIndex {
+
+    private static final double CELL_DEG = 0.1;
+    private static final int LNG_CELLS = (int) Math.round(360 / CELL_DEG);
+    private static final double KM_PER_DEG_LAT = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final double MAX_SEARCH_KM = 2 * Math.PI * EARTH_RADIUS_KM;
+
+    private final StationRepository stationRepository;
+
+    private final Map<Integer, StationPoint> stations = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> cells = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        stations.clear();
+        cells.clear();
+        try {
+            stationRepository.findAll().forEach(this::upsert);
+            log.info("Station geo index built with {} stations", stations.size());
+        } catch (Exception e) {
+            log.warn("Could not build station geo index, starting empty: {}", e.getMessage());
+        }
+    }
+
+    public void upsert(Station station) {
+        remove(station.getStationID());
+        if (station.getStationID() == null || station.getLatitude() == null || station.getLongitude() == null) {
+            return;
+        }
+        StationPoint point = new StationPoint(
+                station.getStationID(),
+                station.getStationName(),
+                station.getAddress(),
+                station.getLatitude(),
+                station.getLongitude(),
+                Optional.ofNullable(station.getStationStatus()).orElse(StationStatus.Active));
+        stations.put(point.id(), point);
+        cells.computeIfAbsent(cellKey(latIndex(point.lat()), lngIndex(point.lng())), k -> ConcurrentHashMap.newKeySet())
+                .add(point.id());
+    }
+
+    public void remove(Integer stationId) {
+        if (stationId == null) {
+            return;
+        }
+        StationPoint old = stations.remove(stationId);
+        if (old != null) {
+            Set<Integer> cell = cells.get(cellKey(latIndex(old.lat()), lngIndex(old.lng())));
+            if (cell != null) {
+                cell.remove(stationId);
+            }
+        }
+    }
+
+    /**
+     * Các trạm trong bán kính radiusKm, sắp xếp theo khoảng cách tăng dần
+     */
+    public List<NearbyStationDTO> withinRadius(double lat, double lng, double radiusKm) {
+        List<NearbyStationDTO> result = new ArrayList<>();
+        collectWithinRadius(lat, lng, radiusKm, result);
+        result.sort(Comparator.comparingDouble(NearbyStationDTO::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * k trạm gần nhất: nới rộng bán kính gấp đôi đến khi đủ k ứng viên, rồi giữ top-k bằng heap
+     */
+    public List<NearbyStationDTO> nearest(double lat, double lng, int k) {
+        if (k <= 0 || stations.isEmpty()) {
+            return List.of();
+        }
+        int target = Math.min(k, stations.size());
+
+        List<NearbyStationDTO> candidates = new ArrayList<>();
+        for (double radius = 5; ; radius *= 2) {
+            candidates.clear();
+            collectWithinRadius(lat, lng, radius, candidates);
+            if (candidates.size() >= target || radius >= MAX_SEARCH_KM) {
+                break;
+            }
+        }
+
+        PriorityQueue<NearbyStationDTO> heap = new PriorityQueue<>(
+                Comparator.comparingDouble(NearbyStationDTO::getDistanceKm).reversed());
+        for (NearbyStationDTO candidate : candidates) {
+            heap.offer(candidate);
+            if (heap.size() > target) {
+                heap.poll();
+            }
+        }
+        List<NearbyStationDTO> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(NearbyStationDTO::getDistanceKm));
+        return result;
+    }
+
+    private void collectWithinRadius(double lat, double lng, double radiusKm, List<NearbyStationDTO> out) {
+        double dLat = radiusKm / KM_PER_DEG_LAT;
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + dLat)));
+        double dLng = cosLat > 1e-6 ? radiusKm / (KM_PER_DEG_LAT * cosLat) : 360;
+
+        double minLat = lat - dLat, maxLat = lat + dLat;
+        // Chỉ số ô kinh độ chưa gói: khoảng [fromLng, toLng] có thể vượt qua kinh tuyến 180
+        int fromLng = rawLngIndex(lng - dLng), toLng = rawLngIndex(lng + dLng);
+
+        long cellCount = (long) (latIndex(maxLat) - latIndex(minLat) + 1) * (toLng - fromLng + 1);
+        if (dLng >= 180 || cellCount > stations.size()) {
+            // Bán kính quá lớn so với số trạm: duyệt thẳng sẽ rẻ hơn duyệt ô
+            for (StationPoint point : stations.values()) {
+                addIfWithin(point, lat, lng, radiusKm, out);
+            }
+            return;
+        }
+
+        for (int latIdx = latIndex(minLat); latIdx <= latIndex(maxLat); latIdx++) {
+            for (int rawLngIdx = fromLng; rawLngIdx <= toLng; rawLngIdx++) {
+                Set<Integer> cell = cells.get(cellKey(latIdx, wrapLngIndex(rawLngIdx)));
+                if (cell == null) {
+                    continue;
+                }
+                for (Integer id : cell) {
+                    StationPoint point = stations.get(id);
+                    if (point != null
+                            && point.lat() >= minLat && point.lat() <= maxLat
+                            && Math.abs(lngDelta(point.lng(), lng)) <= dLng) {
+                        addIfWithin(point, lat, lng, radiusKm, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addIfWithin(StationPoint point, double lat, double lng, double radiusKm, List<NearbyStationDTO> out) {
+        double dist = distanceKm(lat, lng, point.lat(), point.lng());
+        if (dist <= radiusKm) {
+            out.add(NearbyStationDTO.builder()
+                    .stationID(point.id())
+                    .stationName(point.name())
+                    .address(point.address())
+                    .latitude(point.lat())
+                    .longitude(point.lng())
+                    .distanceKm(Math.round(dist * 100.0) / 100.0)
+                    .status(point.status())
+                    .build());
+        }
+    }
+
+    static int latIndex(double lat) {
+        return (int) Math.floor(lat / CELL_DEG);
+    }
+
+    // Kinh độ được gói về [-180, 180) nên 179.95 và -179.95 nằm ở hai ô kề nhau
+    static int lngIndex(double lng) {
+        return wrapLngIndex(rawLngIndex(lng));
+    }
+
+    private static int rawLngIndex(double lng) {
+        return (int) Math.floor(lng / CELL_DEG);
+    }
+
+    private static int wrapLngIndex(int rawLngIdx) {
+        return Math.floorMod(rawLngIdx + LNG_CELLS / 2, LNG_CELLS) - LNG_CELLS / 2;
+    }
+
+    // Chênh lệch kinh độ trong [-180, 180]
+    private static double lngDelta(double lng1, double lng2) {
+        double delta = (lng1 - lng2) % 360;
+        if (delta > 180) {
+            return delta - 360;
+        }
+        return delta < -180 ? delta + 360 : delta;
+    }
+
+    static long cellKey(int latIdx, int lngIdx) {
+        return ((long) latIdx << 32) | (lngIdx & 0xffffffffL);
+    }
+
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    private record StationPoint(Integer id, String name, String address, double lat, double lng, StationStatus status) {
+    }
+}
@@ -0,0 +1,244 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationPerformanceDTO;
+import com.evswap.evswapstation.entity.Station;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.StationRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bảng xếp hạng trạm in-memory: số swap + doanh thu của giao dịch COMPLETED theo từng trạm,
+ * chia bucket ngày / tuần / tháng từ đầu tháng trước đến nay. Seed bằng 1 câu SQL gom lúc khởi động, sau đó
+ * cập nhật theo TransactionChangedEvent nên top-K chỉ là duyệt các trạm trong một bucket bằng heap.
+ * Utilization = số swap / (slots của trạm × swap mỗi slot mỗi ngày × số ngày của kỳ).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationLeaderboard {
+
+    public enum Period { DAY, WEEK, MONTH }
+
+    private static final long STATION_INFO_TTL_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private final TransactionRepository transactionRepository;
+    private final StationRepository stationRepository;
+
+    @Value("${station.leaderboard.swaps-per-slot-per-day:10}")
+    private int swapsPerSlotPerDay;
+
+    // Thay được trong test để chuyển sang kỳ khác
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final Map<BucketKey, Map<Long, Counter>> buckets = new ConcurrentHashMap<>();
+    private volatile StationInfoSnapshot stationInfo = new StationInfoSnapshot(Map.of(), 0);
+
+    @PostConstruct
+    public void seed() {
+        // Tuần hiện tại luôn bắt đầu sau đầu tháng trước nên một mốc là đủ cho mọi bucket
+        LocalDate since = retainedSince(LocalDate.now(clock));
+        try {
+            for (Object[] row : transactionRepository.sumCompletedByStationAndDay(since.atStartOfDay())) {
+                Long stationId = ((Number) row[0]).longValue();
+                LocalDate day = (LocalDate) row[1];
+                long count = ((Number) row[2]).longValue();
+                long cents = toCents(row[3] != null ? new BigDecimal(row[3].toString()) : null);
+                add(stationId, day, count, cents);
+            }
+            log.info("Station leaderboard seeded from {} ({} buckets)", since, buckets.size());
+        } catch (Exception e) {
+            log.warn("Could not seed station leaderboard, starting empty: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = event.before();
+        TransactionSnapshot after = event.after();
+        if (counts(before)) {
+            add(before.stationId(), before.transactionDate().toLocalDate(), -1, -toCents(before.amount()));
+        }
+        if (counts(after)) {
+            add(after.stationId(), after.transactionDate().toLocalDate(), 1, toCents(after.amount()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        for (TransactionSnapshot created : event.created()) {
+            if (counts(created)) {
+                add(created.stationId(), created.transactionDate().toLocalDate(), 1, toCents(created.amount()));
+            }
+        }
+    }
+
+    /**
+     * Top k trạm theo số swap trong kỳ hiện tại (hòa thì doanh thu cao hơn đứng trước)
+     */
+    public List<StationPerformanceDTO> top(Period period, int k) {
+        return top(period, LocalDate.now(clock), k);
+    }
+
+    /**
+     * Top k trạm trong kỳ chứa ngày day. Chỉ giữ các kỳ bắt đầu từ đầu tháng trước,
+     * kỳ cũ hơn (hoặc tuần bắt đầu trước mốc đó) ném IllegalArgumentException.
+     */
+    public List<StationPerformanceDTO> top(Period period, LocalDate day, int k) {
+        LocalDate start = periodStart(period, day);
+        LocalDate since = retainedSince(LocalDate.now(clock));
+        if (start.isBefore(since)) {
+            throw new IllegalArgumentException("Leaderboard only keeps periods starting from " + since);
+        }
+        Map<Long, Counter> bucket = buckets.get(new BucketKey(period, start));
+        if (bucket == null || k <= 0) {
+            return List.of();
+        }
+
+        Comparator<Ranked> ranking = Comparator.comparingLong(Ranked::swaps).thenComparingLong(Ranked::cents);
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, Counter> entry : bucket.entrySet()) {
+            long swaps = entry.getValue().count.sum();
+            if (swaps <= 0) {
+                continue;
+            }
+            heap.offer(new Ranked(entry.getKey(), swaps, entry.getValue().cents.sum()));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(ranking.reversed());
+
+        Map<Long, StationInfo> stations = stations();
+        long days = ChronoUnit.DAYS.between(start, periodEnd(period, start));
+        List<StationPerformanceDTO> result = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            StationInfo info = stations.get(r.stationId());
+            long capacity = info != null && info.slots() != null
+                    ? (long) info.slots() * swapsPerSlotPerDay * days : 0L;
+            int utilization = capacity > 0 ? (int) (r.swaps() * 100 / capacity) : 0;
+            result.add(new StationPerformanceDTO(
+                    r.stationId(),
+                    info != null ? info.name() : null,
+                    r.swaps(),
+                    BigDecimal.valueOf(r.cents(), 2),
+                    utilization,
+                    capacity));
+        }
+        return result;
+    }
+
+    public static LocalDate periodStart(Period period, LocalDate day) {
+        return switch (period) {
+            case DAY -> day;
+            case WEEK -> TransactionMetricsEngine.startOfWeek(day);
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate periodEnd(Period period, LocalDate start) {
+        return switch (period) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    // Đầu tháng trước: mốc seed, cũng là kỳ cũ nhất còn trả lời được
+    private static LocalDate retainedSince(LocalDate today) {
+        return periodStart(Period.MONTH, today).minusMonths(1);
+    }
+
+    private static boolean counts(TransactionSnapshot snapshot) {
+        return snapshot != null && snapshot.isCompleted()
+                && snapshot.stationId() != null && snapshot.transactionDate() != null;
+    }
+
+    private void add(Long stationId, LocalDate day, long count, long cents) {
+        if (day.isBefore(retainedSince(LocalDate.now(clock)))) {
+            // Giao dịch cũ đổi trạng thái: không mở lại bucket đã dọn với số liệu thiếu
+            return;
+        }
+        for (Period period : Period.values()) {
+            BucketKey key = new BucketKey(period, periodStart(period, day));
+            if (period == Period.MONTH && !buckets.containsKey(key)) {
+                // Không dọn bên trong computeIfAbsent: ConcurrentHashMap cấm sửa mapping khác trong hàm đó
+                evictOlderThan(key.start().minusMonths(1));
+            }
+            buckets.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(stationId, id -> new Counter()).add(count, cents);
+        }
+    }
+
+    // Chỉ chạy khi mở bucket tháng mới: giữ tháng trước để giao dịch cập nhật muộn vẫn có chỗ ghi
+    private void evictOlderThan(LocalDate cutoff) {
+        buckets.keySet().removeIf(key -> key.start().isBefore(cutoff));
+    }
+
+    // Tên + slots của trạm, nạp lại tối đa mỗi phút một lần
+    private Map<Long, StationInfo> stations() {
+        StationInfoSnapshot snapshot = stationInfo;
+        if (snapshot.loadedAt() + STATION_INFO_TTL_MILLIS > clock.millis()) {
+            return snapshot.stations();
+        }
+        Map<Long, StationInfo> loaded = new HashMap<>();
+        for (Station station : stationRepository.findAll()) {
+            loaded.put(station.getStationID().longValue(), new StationInfo(station.getStationName(), station.getSlots()));
+        }
+        stationInfo = new StationInfoSnapshot(Map.copyOf(loaded), clock.millis());
+        return loaded;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private record BucketKey(Period period, LocalDate start) {
+    }
+
+    private record Ranked(Long stationId, long swaps, long cents) {
+    }
+
+    private record StationInfo(String name, Integer slots) {
+    }
+
+    private record StationInfoSnapshot(Map<Long, StationInfo> stations, long loadedAt) {
+    }
+
+    private static final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cents = new LongAdder();
+
+        void add(long countDelta, long centsDelta) {
+            count.add(countDelta);
+            cents.add(centsDelta);
+        }
+    }
+}
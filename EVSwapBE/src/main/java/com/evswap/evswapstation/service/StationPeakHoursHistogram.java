@@ -0,0 +1,263 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationPeakHoursDTO;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram giao dịch theo giờ trong tuần (7×24 ô) cho từng trạm, dùng để xếp ca nhân viên.
+ * Đếm theo thời điểm swap thực tế (TimeDate), dòng cũ thiếu TimeDate thì dùng TransactionDate.
+ * Mỗi (trạm, tuần) là một mảng 168 số đếm; vì ô = thứ * 24 + giờ nên lọc theo khoảng ngày
+ * chỉ là cộng các lát 24 ô tương ứng. Giữ retention-weeks tuần gần nhất trong bộ nhớ,
+ * phần chênh lệch được MERGE định kỳ vào bảng StationPeakHours; khoảng cũ hơn đọc từ bảng.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationPeakHoursHistogram {
+
+    public static final int HOURS_PER_WEEK = 7 * 24;
+
+    private static final String LOAD_SQL =
+            "SELECT StationID, WeekStart, HourOfWeek, SwapCount FROM StationPeakHours WHERE WeekStart >= ?";
+
+    private static final String MERGE_SQL =
+            "MERGE StationPeakHours WITH (HOLDLOCK) AS target " +
+            "USING (SELECT ? AS StationID, ? AS WeekStart, ? AS HourOfWeek) AS src " +
+            "ON target.StationID = src.StationID AND target.WeekStart = src.WeekStart " +
+            "AND target.HourOfWeek = src.HourOfWeek " +
+            "WHEN MATCHED THEN UPDATE SET SwapCount = target.SwapCount + ? " +
+            "WHEN NOT MATCHED THEN INSERT (StationID, WeekStart, HourOfWeek, SwapCount) " +
+            "VALUES (src.StationID, src.WeekStart, src.HourOfWeek, ?);";
+
+    // WeekStart BETWEEN dùng được PK để seek theo tuần; ngày của ô = WeekStart + HourOfWeek / 24
+    // chỉ lọc lại các ngày lẻ đầu / cuối khoảng trong các tuần đã chọn
+    private static final String HISTORY_SQL =
+            "SELECT HourOfWeek, SUM(SwapCount) FROM StationPeakHours " +
+            "WHERE WeekStart BETWEEN ? AND ? " +
+            "AND DATEADD(DAY, HourOfWeek / 24, WeekStart) BETWEEN ? AND ? ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${station.peak-hours.retention-weeks:12}")
+    private int retentionWeeks;
+
+    // weekStart -> stationId -> 168 ô
+    private final Map<LocalDate, Map<Long, AtomicLongArray>> weeks = new ConcurrentHashMap<>();
+    // Chênh lệch chưa ghi xuống DB; chỉ sửa qua compute()/remove() nên không mất số khi flush song song
+    private final Map<WeekKey, long[]> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        LocalDate cutoff = retentionStart(LocalDate.now());
+        try {
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                AtomicLongArray cells = cells(rs.getLong(1), rs.getDate(2).toLocalDate());
+                cells.addAndGet(rs.getInt(3), rs.getLong(4));
+            }, Date.valueOf(cutoff));
+            log.info("Station peak-hours histogram loaded from {} ({} weeks)", cutoff, weeks.size());
+        } catch (Exception e) {
+            log.warn("Could not load station peak-hours histogram, starting empty: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = event.before();
+        TransactionSnapshot after = event.after();
+        if (counts(before) && counts(after)
+                && before.stationId().equals(after.stationId())
+                && swapTime(before).truncatedTo(ChronoUnit.HOURS)
+                .equals(swapTime(after).truncatedTo(ChronoUnit.HOURS))) {
+            return;
+        }
+        if (counts(before)) {
+            add(before.stationId(), swapTime(before), -1);
+        }
+        if (counts(after)) {
+            add(after.stationId(), swapTime(after), 1);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        for (TransactionSnapshot created : event.created()) {
+            if (counts(created)) {
+                add(created.stationId(), swapTime(created), 1);
+            }
+        }
+    }
+
+    /**
+     * Histogram của một trạm (hoặc mọi trạm nếu stationId == null) trong [from, to].
+     * to sau hôm nay được chặn về hôm nay: vòng lặp theo ngày không chạy tới các ngày chưa có dữ liệu.
+     */
+    public StationPeakHoursDTO histogram(Integer stationId, LocalDate from, LocalDate to) {
+        long[] byHourOfWeek = new long[HOURS_PER_WEEK];
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = retentionStart(today);
+        if (to.isAfter(today)) {
+            to = today;
+        }
+
+        if (from.isBefore(cutoff)) {
+            LocalDate historyTo = to.isBefore(cutoff) ? to : cutoff.minusDays(1);
+            List<Object> args = new ArrayList<>(List.of(
+                    Date.valueOf(TransactionMetricsEngine.startOfWeek(from)), Date.valueOf(historyTo),
+                    Date.valueOf(from), Date.valueOf(historyTo)));
+            String sql = HISTORY_SQL;
+            if (stationId != null) {
+                sql += "AND StationID = ? ";
+                args.add(stationId);
+            }
+            jdbcTemplate.query(sql + "GROUP BY HourOfWeek",
+                    rs -> {
+                        byHourOfWeek[rs.getInt(1)] += rs.getLong(2);
+                    }, args.toArray());
+        }
+
+        for (LocalDate day = from.isBefore(cutoff) ? cutoff : from; !day.isAfter(to); day = day.plusDays(1)) {
+            Map<Long, AtomicLongArray> week = weeks.get(TransactionMetricsEngine.startOfWeek(day));
+            if (week == null) {
+                continue;
+            }
+            int offset = day.getDayOfWeek().ordinal() * 24;
+            if (stationId != null) {
+                addSlice(week.get(stationId.longValue()), offset, byHourOfWeek);
+            } else {
+                week.values().forEach(cells -> addSlice(cells, offset, byHourOfWeek));
+            }
+        }
+
+        long[] byHourOfDay = new long[24];
+        long total = 0;
+        int peak = -1;
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            byHourOfDay[i % 24] += byHourOfWeek[i];
+            total += byHourOfWeek[i];
+            if (byHourOfWeek[i] > 0 && (peak < 0 || byHourOfWeek[i] > byHourOfWeek[peak])) {
+                peak = i;
+            }
+        }
+
+        return StationPeakHoursDTO.builder()
+                .stationId(stationId)
+                .from(from)
+                .to(to)
+                .total(total)
+                .byHourOfWeek(byHourOfWeek)
+                .byHourOfDay(byHourOfDay)
+                .peakHourOfWeek(peak)
+                .build();
+    }
+
+    /**
+     * Ghi phần chênh lệch xuống StationPeakHours bằng một batch MERGE
+     */
+    @Scheduled(fixedDelayString = "${station.peak-hours.flush-interval-ms:60000}",
+            initialDelayString = "${station.peak-hours.flush-interval-ms:60000}")
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<WeekKey, long[]> drained = new HashMap<>();
+        for (WeekKey key : List.copyOf(pending.keySet())) {
+            long[] deltas = pending.remove(key);
+            if (deltas != null) {
+                drained.put(key, deltas);
+            }
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        drained.forEach((key, deltas) -> {
+            for (int i = 0; i < HOURS_PER_WEEK; i++) {
+                if (deltas[i] != 0) {
+                    batchArgs.add(new Object[]{key.stationId(), Date.valueOf(key.weekStart()), i, deltas[i], deltas[i]});
+                }
+            }
+        });
+        try {
+            jdbcTemplate.batchUpdate(MERGE_SQL, batchArgs);
+            log.debug("Flushed {} peak-hour cells", batchArgs.size());
+        } catch (Exception e) {
+            // Trả lại chênh lệch để lần flush sau ghi tiếp
+            drained.forEach((key, deltas) -> pending.compute(key, (k, current) -> {
+                long[] merged = current != null ? current : new long[HOURS_PER_WEEK];
+                for (int i = 0; i < HOURS_PER_WEEK; i++) {
+                    merged[i] += deltas[i];
+                }
+                return merged;
+            }));
+            log.warn("Could not flush station peak-hours histogram: {}", e.getMessage());
+        }
+    }
+
+    private static boolean counts(TransactionSnapshot snapshot) {
+        return snapshot != null && snapshot.stationId() != null && swapTime(snapshot) != null;
+    }
+
+    private static LocalDateTime swapTime(TransactionSnapshot snapshot) {
+        return snapshot.timeDate() != null ? snapshot.timeDate() : snapshot.transactionDate();
+    }
+
+    private void add(Long stationId, LocalDateTime time, long delta) {
+        LocalDate weekStart = TransactionMetricsEngine.startOfWeek(time.toLocalDate());
+        int cell = time.getDayOfWeek().ordinal() * 24 + time.getHour();
+        if (!weekStart.isBefore(retentionStart(LocalDate.now()))) {
+            cells(stationId, weekStart).addAndGet(cell, delta);
+        }
+        pending.compute(new WeekKey(stationId, weekStart), (k, deltas) -> {
+            long[] updated = deltas != null ? deltas : new long[HOURS_PER_WEEK];
+            updated[cell] += delta;
+            return updated;
+        });
+    }
+
+    private AtomicLongArray cells(Long stationId, LocalDate weekStart) {
+        if (!weeks.containsKey(weekStart)) {
+            // Chỉ chạy khi mở tuần mới nên chi phí không đáng kể
+            LocalDate cutoff = retentionStart(LocalDate.now());
+            weeks.keySet().removeIf(existing -> existing.isBefore(cutoff));
+        }
+        return weeks.computeIfAbsent(weekStart, w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stationId, id -> new AtomicLongArray(HOURS_PER_WEEK));
+    }
+
+    private LocalDate retentionStart(LocalDate today) {
+        return TransactionMetricsEngine.startOfWeek(today).minusWeeks(retentionWeeks - 1L);
+    }
+
+    private static void addSlice(AtomicLongArray cells, int offset, long[] into) {
+        if (cells == null) {
+            return;
+        }
+        for (int h = 0; h < 24; h++) {
+            into[offset + h] += cells.get(offset + h);
+        }
+    }
+
+    private record WeekKey(Long stationId, LocalDate weekStart) {
+    }
+}
@@ -1,8 +1,10 @@
 package com.evswap.evswapstation.service;
 
 import com.evswap.evswapstation.dto.InventoryStatusCountDTO;
+import com.evswap.evswapstation.dto.NearbyStationDTO;
 import com.evswap.evswapstation.dto.StationInventoryItemDTO;
 import com.evswap.evswapstation.dto.StationInventoryPageDTO;
+import com.evswap.evswapstation.dto.StationStatusDerivationMetricsDTO;
 import com.evswap.evswapstation.entity.Inventory;
 import com.evswap.evswapstation.entity.Station;
 import com.evswap.evswapstation.repository.InventoryRepository;
@@ -10,26 +12,36 @@ import com.evswap.evswapstation.repository.StationRepository;
 import jakarta.persistence.EntityNotFoundException;
 import com.evswap.evswapstation.dto.StationHealthDTO;
 import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.event.InventoryChangedEvent;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class StationService {
 
     private static final Set<String> READY_STATUSES = Set.of("AVAILABLE", "READY", "IDLE");
@@ -37,6 +49,24 @@ public class StationService {
 
     private final StationRepository stationRepository;
     private final InventoryRepository inventoryRepository;
+    private final StationGeoIndex stationGeoIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Wallboard poll vài giây một lần: giữ snapshot ngắn hạn, xóa ngay khi Inventory / Station đổi
+    private static final long HEALTH_OVERVIEW_TTL_MILLIS = 5_000;
+    private volatile HealthOverview healthOverview;
+    private final AtomicLong healthGeneration = new AtomicLong();
+    // Thay được trong test để kiểm tra hạn snapshot
+    private Clock clock = Clock.systemDefaultZone();
+
+    // Chỉ ghi khi trạng thái trong DB vẫn là giá trị đã đọc: không đè thay đổi thủ công xảy ra giữa chừng
+    private static final String UPDATE_DERIVED_STATUS_SQL =
+            "UPDATE Station SET StationStatus = ? WHERE stationID = ? AND COALESCE(StationStatus, '') = ?";
+    private volatile StationStatusDerivationMetricsDTO lastDerivation = new StationStatusDerivationMetricsDTO();
+    private final AtomicLong derivationRuns = new AtomicLong();
+    private final AtomicLong derivationChanged = new AtomicLong();
+    private final AtomicLong derivationFailures = new AtomicLong();
 
     // ====== CRUD hiện có ======
     public List<Station> getAll() {
@@ -49,7 +79,10 @@ public class StationService {
 
     public Station create(Station station) {
         station.setStationStatus(Optional.ofNullable(station.getStationStatus()).orElse(StationStatus.Active));
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        stationGeoIndex.upsert(saved);
+        invalidateHealthOverview();
+        return saved;
     }
 
     public Station update(Integer id, Station station) {
@@ -63,7 +96,10 @@ public class StationService {
                     s.setLongitude(station.getLongitude());
                     s.setOpeningHours(station.getOpeningHours());
                     s.setSlots(station.getSlots());
-                    return stationRepository.save(s);
+                    Station saved = stationRepository.save(s);
+                    stationGeoIndex.upsert(saved);
+                    invalidateHealthOverview();
+                    return saved;
                 }).orElseThrow(() -> new RuntimeException("Station not found"));
     }
 
@@ -71,7 +107,11 @@ public class StationService {
         return stationRepository.findById(id)
                 .map(station -> {
                     station.setStationStatus(status);
-                    return stationRepository.save(station);
+                    Station saved = stationRepository.save(station);
+                    stationGeoIndex.upsert(saved);
+                    invalidateHealthOverview();
+                    eventPublisher.publishEvent(new StationAvailabilityChangedEvent(saved.getStationID()));
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Station not found"));
     }
@@ -82,15 +122,56 @@ public class StationService {
 
     public void delete(Integer id) {
         stationRepository.deleteById(id);
+        stationGeoIndex.remove(id);
+        invalidateHealthOverview();
     }
 
     // ====== Quản lý trạng thái đa trạm ======
 
+    /**
+     * Health của toàn mạng: 1 query danh sách trạm + 1 query gom (station, status, count),
+     * kết quả cache ngắn hạn và bị xóa khi Inventory / Station thay đổi
+     */
     public List<StationHealthDTO> getStationHealthOverview() {
-        return stationRepository.findAll().stream()
-                .map(station -> buildHealthSnapshot(station, false, false))
-                .sorted(Comparator.comparing(StationHealthDTO::getStationName))
+        HealthOverview cached = healthOverview;
+        if (cached != null && cached.expiresAt() > clock.millis()) {
+            return cached.stations();
+        }
+        long generation = healthGeneration.get();
+
+        Map<Integer, List<InventoryStatusCountDTO>> countsByStation = countInventoryByStation();
+
+        List<StationHealthDTO> stations = stationRepository.findAll().stream()
+                .map(station -> buildHealthSnapshot(station,
+                        countsByStation.getOrDefault(station.getStationID(), List.of()), false, false))
+                .sorted(Comparator.comparing(StationHealthDTO::getStationName,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
                 .toList();
+
+        // Không lưu snapshot nếu đã có thay đổi trong lúc đang tính
+        if (healthGeneration.get() == generation) {
+            healthOverview = new HealthOverview(stations, clock.millis() + HEALTH_OVERVIEW_TTL_MILLIS);
+        }
+        return stations;
+    }
+
+    private Map<Integer, List<InventoryStatusCountDTO>> countInventoryByStation() {
+        Map<Integer, List<InventoryStatusCountDTO>> countsByStation = new HashMap<>();
+        for (Object[] row : inventoryRepository.countByStationAndStatus()) {
+            countsByStation.computeIfAbsent((Integer) row[0], k -> new ArrayList<>())
+                    .add(new InventoryStatusCountDTO((String) row[1], ((Number) row[2]).longValue()));
+        }
+        return countsByStation;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        invalidateHealthOverview();
+    }
+
+    private void invalidateHealthOverview() {
+        healthGeneration.incrementAndGet();
+        healthOverview = null;
     }
 
     public StationHealthDTO getStationHealth(Integer stationId) {
@@ -105,6 +186,74 @@ public class StationService {
         return buildHealthSnapshot(station, true, true);
     }
 
+    /**
+     * Tính lại trạng thái cho toàn bộ trạm theo chu kỳ: 1 query danh sách trạm + 1 query gom inventory,
+     * chỉ các trạm đổi trạng thái mới được ghi, gộp trong một JDBC batch
+     */
+    @Scheduled(fixedDelayString = "${station.status.derivation.interval-ms:60000}",
+            initialDelayString = "${station.status.derivation.initial-delay-ms:30000}")
+    public void deriveAllStationStatuses() {
+        long started = System.nanoTime();
+        try {
+            Map<Integer, List<InventoryStatusCountDTO>> countsByStation = countInventoryByStation();
+            List<Station> stations = stationRepository.findAll();
+
+            List<Station> changed = new ArrayList<>();
+            List<Object[]> batchArgs = new ArrayList<>();
+            for (Station station : stations) {
+                StationStatus derived = deriveStationStatus(station,
+                        countsByStation.getOrDefault(station.getStationID(), List.of()));
+                if (derived != station.getStationStatus()) {
+                    batchArgs.add(new Object[]{derived.name(), station.getStationID(),
+                            Optional.ofNullable(station.getStationStatus()).map(Enum::name).orElse("")});
+                    station.setStationStatus(derived);
+                    changed.add(station);
+                }
+            }
+
+            int applied = 0;
+            if (!batchArgs.isEmpty()) {
+                int[] results = jdbcTemplate.batchUpdate(UPDATE_DERIVED_STATUS_SQL, batchArgs);
+                for (int i = 0; i < results.length; i++) {
+                    // Driver có thể trả SUCCESS_NO_INFO (-2) thay vì số dòng
+                    if (results[i] != 0) {
+                        stationGeoIndex.upsert(changed.get(i));
+                        eventPublisher.publishEvent(new StationAvailabilityChangedEvent(changed.get(i).getStationID()));
+                        applied++;
+                    }
+                }
+                invalidateHealthOverview();
+            }
+
+            long durationMs = (System.nanoTime() - started) / 1_000_000;
+            lastDerivation = StationStatusDerivationMetricsDTO.builder()
+                    .lastRunAt(LocalDateTime.now())
+                    .lastRunDurationMs(durationMs)
+                    .lastStationsScanned(stations.size())
+                    .lastChangedCount(applied)
+                    .totalRuns(derivationRuns.incrementAndGet())
+                    .totalChanged(derivationChanged.addAndGet(applied))
+                    .failedRuns(derivationFailures.get())
+                    .build();
+            log.debug("Derived status for {} stations in {} ms, {} changed", stations.size(), durationMs, applied);
+        } catch (Exception e) {
+            long failures = derivationFailures.incrementAndGet();
+            StationStatusDerivationMetricsDTO previous = lastDerivation;
+            lastDerivation = previous.toBuilder()
+                    .lastRunAt(LocalDateTime.now())
+                    .lastRunDurationMs((System.nanoTime() - started) / 1_000_000)
+                    .totalRuns(derivationRuns.incrementAndGet())
+                    .failedRuns(failures)
+                    .lastError(e.getMessage())
+                    .build();
+            log.warn("Station status derivation failed: {}", e.getMessage());
+        }
+    }
+
+    public StationStatusDerivationMetricsDTO getStatusDerivationMetrics() {
+        return lastDerivation;
+    }
+
     public Map<StationStatus, Long> getStatusDistribution() {
         return stationRepository.findAll().stream()
                 .map(station -> Optional.ofNullable(station.getStationStatus()).orElse(StationStatus.Active))
@@ -112,99 +261,112 @@ public class StationService {
     }
 
     // ====== 🧭 Tìm trạm gần nhất ======
-    public List<Map<String, Object>> findNearbyStations(double userLat, double userLng, double radiusKm) {
-        List<Station> all = stationRepository.findAll();
+    public List<NearbyStationDTO> findNearbyStations(double userLat, double userLng, double radiusKm) {
+        return stationGeoIndex.withinRadius(userLat, userLng, radiusKm);
+    }
 
-        return all.stream()
-                .filter(s -> s.getLatitude() != null && s.getLongitude() != null)
-                .map(s -> {
-                    double dist = distanceKm(userLat, userLng, s.getLatitude(), s.getLongitude());
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("stationID", s.getStationID());
-                    data.put("stationName", s.getStationName());
-                    data.put("address", s.getAddress());
-                    data.put("latitude", s.getLatitude());
-                    data.put("longitude", s.getLongitude());
-                    data.put("distanceKm", Math.round(dist * 100.0) / 100.0);
-                    data.put("status", Optional.ofNullable(s.getStationStatus()).orElse(StationStatus.Active));
-                    return data;
-                })
-                .filter(s -> (double) s.get("distanceKm") <= radiusKm)
-                .sorted(Comparator.comparingDouble(s -> (double) s.get("distanceKm")))
-                .collect(Collectors.toList());
+    public List<NearbyStationDTO> findNearestStations(double userLat, double userLng, int k) {
+        return stationGeoIndex.nearest(userLat, userLng, k);
     }
 
     @Transactional(readOnly = true)
     public StationInventoryPageDTO getStationInventoryPage(Integer stationId, List<String> statuses, int page, int size) {
-        Station station = stationRepository.findById(stationId)
-                .orElseThrow(() -> new EntityNotFoundException("Station not found"));
+        // Round-trip 1: header trạm + (slot, status) của mọi inventory -> bitmap slot + counters trong 1 lượt
+        List<Object[]> slotView = stationRepository.findSlotView(stationId);
+        if (slotView.isEmpty()) {
+            throw new EntityNotFoundException("Station not found");
+        }
+
+        Object[] header = slotView.get(0);
+        Integer totalSlots = (Integer) header[0];
+        String stationName = (String) header[1];
+        StationStatus stationStatus = (StationStatus) header[2];
 
         int safePage = Math.max(page, 0);
         int safeSize = Math.min(Math.max(size, 1), 50);
-        
-        // 🆕 Luôn lấy toàn bộ inventory của station (không filter bằng status ở DB)
-        // Sau đó filter ở client-side để có thể hiển thị empty slots
-        Pageable pageable = PageRequest.of(safePage, safeSize, Sort.by(Sort.Direction.ASC, "slotNumber"));
-        Page<Inventory> inventoryPage = inventoryRepository.findByStationStationID(stationId, pageable);
-
-        List<StationInventoryItemDTO> items = inventoryPage.getContent().stream()
-                .map(StationInventoryItemDTO::fromEntity)
-                .toList();
 
-        // 🆕 Fill các slot trống để hiển thị toàn bộ slot trên frontend
-        List<StationInventoryItemDTO> allItems = fillEmptySlots(items, station.getSlots());
-
-        // 🆕 Nếu có status filter, chỉ lọc những slot có status match hoặc empty
-        List<StationInventoryItemDTO> filteredItems = allItems;
-        if (statuses != null && !statuses.isEmpty()) {
-            List<String> normalizedStatuses = statuses.stream()
-                    .filter(Objects::nonNull)
-                    .map(status -> status.toUpperCase(Locale.ROOT))
-                    .toList();
-
-            filteredItems = allItems.stream()
-                    .filter(item -> {
-                        String itemStatus = item.getInventoryStatus() != null 
-                            ? item.getInventoryStatus().toUpperCase(Locale.ROOT) 
-                            : "UNKNOWN";
-                        return normalizedStatuses.contains(itemStatus);
-                    })
-                    .collect(Collectors.toList());
+        // slotNumber -> status đã chuẩn hóa; TreeMap giữ thứ tự slot
+        NavigableMap<Integer, String> occupied = new TreeMap<>();
+        Map<String, Long> statusCounters = new HashMap<>();
+        long totalCount = 0;
+        for (Object[] row : slotView) {
+            if (row[3] == null) {
+                continue; // LEFT JOIN: trạm chưa có inventory
+            }
+            totalCount++;
+            String status = row[5] != null ? ((String) row[5]).toUpperCase(Locale.ROOT) : "UNKNOWN";
+            statusCounters.merge(status, 1L, Long::sum);
+            if (row[4] != null) {
+                occupied.putIfAbsent((Integer) row[4], status);
+            }
         }
 
-        Map<String, Long> statusCounters = inventoryRepository.countByStatusAndStationId(stationId)
-                .stream()
-                .collect(Collectors.toMap(
-                        dto -> dto.getStatus() != null ? dto.getStatus().toUpperCase(Locale.ROOT) : "UNKNOWN",
-                        InventoryStatusCountDTO::getCount,
-                        (existing, replacement) -> replacement
-                ));
-
         // 🆕 Thêm count cho EMPTY slots
-        long emptyCount = (station.getSlots() != null ? station.getSlots() : 0) - inventoryRepository.countByStationStationID(stationId);
+        long emptyCount = (totalSlots != null ? totalSlots : 0) - totalCount;
         if (emptyCount > 0) {
             statusCounters.put("EMPTY", emptyCount);
         }
 
-        long totalCount = inventoryRepository.countByStationStationID(stationId);
+        // Danh sách slot (kể cả slot trống) khớp filter, lọc TRƯỚC khi phân trang
+        Set<String> normalizedStatuses = statuses == null ? Set.of() : statuses.stream()
+                .filter(Objects::nonNull)
+                .map(status -> status.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        int maxSlot = Math.max(totalSlots != null ? totalSlots : 0, occupied.isEmpty() ? 0 : occupied.lastKey());
+        List<Integer> matchingSlots = new ArrayList<>();
+        for (int slot = 1; slot <= maxSlot; slot++) {
+            String status = occupied.get(slot);
+            if (status == null && (totalSlots == null || slot > totalSlots)) {
+                continue; // Ngoài số slot của trạm và không có inventory
+            }
+            String effective = status != null ? status : "EMPTY";
+            if (normalizedStatuses.isEmpty() || normalizedStatuses.contains(effective)) {
+                matchingSlots.add(slot);
+            }
+        }
+
+        int from = Math.min(safePage * safeSize, matchingSlots.size());
+        int to = Math.min(from + safeSize, matchingSlots.size());
+        List<Integer> pageSlots = matchingSlots.subList(from, to);
+
+        // Round-trip 2: chỉ load inventory + battery của các slot có hàng trong trang hiện tại
+        List<Integer> occupiedPageSlots = pageSlots.stream()
+                .filter(occupied::containsKey)
+                .toList();
+        Map<Integer, StationInventoryItemDTO> loaded = new HashMap<>();
+        if (!occupiedPageSlots.isEmpty()) {
+            for (Inventory inventory : inventoryRepository.findByStationStationIDAndSlotNumberIn(stationId, occupiedPageSlots)) {
+                loaded.putIfAbsent(inventory.getSlotNumber(), StationInventoryItemDTO.fromEntity(inventory));
+            }
+        }
+
+        List<StationInventoryItemDTO> items = pageSlots.stream()
+                .map(slot -> loaded.getOrDefault(slot, StationInventoryItemDTO.createEmptySlot(slot)))
+                .toList();
 
         return new StationInventoryPageDTO(
-                station.getStationID(),
-                station.getStationName(),
-                Optional.ofNullable(station.getStationStatus()).map(Enum::name).orElse(null),
-                station.getSlots(),
+                stationId,
+                stationName,
+                Optional.ofNullable(stationStatus).map(Enum::name).orElse(null),
+                totalSlots,
                 totalCount,
                 statusCounters,
-                inventoryPage.getNumber(),
-                inventoryPage.getSize(),
-                filteredItems.size(), // 🆕 Số items sau khi filter
-                (int) Math.ceil((double) filteredItems.size() / safeSize), // 🆕 Tính lại totalPages
-                filteredItems // 🆕 Trả về items đã filter (kể cả empty slots)
+                safePage,
+                safeSize,
+                matchingSlots.size(),
+                (int) Math.ceil((double) matchingSlots.size() / safeSize),
+                items
         );
     }
 
     private StationHealthDTO buildHealthSnapshot(Station station, boolean deriveStatus, boolean persistDerived) {
         List<InventoryStatusCountDTO> statusCounts = inventoryRepository.countByStatusAndStationId(station.getStationID());
+        return buildHealthSnapshot(station, statusCounts, deriveStatus, persistDerived);
+    }
+
+    private StationHealthDTO buildHealthSnapshot(Station station, List<InventoryStatusCountDTO> statusCounts,
+                                                 boolean deriveStatus, boolean persistDerived) {
         long available = aggregateByLabels(statusCounts, READY_STATUSES);
         long maintenance = aggregateByLabels(statusCounts, MAINTENANCE_STATUSES);
         long total = statusCounts.stream()
@@ -217,7 +379,10 @@ public class StationService {
 
         if (persistDerived && resolvedStatus != station.getStationStatus()) {
             station.setStationStatus(resolvedStatus);
-            stationRepository.save(station);
+            Station saved = stationRepository.save(station);
+            stationGeoIndex.upsert(saved);
+            eventPublisher.publishEvent(new StationAvailabilityChangedEvent(saved.getStationID()));
+            invalidateHealthOverview();
         }
 
         double utilization = calculateUtilization(available, station.getSlots());
@@ -234,6 +399,14 @@ public class StationService {
                 .build();
     }
 
+    private StationStatus deriveStationStatus(Station station, List<InventoryStatusCountDTO> statusCounts) {
+        long total = statusCounts.stream()
+                .mapToLong(InventoryStatusCountDTO::getCount)
+                .sum();
+        return deriveStationStatus(station, aggregateByLabels(statusCounts, READY_STATUSES), total,
+                aggregateByLabels(statusCounts, MAINTENANCE_STATUSES));
+    }
+
     private StationStatus deriveStationStatus(Station station, long available, long total, long maintenanceCount) {
         StationStatus current = Optional.ofNullable(station.getStationStatus()).orElse(StationStatus.Active);
         if (current == StationStatus.Maintenance) {
@@ -278,41 +451,6 @@ public class StationService {
         return Math.round(bounded * 100d) / 100d;
     }
 
-    private double distanceKm(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
-    // 🆕 Fill các slot trống để hiển thị toàn bộ slot trên frontend
-    private List<StationInventoryItemDTO> fillEmptySlots(List<StationInventoryItemDTO> items, Integer totalSlots) {
-        if (totalSlots == null || totalSlots <= 0) {
-            return items;
-        }
-
-        // Lấy các slot number đã có
-        Set<Integer> existingSlots = items.stream()
-                .map(StationInventoryItemDTO::getSlotNumber)
-                .collect(Collectors.toSet());
-
-        // Tạo list mới với toàn bộ slot
-        List<StationInventoryItemDTO> allSlots = new java.util.ArrayList<>(items);
-
-        // Thêm các slot trống
-        for (int slotNum = 1; slotNum <= totalSlots; slotNum++) {
-            if (!existingSlots.contains(slotNum)) {
-                allSlots.add(StationInventoryItemDTO.createEmptySlot(slotNum));
-            }
-        }
-
-        // Sắp xếp theo slot number
-        allSlots.sort(Comparator.comparingInt(StationInventoryItemDTO::getSlotNumber));
-
-        return allSlots;
+    private record HealthOverview(List<StationHealthDTO> stations, long expiresAt) {
     }
 }
@@ -0,0 +1,463 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.SwapTransaction;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Kho giao dịch đổi pin in-memory của StationController (thay cho static HashMap không đồng bộ).
+ * - byId: ConcurrentHashMap, id cấp bằng AtomicInteger
+ * - byStation: mỗi trạm một ConcurrentSkipListMap sắp theo (ngày giao dịch, id) để lọc theo khoảng ngày
+ * - chỉ mục trigram cho tên / email / VIN để tìm "contains" không phải quét toàn bộ
+ * - tổng doanh thu chạy sẵn theo trạm
+ * Ghi / sửa / xóa cùng một giao dịch được tuần tự hóa bằng lock theo stripe của id.
+ * Copy-on-write: object đã lưu không bao giờ bị sửa, update dựng object mới rồi thay vào byId,
+ * nên người đọc không lock luôn thấy trọn một phiên bản (caller không được sửa object trả về).
+ * Đổi ngày giao dịch là đổi key trong byStation (thêm key mới rồi xóa key cũ): người đọc duyệt
+ * byStation kiểm tra không có lần đổi key nào chen vào lúc duyệt, nếu có thì duyệt lại (kiểu seqlock).
+ */
+@Service
+public class SwapTransactionStore {
+
+    private static final int STRIPES = 32;
+    private static final int GRAM = 3;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private static final Comparator<Key> KEY_ORDER = Comparator
+            .comparing(Key::transactionDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Key::id);
+    // Cùng thứ tự với descendingMap của byStation
+    private static final Comparator<SwapTransaction> NEWEST_FIRST = Comparator
+            .comparing(SwapTransaction::getTransactionDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(SwapTransaction::getId)
+            .reversed();
+
+    private final AtomicInteger idSequence = new AtomicInteger();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final Map<Integer, SwapTransaction> byId = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<Key, SwapTransaction>> byStation = new ConcurrentHashMap<>();
+    private final Map<Integer, StationTotals> stationTotals = new ConcurrentHashMap<>();
+    // Số lần đổi key đã bắt đầu / đã xong, bằng nhau khi không có lần đổi key nào đang chạy
+    private final AtomicLong keyMovesStarted = new AtomicLong();
+    private final AtomicLong keyMovesFinished = new AtomicLong();
+
+    private final TrigramIndex nameIndex = new TrigramIndex();
+    private final TrigramIndex emailIndex = new TrigramIndex();
+    private final TrigramIndex vinIndex = new TrigramIndex();
+
+    public SwapTransactionStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public SwapTransaction create(Integer stationId, SwapTransaction transaction) {
+        LocalDateTime now = LocalDateTime.now();
+        SwapTransaction created = new SwapTransaction(
+                idSequence.incrementAndGet(),
+                transaction.getTransactionDate() != null ? transaction.getTransactionDate() : now,
+                transaction.getCustomerName(),
+                transaction.getCustomerEmail(),
+                upper(transaction.getVehicleVin()),
+                transaction.getAmount(),
+                stationId,
+                now,
+                now);
+
+        ReentrantLock lock = lockFor(created.getId());
+        lock.lock();
+        try {
+            byId.put(created.getId(), created);
+            index(created);
+        } finally {
+            lock.unlock();
+        }
+        return created;
+    }
+
+    public Optional<SwapTransaction> get(Integer stationId, Integer id) {
+        SwapTransaction transaction = byId.get(id);
+        if (transaction == null || !transaction.getStationId().equals(stationId)) {
+            return Optional.empty();
+        }
+        return Optional.of(transaction);
+    }
+
+    public Optional<SwapTransaction> update(Integer stationId, Integer id, SwapTransaction changes) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            SwapTransaction current = byId.get(id);
+            if (current == null || !current.getStationId().equals(stationId)) {
+                return Optional.empty();
+            }
+            SwapTransaction updated = new SwapTransaction(
+                    id,
+                    changes.getTransactionDate(),
+                    changes.getCustomerName(),
+                    changes.getCustomerEmail(),
+                    upper(changes.getVehicleVin()),
+                    changes.getAmount(),
+                    current.getStationId(),
+                    current.getCreatedAt(),
+                    LocalDateTime.now());
+            reindex(current, updated);
+            return Optional.of(updated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean delete(Integer stationId, Integer id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            SwapTransaction transaction = byId.get(id);
+            if (transaction == null || !transaction.getStationId().equals(stationId)) {
+                return false;
+            }
+            byId.remove(id);
+            unindex(transaction);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Giao dịch của trạm, mới nhất trước
+     */
+    public List<SwapTransaction> findByStation(Integer stationId) {
+        NavigableMap<Key, SwapTransaction> station = byStation.get(stationId);
+        if (station == null) {
+            return List.of();
+        }
+        return readStable(
+                () -> List.copyOf(station.descendingMap().values()),
+                () -> byId.values().stream()
+                        .filter(t -> t.getStationId().equals(stationId))
+                        .sorted(NEWEST_FIRST)
+                        .toList());
+    }
+
+    /**
+     * Tìm theo tên / email / VIN (chứa chuỗi, không phân biệt hoa thường), mới nhất trước
+     */
+    public List<SwapTransaction> search(Integer stationId, String customerName, String customerEmail, String vehicleVin) {
+        Set<Integer> candidates = null;
+        candidates = narrow(candidates, nameIndex, customerName);
+        candidates = narrow(candidates, emailIndex, customerEmail);
+        candidates = narrow(candidates, vinIndex, vehicleVin);
+
+        List<SwapTransaction> source;
+        if (candidates == null) {
+            source = findByStation(stationId);
+        } else {
+            source = new ArrayList<>();
+            for (Integer id : candidates) {
+                SwapTransaction t = byId.get(id);
+                if (t != null && t.getStationId().equals(stationId)) {
+                    source.add(t);
+                }
+            }
+            source.sort(Comparator.comparing(SwapTransaction::getTransactionDate,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+        }
+
+        return source.stream()
+                .filter(t -> matches(t.getCustomerName(), customerName))
+                .filter(t -> matches(t.getCustomerEmail(), customerEmail))
+                .filter(t -> matches(t.getVehicleVin(), vehicleVin))
+                .toList();
+    }
+
+    /**
+     * Doanh thu của trạm; không có khoảng ngày thì đọc tổng chạy sẵn, có thì chỉ duyệt đoạn ngày đó
+     */
+    public RevenueSummary stationRevenue(Integer stationId, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            StationTotals totals = stationTotals.get(stationId);
+            return totals == null ? RevenueSummary.EMPTY : totals.snapshot();
+        }
+
+        ConcurrentSkipListMap<Key, SwapTransaction> station = byStation.get(stationId);
+        if (station == null) {
+            return RevenueSummary.EMPTY;
+        }
+        NavigableMap<Key, SwapTransaction> range = station;
+        if (from != null) {
+            range = range.tailMap(new Key(from, Integer.MIN_VALUE), true);
+        }
+        if (to != null) {
+            range = range.headMap(new Key(to, Integer.MAX_VALUE), true);
+        }
+
+        NavigableMap<Key, SwapTransaction> stationRange = range;
+        return readStable(
+                () -> sum(stationRange.values()),
+                () -> sum(byId.values().stream()
+                        .filter(t -> t.getStationId().equals(stationId))
+                        .filter(t -> t.getTransactionDate() != null
+                                && (from == null || !t.getTransactionDate().isBefore(from))
+                                && (to == null || !t.getTransactionDate().isAfter(to)))
+                        .toList()));
+    }
+
+    private static RevenueSummary sum(Iterable<SwapTransaction> transactions) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long count = 0;
+        for (SwapTransaction t : transactions) {
+            if (t.getTransactionDate() == null) {
+                continue; // Giống logic cũ: không có ngày thì không so được với khoảng lọc
+            }
+            revenue = revenue.add(amountOf(t));
+            count++;
+        }
+        return new RevenueSummary(revenue, count);
+    }
+
+    /**
+     * Chạy read trên byStation khi không có lần đổi key nào xen vào (lúc đó mỗi id có đúng một key).
+     * Bị xen MAX_READ_ATTEMPTS lần liền thì đọc bằng fallback từ byId: chậm hơn (quét mọi trạm)
+     * nhưng byId luôn giữ đúng một phiên bản cho mỗi id.
+     */
+    private <T> T readStable(Supplier<T> read, Supplier<T> fallback) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            // Đọc finished trước started: bằng nhau nghĩa là mọi lần đổi key đã bắt đầu đều đã xong
+            long finished = keyMovesFinished.get();
+            long started = keyMovesStarted.get();
+            if (started != finished) {
+                Thread.onSpinWait();
+                continue;
+            }
+            T result = read.get();
+            if (keyMovesStarted.get() == started) {
+                return result;
+            }
+        }
+        return fallback.get();
+    }
+
+    public RevenueSummary totalRevenue() {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long count = 0;
+        for (StationTotals totals : stationTotals.values()) {
+            RevenueSummary s = totals.snapshot();
+            revenue = revenue.add(s.revenue());
+            count += s.transactions();
+        }
+        return new RevenueSummary(revenue, count);
+    }
+
+    private void index(SwapTransaction t) {
+        byStation.computeIfAbsent(t.getStationId(), k -> new ConcurrentSkipListMap<>(KEY_ORDER))
+                .put(new Key(t.getTransactionDate(), t.getId()), t);
+        stationTotals.computeIfAbsent(t.getStationId(), k -> new StationTotals()).add(amountOf(t), 1);
+        nameIndex.add(t.getCustomerName(), t.getId());
+        emailIndex.add(t.getCustomerEmail(), t.getId());
+        vinIndex.add(t.getVehicleVin(), t.getId());
+    }
+
+    /**
+     * Thêm phiên bản mới vào các chỉ mục trước, thay vào byId, rồi mới gỡ phần chỉ còn của phiên bản cũ:
+     * người đọc không lúc nào thấy giao dịch biến mất, tổng của trạm được chỉnh bằng một bước atomic.
+     * Đổi key được đánh dấu bằng keyMovesStarted / keyMovesFinished cho readStable.
+     */
+    private void reindex(SwapTransaction current, SwapTransaction updated) {
+        Key oldKey = new Key(current.getTransactionDate(), current.getId());
+        Key newKey = new Key(updated.getTransactionDate(), updated.getId());
+        boolean moved = !oldKey.equals(newKey);
+        if (moved) {
+            keyMovesStarted.incrementAndGet();
+        }
+        try {
+            replace(current, updated, oldKey, newKey, moved);
+        } finally {
+            if (moved) {
+                keyMovesFinished.incrementAndGet();
+            }
+        }
+    }
+
+    private void replace(SwapTransaction current, SwapTransaction updated, Key oldKey, Key newKey, boolean moved) {
+        ConcurrentSkipListMap<Key, SwapTransaction> station = byStation.computeIfAbsent(
+                updated.getStationId(), k -> new ConcurrentSkipListMap<>(KEY_ORDER));
+        station.put(newKey, updated);
+        nameIndex.replace(current.getCustomerName(), updated.getCustomerName(), updated.getId());
+        emailIndex.replace(current.getCustomerEmail(), updated.getCustomerEmail(), updated.getId());
+        vinIndex.replace(current.getVehicleVin(), updated.getVehicleVin(), updated.getId());
+
+        byId.put(updated.getId(), updated);
+        stationTotals.computeIfAbsent(updated.getStationId(), k -> new StationTotals())
+                .add(amountOf(updated).subtract(amountOf(current)), 0);
+
+        if (moved) {
+            station.remove(oldKey, current);
+        }
+    }
+
+    private void unindex(SwapTransaction t) {
+        ConcurrentSkipListMap<Key, SwapTransaction> station = byStation.get(t.getStationId());
+        if (station != null) {
+            station.remove(new Key(t.getTransactionDate(), t.getId()));
+        }
+        StationTotals totals = stationTotals.get(t.getStationId());
+        if (totals != null) {
+            totals.add(amountOf(t).negate(), -1);
+        }
+        nameIndex.remove(t.getCustomerName(), t.getId());
+        emailIndex.remove(t.getCustomerEmail(), t.getId());
+        vinIndex.remove(t.getVehicleVin(), t.getId());
+    }
+
+    // Giao các tập ứng viên; chuỗi tìm ngắn hơn 3 ký tự không dùng được trigram nên bỏ qua (lọc sau)
+    private Set<Integer> narrow(Set<Integer> current, TrigramIndex index, String query) {
+        Set<Integer> found = index.candidates(query);
+        if (found == null) {
+            return current;
+        }
+        if (current == null) {
+            return found;
+        }
+        current.retainAll(found);
+        return current;
+    }
+
+    private static boolean matches(String value, String query) {
+        if (query == null) {
+            return true;
+        }
+        return value != null && value.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT));
+    }
+
+    private static BigDecimal amountOf(SwapTransaction t) {
+        return t.getAmount() != null ? t.getAmount() : BigDecimal.ZERO;
+    }
+
+    private static String upper(String vin) {
+        return vin != null ? vin.toUpperCase(Locale.ROOT) : null;
+    }
+
+    private ReentrantLock lockFor(Integer id) {
+        return stripes[Math.floorMod(id.hashCode(), STRIPES)];
+    }
+
+    private record Key(LocalDateTime transactionDate, Integer id) {
+    }
+
+    public record RevenueSummary(BigDecimal revenue, long transactions) {
+        static final RevenueSummary EMPTY = new RevenueSummary(BigDecimal.ZERO, 0);
+    }
+
+    // Doanh thu và số giao dịch đổi cùng nhau trong một CAS nên snapshot luôn khớp nhau
+    private static final class StationTotals {
+        private final AtomicReference<RevenueSummary> totals = new AtomicReference<>(RevenueSummary.EMPTY);
+
+        void add(BigDecimal amount, long delta) {
+            totals.updateAndGet(t -> new RevenueSummary(t.revenue().add(amount), t.transactions() + delta));
+        }
+
+        RevenueSummary snapshot() {
+            return totals.get();
+        }
+    }
+
+    /**
+     * Chỉ mục trigram (chữ thường) -> id giao dịch, dùng cho tìm kiếm "contains"
+     */
+    private static final class TrigramIndex {
+        private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+
+        void add(String value, Integer id) {
+            forEachGram(value, gram -> postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id));
+        }
+
+        /**
+         * Thêm trigram của giá trị mới trước, sau đó chỉ gỡ những trigram mà giá trị mới không còn
+         */
+        void replace(String oldValue, String newValue, Integer id) {
+            Set<String> kept = new HashSet<>();
+            forEachGram(newValue, gram -> {
+                kept.add(gram);
+                postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id);
+            });
+            forEachGram(oldValue, gram -> {
+                if (!kept.contains(gram)) {
+                    Set<Integer> ids = postings.get(gram);
+                    if (ids != null) {
+                        ids.remove(id);
+                    }
+                }
+            });
+        }
+
+        void remove(String value, Integer id) {
+            forEachGram(value, gram -> {
+                Set<Integer> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                }
+            });
+        }
+
+        /**
+         * null nếu chuỗi tìm quá ngắn để dùng chỉ mục
+         */
+        Set<Integer> candidates(String query) {
+            if (query == null || query.length() < GRAM) {
+                return null;
+            }
+            Set<Integer> result = null;
+            String lower = query.toLowerCase(Locale.ROOT);
+            for (int i = 0; i + GRAM <= lower.length(); i++) {
+                Set<Integer> ids = postings.get(lower.substring(i, i + GRAM));
+                if (ids == null) {
+                    return new HashSet<>();
+                }
+                if (result == null) {
+                    result = new HashSet<>(ids);
+                } else {
+                    result.retainAll(ids);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+            return result;
+        }
+
+        private static void forEachGram(String value, Consumer<String> action) {
+            if (value == null) {
+                return;
+            }
+            String lower = value.toLowerCase(Locale.ROOT);
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i + GRAM <= lower.length(); i++) {
+                String gram = lower.substring(i, i + GRAM);
+                if (seen.add(gram)) {
+                    action.accept(gram);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.BulkTransactionResultDTO;
+import com.evswap.evswapstation.dto.BulkTransactionResultDTO.RowResult;
+import com.evswap.evswapstation.dto.TransactionDTO;
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Nhận log swap hàng loạt từ trạm (sau khi mất kết nối).
+ * User được kiểm tra bằng một findAllById, VIN chính lấy bằng một query gom,
+ * sau đó insert qua JDBC batch: IDENTITY của Transactions khiến Hibernate không batch được insert.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionBulkService {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO Transactions (UserID, StationID, PackageID, TimeDate, Record, Amount,
+                                      TransactionDate, Status, PaymentID, PayPalTransactionID, VIN)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    // Khai báo kiểu sẵn để driver không phải hỏi metadata cho mỗi giá trị null
+    private static final int[] ARG_TYPES = {
+            Types.INTEGER, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.NVARCHAR, Types.DECIMAL,
+            Types.TIMESTAMP, Types.NVARCHAR, Types.BIGINT, Types.NVARCHAR, Types.NVARCHAR
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${transaction.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction.bulk.max-rows:10000}")
+    private int maxRows;
+
+    public BulkTransactionResultDTO ingest(List<TransactionDTO> rows) {
+        long started = System.nanoTime();
+        if (rows.size() > maxRows) {
+            throw new IllegalArgumentException("Too many rows: " + rows.size() + " (max " + maxRows + ")");
+        }
+
+        Set<Integer> userIds = rows.stream()
+                .filter(row -> row != null && row.getUserId() != null)
+                .map(row -> row.getUserId().intValue())
+                .collect(Collectors.toSet());
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserID, Function.identity()));
+        // Mọi VIN của các user trong lô (một query): kiểm tra VIN client gửi và lấy VIN chính (nhỏ nhất)
+        Map<Integer, TreeSet<String>> vins = new HashMap<>();
+        if (!users.isEmpty()) {
+            for (Object[] row : vehicleRepository.findVinsByUserIds(users.keySet())) {
+                vins.computeIfAbsent((Integer) row[0], id -> new TreeSet<>()).add((String) row[1]);
+            }
+        }
+
+        RowResult[] results = new RowResult[rows.size()];
+        List<PendingRow> valid = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows.size(); i++) {
+            TransactionDTO dto = rows.get(i);
+            String error = validate(dto, users, vins);
+            if (error != null) {
+                results[i] = new RowResult(i, "REJECTED", error);
+                continue;
+            }
+            valid.add(toPendingRow(i, dto, now, vins));
+        }
+
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<PendingRow> chunk = valid.subList(from, Math.min(from + batchSize, valid.size()));
+            insertChunk(chunk, results);
+        }
+
+        int created = 0, rejected = 0, failed = 0;
+        for (RowResult result : results) {
+            switch (result.getStatus()) {
+                case "CREATED" -> created++;
+                case "REJECTED" -> rejected++;
+                default -> failed++;
+            }
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Bulk transaction ingest: {} rows, {} created, {} rejected, {} failed in {} ms",
+                rows.size(), created, rejected, failed, elapsedMs);
+
+        return BulkTransactionResultDTO.builder()
+                .total(rows.size())
+                .created(created)
+                .rejected(rejected)
+                .failed(failed)
+                .elapsedMs(elapsedMs)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Cả lô trong một transaction; lô lỗi thì insert lại từng dòng để biết chính xác dòng nào hỏng
+    private void insertChunk(List<PendingRow> chunk, RowResult[] results) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            tx.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk.stream().map(PendingRow::args).toList(), ARG_TYPES);
+                publishCreated(chunk);
+            });
+            chunk.forEach(row -> results[row.index()] = new RowResult(row.index(), "CREATED", null));
+        } catch (DataAccessException batchError) {
+            log.warn("Bulk insert batch of {} rows failed, retrying row by row: {}",
+                    chunk.size(), batchError.getMostSpecificCause().getMessage());
+            for (PendingRow row : chunk) {
+                try {
+                    tx.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, row.args(), ARG_TYPES);
+                        publishCreated(List.of(row));
+                    });
+                    results[row.index()] = new RowResult(row.index(), "CREATED", null);
+                } catch (DataAccessException e) {
+                    results[row.index()] = new RowResult(row.index(), "FAILED",
+                            e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    // Insert JDBC không qua TransactionEntityListener: tự phát event để dashboard / rollup vẫn cập nhật
+    private void publishCreated(List<PendingRow> rows) {
+        eventPublisher.publishEvent(new TransactionsBulkInsertedEvent(
+                rows.stream().map(PendingRow::snapshot).toList()));
+    }
+
+    private String validate(TransactionDTO dto, Map<Integer, User> users, Map<Integer, TreeSet<String>> vins) {
+        if (dto == null) {
+            return "Row is empty";
+        }
+        if (dto.getUserId() == null) {
+            return "User ID is required";
+        }
+        if (!users.containsKey(dto.getUserId().intValue())) {
+            return "User not found with ID: " + dto.getUserId();
+        }
+        Set<String> registered = vins.get(dto.getUserId().intValue());
+        if (hasVin(dto) && (registered == null || !registered.contains(dto.getVin()))) {
+            return "VIN " + dto.getVin() + " is not registered to user " + dto.getUserId();
+        }
+        if (dto.getAmount() != null && dto.getAmount().signum() < 0) {
+            return "Amount must not be negative";
+        }
+        if (dto.getPaymentId() != null) {
+            try {
+                Long.parseLong(dto.getPaymentId());
+            } catch (NumberFormatException e) {
+                return "Invalid payment ID: " + dto.getPaymentId();
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasVin(TransactionDTO dto) {
+        return dto.getVin() != null && !dto.getVin().isBlank();
+    }
+
+    private PendingRow toPendingRow(int index, TransactionDTO dto, LocalDateTime now, Map<Integer, TreeSet<String>> vins) {
+        Integer userId = dto.getUserId().intValue();
+        LocalDateTime timeDate = dto.getTimeDate() != null ? dto.getTimeDate() : now;
+        String status = dto.getStatus() != null ? dto.getStatus() : "PENDING";
+        TreeSet<String> userVins = vins.get(userId);
+        String vin = hasVin(dto) ? dto.getVin() : userVins != null ? userVins.first() : null;
+        Long paymentId = dto.getPaymentId() != null ? Long.parseLong(dto.getPaymentId()) : null;
+
+        Object[] args = {
+                userId, dto.getStationId(), dto.getPackageId(), Timestamp.valueOf(timeDate), dto.getRecord(),
+                dto.getAmount(), Timestamp.valueOf(now), status, paymentId, dto.getPayPalTransactionId(), vin
+        };
+        // TransactionDate = lúc upload, giống tạo đơn lẻ (các rollup doanh thu seed từ cột này);
+        // thời điểm swap thực tế đi trong timeDate của snapshot
+        TransactionSnapshot snapshot = new TransactionSnapshot(
+                userId, dto.getStationId(), dto.getPackageId(), dto.getAmount(), status, now, timeDate);
+        return new PendingRow(index, args, snapshot);
+    }
+
+    private record PendingRow(int index, Object[] args, TransactionSnapshot snapshot) {
+    }
+}
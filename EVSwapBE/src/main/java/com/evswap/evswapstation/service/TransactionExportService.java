@@ -0,0 +1,227 @@
+package com.evswap.evswapstation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Xuất toàn bộ giao dịch (CSV / NDJSON) cho kế toán: đọc qua JDBC cursor với fetchSize cố định
+ * và ghi thẳng từng dòng ra response, bộ nhớ không tăng theo số dòng.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {
+            "transactionId", "timeDate", "customerName", "customerEmail", "vin",
+            "amount", "paymentId", "status", "stationId"
+    };
+
+    private static final String BASE_SQL = """
+            SELECT t.TransactionID, t.TimeDate, u.FullName, u.email, t.VIN,
+                   t.Amount, t.PaymentID, t.Status, t.StationID
+            FROM Transactions t
+            LEFT JOIN Users u ON u.userID = t.UserID
+            WHERE 1 = 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final TaskExecutor taskExecutor;
+    private final long timeoutMs;
+
+    public TransactionExportService(DataSource dataSource, ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                    @Value("${transaction.export.fetch-size:1000}") int fetchSize,
+                                    @Value("${transaction.export.timeout-ms:1800000}") long timeoutMs) {
+        // JdbcTemplate riêng: fetchSize chỉ áp dụng cho export, không ảnh hưởng các query khác
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Chạy export trên taskExecutor và đẩy từng chunk qua ResponseBodyEmitter.
+     * Timeout đặt riêng cho response này (transaction.export.timeout-ms),
+     * các request async khác vẫn giữ timeout mặc định.
+     */
+    public ResponseBodyEmitter exportAsync(Format format, String status, Long stationId, LocalDate from, LocalDate to) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMs);
+        taskExecutor.execute(() -> {
+            try (OutputStream out = new EmitterOutputStream(emitter)) {
+                // Gọi nội bộ không qua proxy nên mở transaction readOnly bằng TransactionTemplate
+                readOnlyTx.executeWithoutResult(tx -> export(format, status, stationId, from, to, out));
+            } catch (IOException | RuntimeException e) {
+                // Client ngắt kết nối hoặc hết timeout: emitter đã đóng, chỉ cần dừng đọc DB
+                log.warn("Transaction export aborted: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return;
+            }
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    // readOnly: khi bật tách pool, export chạy trên pool đọc thay vì chiếm pool OLTP
+    @Transactional(readOnly = true)
+    public void export(Format format, String status, Long stationId, LocalDate from, LocalDate to, OutputStream out) {
+        StringBuilder sql = new StringBuilder(BASE_SQL);
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND t.Status = ?");
+            args.add(status);
+        }
+        if (stationId != null) {
+            sql.append(" AND t.StationID = ?");
+            args.add(stationId);
+        }
+        if (from != null) {
+            sql.append(" AND t.TimeDate >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND t.TimeDate < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        sql.append(" ORDER BY t.TimeDate DESC, t.TransactionID DESC");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            long rows;
+            if (format == Format.CSV) {
+                rows = writeCsv(sql.toString(), args, writer);
+            } else {
+                rows = writeNdjson(sql.toString(), args, writer);
+            }
+            writer.flush();
+            log.info("Exported {} transactions as {}", rows, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long writeCsv(String sql, List<Object> args, Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        long[] count = {0};
+        jdbcTemplate.query(sql, rs -> {
+            try {
+                for (int i = 1; i <= COLUMNS.length; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(csv(value(rs, i)));
+                }
+                writer.write('\n');
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, args.toArray());
+        return count[0];
+    }
+
+    private long writeNdjson(String sql, List<Object> args, Writer writer) throws IOException {
+        long[] count = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Mỗi object một dòng: tự xuống dòng thay cho dấu cách mặc định giữa các root value
+            generator.setRootValueSeparator(null);
+            jdbcTemplate.query(sql, rs -> {
+                try {
+                    generator.writeStartObject();
+                    for (int i = 1; i <= COLUMNS.length; i++) {
+                        Object value = rs.getObject(i);
+                        if (value instanceof BigDecimal amount) {
+                            generator.writeNumberField(COLUMNS[i - 1], amount);
+                        } else if (value instanceof Number number) {
+                            generator.writeNumberField(COLUMNS[i - 1], number.longValue());
+                        } else {
+                            generator.writeStringField(COLUMNS[i - 1], value(rs, i));
+                        }
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+        }
+        return count[0];
+    }
+
+    private static String value(ResultSet rs, int index) throws SQLException {
+        Object value = rs.getObject(index);
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    // Mỗi lần BufferedWriter của export flush thành một chunk gửi qua emitter
+    private static final class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        private EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            emitter.send(new byte[]{(byte) b});
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                emitter.send(Arrays.copyOfRange(b, off, off + len));
+            }
+        }
+    }
+}
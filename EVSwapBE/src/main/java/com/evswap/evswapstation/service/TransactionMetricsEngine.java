@@ -0,0 +1,167 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm in-memory (số giao dịch + doanh thu) theo giờ / ngày / tuần cho dashboard giao dịch.
+ * Seed bằng 1 câu SQL tổng hợp lúc khởi động, sau đó cập nhật theo TransactionChangedEvent,
+ * nên các endpoint /api/transactions/dashboard/* không còn phải đọc bảng Transactions.
+ * Doanh thu = tổng Amount của mọi giao dịch (giống cách tính cũ), lưu dưới dạng cent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionMetricsEngine {
+
+    // Giữ đủ dữ liệu cho tuần này + tuần trước, dư ra để không mất bucket khi qua tuần
+    private static final int RETENTION_WEEKS = 4;
+
+    private final TransactionRepository transactionRepository;
+
+    private final Map<LocalDateTime, Counter> hourly = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Counter> daily = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Counter> weekly = new ConcurrentHashMap<>();
+
+    /**
+     * Seed trước khi web server nhận request để không đếm trùng với event
+     */
+    @PostConstruct
+    public void seed() {
+        LocalDate since = startOfWeek(LocalDate.now()).minusWeeks(RETENTION_WEEKS - 1L);
+        try {
+            for (Object[] row : transactionRepository.sumCountAndRevenueByHour(since.atStartOfDay())) {
+                LocalDate day = (LocalDate) row[0];
+                int hour = ((Number) row[1]).intValue();
+                long count = ((Number) row[2]).longValue();
+                long cents = toCents(row[3] != null ? new BigDecimal(row[3].toString()) : null);
+                add(day.atTime(hour, 0), count, cents);
+            }
+            log.info("Transaction metrics seeded from {} ({} hourly buckets)", since, hourly.size());
+        } catch (Exception e) {
+            log.warn("Could not seed transaction metrics, starting empty: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = event.before();
+        TransactionSnapshot after = event.after();
+
+        if (before != null && before.transactionDate() != null) {
+            add(before.transactionDate(), -1, -toCents(before.amount()));
+        }
+        if (after != null && after.transactionDate() != null) {
+            add(after.transactionDate(), 1, toCents(after.amount()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        for (TransactionSnapshot created : event.created()) {
+            if (created.transactionDate() != null) {
+                add(created.transactionDate(), 1, toCents(created.amount()));
+            }
+        }
+    }
+
+    public Totals hour(LocalDateTime hour) {
+        return totalsOf(hourly.get(hour.truncatedTo(ChronoUnit.HOURS)));
+    }
+
+    public Totals day(LocalDate day) {
+        return totalsOf(daily.get(day));
+    }
+
+    public Totals week(LocalDate anyDayOfWeek) {
+        return totalsOf(weekly.get(startOfWeek(anyDayOfWeek)));
+    }
+
+    /**
+     * Số giao dịch theo giờ trong ngày (0..23), cộng dồn các ngày trong [from, to]
+     */
+    public long[] countsByHourOfDay(LocalDate from, LocalDate to) {
+        long[] counts = new long[24];
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (int h = 0; h < 24; h++) {
+                Counter counter = hourly.get(day.atTime(h, 0));
+                if (counter != null) {
+                    counts[h] += counter.count.sum();
+                }
+            }
+        }
+        return counts;
+    }
+
+    public static LocalDate startOfWeek(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private void add(LocalDateTime time, long count, long cents) {
+        LocalDateTime hourKey = time.truncatedTo(ChronoUnit.HOURS);
+        LocalDate weekKey = startOfWeek(hourKey.toLocalDate());
+
+        if (!weekly.containsKey(weekKey)) {
+            // Không dọn bên trong computeIfAbsent: ConcurrentHashMap cấm sửa mapping khác trong hàm đó
+            evictOlderThan(weekKey.minusWeeks(RETENTION_WEEKS - 1L));
+        }
+        hourly.computeIfAbsent(hourKey, k -> new Counter()).add(count, cents);
+        daily.computeIfAbsent(hourKey.toLocalDate(), k -> new Counter()).add(count, cents);
+        weekly.computeIfAbsent(weekKey, k -> new Counter()).add(count, cents);
+    }
+
+    // Chỉ chạy khi mở bucket tuần mới nên chi phí không đáng kể
+    private void evictOlderThan(LocalDate cutoff) {
+        hourly.keySet().removeIf(h -> h.toLocalDate().isBefore(cutoff));
+        daily.keySet().removeIf(d -> d.isBefore(cutoff));
+        weekly.keySet().removeIf(w -> w.isBefore(cutoff));
+    }
+
+    private Totals totalsOf(Counter counter) {
+        if (counter == null) {
+            return new Totals(0, BigDecimal.ZERO.setScale(2));
+        }
+        return new Totals(counter.count.sum(), BigDecimal.valueOf(counter.cents.sum(), 2));
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Số giao dịch và tổng doanh thu của một bucket
+     */
+    public record Totals(long count, BigDecimal revenue) {
+    }
+
+    private static final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cents = new LongAdder();
+
+        void add(long countDelta, long centsDelta) {
+            count.add(countDelta);
+            cents.add(centsDelta);
+        }
+    }
+}
@@ -1,22 +1,25 @@
 package com.evswap.evswapstation.service;
 
 import com.evswap.evswapstation.dto.*;
+import com.evswap.evswapstation.entity.PackagePlan;
 import com.evswap.evswapstation.entity.TransactionEntity;
 import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.entity.UserMonthlyCohort;
 import com.evswap.evswapstation.repository.BatteryRepository;
-import com.evswap.evswapstation.repository.PackagePlanRepository;
 import com.evswap.evswapstation.repository.TransactionRepository;
 import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Map;
@@ -27,12 +30,59 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
     private final BatteryRepository batteryRepository;
-    private final PackagePlanRepository packagePlanRepository;
+    private final PackagePlanService packagePlanService;
+    private final TransactionMetricsEngine metricsEngine;
+    private final StationLeaderboard stationLeaderboard;
+    private final UserCohortService userCohortService;
+    private final PackageRollupService packageRollupService;
+
+    private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final String[] MONTH_NAMES = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int MAX_PAGE_SIZE = 500;
+    // Màu sắc cho biểu đồ phân phối gói
+    private static final String[] PACKAGE_COLORS = {"#7241ce", "#A2F200", "#3b82f6", "#f59e0b",
+            "#ec4899", "#14b8a6", "#f97316", "#8b5cf6"};
+    // Khoảng ngày hợp lệ của kiểu DATE trong SQL Server, dùng khi không truyền from / to
+    private static final LocalDate ALL_TIME_FROM = LocalDate.of(1, 1, 1);
+    private static final LocalDate ALL_TIME_TO = LocalDate.of(9999, 12, 31);
 
+    /**
+     * Trang giao dịch theo keyset: chi phí mỗi trang không phụ thuộc vào độ sâu như OFFSET.
+     * to là ngày cuối cùng (bao gồm); size bị chặn ở MAX_PAGE_SIZE, cần toàn bộ thì dùng TransactionExportService.
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getAllTransactions() {
-        return transactionRepository.findAllTransactionsWithDetails();
+    public TransactionPageDTO getTransactionsPage(String status, Long stationId, LocalDate from, LocalDate to,
+                                                  String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        TransactionCursor after = TransactionCursor.decode(cursor);
+
+        List<TransactionDTO> rows = transactionRepository.findPageWithDetails(
+                status,
+                stationId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                after != null ? after.timeDate() : null,
+                after != null ? after.transactionId() : null,
+                PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        // @PrePersist luôn gán timeDate; dòng cũ thiếu timeDate nằm cuối danh sách và không có cursor tiếp theo
+        if (hasMore && items.get(items.size() - 1).getTimeDate() != null) {
+            TransactionDTO last = items.get(items.size() - 1);
+            nextCursor = new TransactionCursor(last.getTimeDate(), last.getTransactionId()).encode();
+        }
+
+        return TransactionPageDTO.builder()
+                .items(new ArrayList<>(items))
+                .size(pageSize)
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -83,6 +133,10 @@ public class TransactionService {
         transaction.setRecord(dto.getRecord());
         transaction.setPaymentId(dto.getPaymentId() != null ? Long.parseLong(dto.getPaymentId()) : null);
         transaction.setPayPalTransactionId(dto.getPayPalTransactionId());
+        // VIN client gửi lên (xe dùng để swap, phải là xe của user), không có thì lấy xe chính của user
+        transaction.setVin(dto.getVin() != null && !dto.getVin().isBlank()
+                ? checkVehicleOwner(dto.getVin(), user)
+                : vehicleRepository.findPrimaryVin(user.getUserID()));
 
         TransactionEntity saved = transactionRepository.save(transaction);
         return convertToDTO(saved);
@@ -95,12 +149,19 @@ public class TransactionService {
     public TransactionDTO updateTransaction(Long id, TransactionDTO dto) {
         return transactionRepository.findById(id)
                 .map(transaction -> {
-                    // Update User nếu có
+                    // Update User nếu có; kiểm tra VIN theo user sau cập nhật trước khi sửa entity
+                    User user = transaction.getUser();
                     if (dto.getUserId() != null) {
-                        User user = userRepository.findById(dto.getUserId().intValue())
+                        user = userRepository.findById(dto.getUserId().intValue())
                                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + dto.getUserId()));
-                        transaction.setUser(user);
                     }
+                    if (dto.getVin() != null) {
+                        transaction.setVin(checkVehicleOwner(dto.getVin(), user));
+                    } else if (dto.getUserId() != null && (transaction.getUser() == null
+                            || !user.getUserID().equals(transaction.getUser().getUserID()))) {
+                        transaction.setVin(vehicleRepository.findPrimaryVin(user.getUserID()));
+                    }
+                    transaction.setUser(user);
 
                     // Update các field khác nếu có giá trị mới
                     if (dto.getStationId() != null) {
@@ -134,6 +195,17 @@ public class TransactionService {
                 .orElse(null);
     }
 
+    // VIN lưu vào giao dịch phải thuộc một xe user đã đăng ký
+    private String checkVehicleOwner(String vin, User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User ID is required to set a VIN");
+        }
+        if (!vehicleRepository.existsByVinAndUser_UserID(vin, user.getUserID())) {
+            throw new IllegalArgumentException("VIN " + vin + " is not registered to user " + user.getUserID());
+        }
+        return vin;
+    }
+
     /**
      * Xóa giao dịch
      */
@@ -170,8 +242,7 @@ public class TransactionService {
             dto.setCustomerEmail(transaction.getUser().getEmail());
         }
 
-        // VIN sẽ null nếu không có Vehicle relationship
-        dto.setVin(null);
+        dto.setVin(transaction.getVin());
 
         return dto;
     }
@@ -186,39 +257,23 @@ public class TransactionService {
     /**
      * Lấy thống kê tổng quan cho dashboard (sử dụng Battery data thật)
      */
+    @Transactional(readOnly = true)
     public DashboardStatsDTO getDashboardStats() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfWeek = now.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime startOfLastWeek = startOfWeek.minusWeeks(1);
+        LocalDate startOfWeek = TransactionMetricsEngine.startOfWeek(LocalDate.now());
 
-        // Giao dịch tuần này
-        List<TransactionEntity> thisWeek = transactionRepository
-                .findByTransactionDateBetween(startOfWeek, now);
-
-        // Giao dịch tuần trước
-        List<TransactionEntity> lastWeek = transactionRepository
-                .findByTransactionDateBetween(startOfLastWeek, startOfWeek);
+        // Giao dịch tuần này / tuần trước (đọc từ bộ đếm in-memory)
+        TransactionMetricsEngine.Totals thisWeek = metricsEngine.week(startOfWeek);
+        TransactionMetricsEngine.Totals lastWeek = metricsEngine.week(startOfWeek.minusWeeks(1));
 
         // Tính tổng giao dịch
-        long totalTransactions = thisWeek.size();
-        long lastWeekTransactions = lastWeek.size();
-        double transactionGrowth = calculateGrowth(totalTransactions, lastWeekTransactions);
+        long totalTransactions = thisWeek.count();
+        double transactionGrowth = calculateGrowth(totalTransactions, lastWeek.count());
 
         // Tính tổng doanh thu
-        BigDecimal totalRevenue = thisWeek.stream()
-                .map(TransactionEntity::getAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal lastWeekRevenue = lastWeek.stream()
-                .map(TransactionEntity::getAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+        BigDecimal totalRevenue = thisWeek.revenue();
         double revenueGrowth = calculateGrowth(
                 totalRevenue.doubleValue(),
-                lastWeekRevenue.doubleValue()
+                lastWeek.revenue().doubleValue()
         );
 
         // ✅ Thống kê pin từ Battery table (DATA THẬT)
@@ -241,30 +296,14 @@ public class TransactionService {
     /**
      * Lấy số lượng giao dịch theo từng ngày trong tuần
      */
+    @Transactional(readOnly = true)
     public List<TransactionByDayDTO> getTransactionsByDay() {
-        LocalDateTime startOfWeek = LocalDateTime.now()
-                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime endOfWeek = startOfWeek.plusWeeks(1);
-
-        List<TransactionEntity> transactions = transactionRepository
-                .findByTransactionDateBetween(startOfWeek, endOfWeek);
-
-        // Group by day
-        Map<String, Long> countByDay = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getTransactionDate().getDayOfWeek().toString(),
-                        Collectors.counting()
-                ));
-
-        // Convert to DTO với thứ tự đúng
-        String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY"};
-        String[] dayNames = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+        LocalDate startOfWeek = TransactionMetricsEngine.startOfWeek(LocalDate.now());
 
         List<TransactionByDayDTO> result = new ArrayList<>();
-        for (int i = 0; i < days.length; i++) {
-            Long count = countByDay.getOrDefault(days[i], 0L);
-            result.add(new TransactionByDayDTO(dayNames[i], count));
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            long count = metricsEngine.day(startOfWeek.plusDays(i)).count();
+            result.add(new TransactionByDayDTO(DAY_NAMES[i], count));
         }
 
         return result;
@@ -273,35 +312,14 @@ public class TransactionService {
     /**
      * Lấy doanh thu theo từng ngày trong tuần
      */
+    @Transactional(readOnly = true)
     public List<RevenueByDayDTO> getRevenueByDay() {
-        LocalDateTime startOfWeek = LocalDateTime.now()
-                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime endOfWeek = startOfWeek.plusWeeks(1);
-
-        List<TransactionEntity> transactions = transactionRepository
-                .findByTransactionDateBetween(startOfWeek, endOfWeek);
-
-        // Group by day và sum amount
-        Map<String, BigDecimal> revenueByDay = transactions.stream()
-                .filter(t -> t.getAmount() != null)
-                .collect(Collectors.groupingBy(
-                        t -> t.getTransactionDate().getDayOfWeek().toString(),
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                TransactionEntity::getAmount,
-                                BigDecimal::add
-                        )
-                ));
-
-        // Convert to DTO
-        String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY"};
-        String[] dayNames = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+        LocalDate startOfWeek = TransactionMetricsEngine.startOfWeek(LocalDate.now());
 
         List<RevenueByDayDTO> result = new ArrayList<>();
-        for (int i = 0; i < days.length; i++) {
-            BigDecimal revenue = revenueByDay.getOrDefault(days[i], BigDecimal.ZERO);
-            result.add(new RevenueByDayDTO(dayNames[i], revenue));
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            BigDecimal revenue = metricsEngine.day(startOfWeek.plusDays(i)).revenue();
+            result.add(new RevenueByDayDTO(DAY_NAMES[i], revenue));
         }
 
         return result;
@@ -310,6 +328,7 @@ public class TransactionService {
     /**
      * Lấy phân bổ trạng thái pin (dùng data thật từ Battery table)
      */
+    @Transactional(readOnly = true)
     public BatteryStatusDTO getBatteryStatusDistribution() {
         try {
             List<Object[]> statusCounts = batteryRepository.countByStatusGrouped();
@@ -353,37 +372,21 @@ public class TransactionService {
     /**
      * So sánh tuần này vs tuần trước
      */
+    @Transactional(readOnly = true)
     public WeeklyComparisonDTO getWeeklyComparison() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfWeek = now.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime startOfLastWeek = startOfWeek.minusWeeks(1);
-
-        // Current week
-        List<TransactionEntity> thisWeek = transactionRepository
-                .findByTransactionDateBetween(startOfWeek, now);
-        long currentTransactions = thisWeek.size();
-        BigDecimal currentRevenue = thisWeek.stream()
-                .map(TransactionEntity::getAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Last week
-        List<TransactionEntity> lastWeek = transactionRepository
-                .findByTransactionDateBetween(startOfLastWeek, startOfWeek);
-        long lastTransactions = lastWeek.size();
-        BigDecimal lastRevenue = lastWeek.stream()
-                .map(TransactionEntity::getAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        LocalDate startOfWeek = TransactionMetricsEngine.startOfWeek(LocalDate.now());
+
+        TransactionMetricsEngine.Totals thisWeek = metricsEngine.week(startOfWeek);
+        TransactionMetricsEngine.Totals lastWeek = metricsEngine.week(startOfWeek.minusWeeks(1));
 
         // Calculate growth
-        double transactionGrowth = calculateGrowth(currentTransactions, lastTransactions);
-        double revenueGrowth = calculateGrowth(currentRevenue.doubleValue(), lastRevenue.doubleValue());
+        double transactionGrowth = calculateGrowth(thisWeek.count(), lastWeek.count());
+        double revenueGrowth = calculateGrowth(
+                thisWeek.revenue().doubleValue(), lastWeek.revenue().doubleValue());
 
         return new WeeklyComparisonDTO(
-                new WeeklyComparisonDTO.WeekData(currentTransactions, currentRevenue),
-                new WeeklyComparisonDTO.WeekData(lastTransactions, lastRevenue),
+                new WeeklyComparisonDTO.WeekData(thisWeek.count(), thisWeek.revenue()),
+                new WeeklyComparisonDTO.WeekData(lastWeek.count(), lastWeek.revenue()),
                 new WeeklyComparisonDTO.GrowthData(transactionGrowth, revenueGrowth)
         );
     }
@@ -391,6 +394,7 @@ public class TransactionService {
     /**
      * Lấy toàn bộ dữ liệu dashboard (tối ưu 1 request)
      */
+    @Transactional(readOnly = true)
     public DashboardSummaryDTO getDashboardSummary() {
         return new DashboardSummaryDTO(
                 getDashboardStats(),
@@ -415,157 +419,128 @@ public class TransactionService {
     /**
      * Lấy dữ liệu Peak Hours (giao dịch theo giờ trong ngày)
      */
+    @Transactional(readOnly = true)
     public List<PeakHoursDTO> getPeakHoursData() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfWeek = now.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
-                .withHour(0).withMinute(0).withSecond(0);
-
-        List<Object[]> results = transactionRepository.countByHourOfDay(startOfWeek, now);
-
-        // Tạo map với tất cả 24 giờ, mặc định = 0
-        Map<String, Long> hourMap = new java.util.LinkedHashMap<>();
-        for (int i = 0; i < 24; i += 3) { // Mỗi 3 tiếng
-            String hour = String.format("%02d:00", i);
-            hourMap.put(hour, 0L);
-        }
-
-        // Fill data thật
-        for (Object[] row : results) {
-            String hour = (String) row[0];
-            Long count = ((Number) row[1]).longValue();
-            hourMap.put(hour, count);
-        }
+        LocalDate today = LocalDate.now();
+        long[] counts = metricsEngine.countsByHourOfDay(TransactionMetricsEngine.startOfWeek(today), today);
 
+        // Gom 24 giờ vào 8 khung 3 tiếng ("00:00", "03:00", ...) để nhãn luôn cố định
         List<PeakHoursDTO> peakHours = new ArrayList<>();
-        for (Map.Entry<String, Long> entry : hourMap.entrySet()) {
-            peakHours.add(new PeakHoursDTO(entry.getKey(), entry.getValue()));
+        for (int start = 0; start < 24; start += 3) {
+            long swaps = counts[start] + counts[start + 1] + counts[start + 2];
+            peakHours.add(new PeakHoursDTO(String.format("%02d:00", start), swaps));
         }
 
         return peakHours;
     }
 
     /**
-     * Lấy top performing stations
+     * Top k trạm trong ngày / tuần / tháng chứa day (null = kỳ hiện tại), đọc từ StationLeaderboard (không query DB)
      */
-    public List<StationPerformanceDTO> getTopPerformingStations() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfMonth = now.withDayOfMonth(1)
-                .withHour(0).withMinute(0).withSecond(0);
-
-        // Capacity mặc định cho mỗi station
-        Integer totalCapacity = 500; // 500 swaps/tháng per station
-
-        List<Object[]> results = transactionRepository.findTopStationPerformance(
-                startOfMonth, now, totalCapacity);
-
-        List<StationPerformanceDTO> stations = new ArrayList<>();
-        for (Object[] row : results) {
-            String stationName = (String) row[0];
-            Long totalSwaps = ((Number) row[1]).longValue();
-            BigDecimal revenue = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
-            Integer utilization = ((Number) row[3]).intValue();
-
-            stations.add(new StationPerformanceDTO(
-                    stationName, totalSwaps, revenue, utilization));
-        }
-
-        // Giới hạn top 5
-        return stations.stream()
-                .limit(5)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<StationPerformanceDTO> getTopPerformingStations(StationLeaderboard.Period period, LocalDate day, int k) {
+        return day != null ? stationLeaderboard.top(period, day, k) : stationLeaderboard.top(period, k);
     }
 
     /**
-     * Lấy user growth trend (7 tháng gần nhất)
+     * Lấy user growth trend (7 tháng gần nhất), đọc từ UserMonthlyCohort
      */
+    @Transactional(readOnly = true)
     public UserGrowthDTO getUserGrowthTrend() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startDate = now.minusMonths(6)
-                .withDayOfMonth(1)
-                .withHour(0).withMinute(0).withSecond(0);
-
-        // Lấy tổng số user mới mỗi tháng
-        List<Object[]> newUsersData = transactionRepository.countUsersByMonth(startDate, now);
-
-        // Lấy số user active mỗi tháng (có giao dịch)
-        List<Object[]> activeUsersData = transactionRepository.countActiveUsersByMonth(startDate, now);
-
-        // Map active users theo tháng
-        Map<Integer, Long> activeUserMap = new java.util.HashMap<>();
-        for (Object[] row : activeUsersData) {
-            Integer month = ((Number) row[0]).intValue();
-            Long count = ((Number) row[1]).longValue();
-            activeUserMap.put(month, count);
-        }
-
-        List<UserGrowthDTO.MonthlyUserData> monthlyData = new ArrayList<>();
+        LocalDate currentMonth = UserCohortService.monthStart(LocalDate.now());
+        LocalDate firstMonth = currentMonth.minusMonths(6);
 
-        // Build data theo 7 tháng
-        String[] monthNames = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
-                "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+        Map<LocalDate, UserMonthlyCohort> cohorts = userCohortService.getRange(firstMonth, currentMonth);
 
-        long cumulativeUsers = 0;
-        for (Object[] row : newUsersData) {
-            String monthName = (String) row[0];
-            Long newUsers = ((Number) row[1]).longValue();
-            Integer monthNum = ((Number) row[2]).intValue();
+        // Tổng user thật: cộng dồn từ mọi tháng trước khoảng hiển thị
+        long cumulativeUsers = userCohortService.totalUsersBefore(firstMonth);
 
+        List<UserGrowthDTO.MonthlyUserData> monthlyData = new ArrayList<>();
+        for (LocalDate month = firstMonth; !month.isAfter(currentMonth); month = month.plusMonths(1)) {
+            UserMonthlyCohort cohort = cohorts.get(month);
+            long newUsers = cohort != null ? cohort.getNewUsers() : 0L;
+            long activeUsers = cohort != null ? cohort.getActiveUsers() : 0L;
             cumulativeUsers += newUsers;
-            Long activeUsers = activeUserMap.getOrDefault(monthNum, 0L);
 
             monthlyData.add(new UserGrowthDTO.MonthlyUserData(
-                    monthName, cumulativeUsers, activeUsers));
+                    MONTH_NAMES[month.getMonthValue() - 1], cumulativeUsers, activeUsers,
+                    month.getYear(), newUsers));
         }
 
         return new UserGrowthDTO(monthlyData);
     }
 
     /**
-     * Lấy subscription distribution (từ PackagePlan)
+     * Phân phối gói (số giao dịch COMPLETED + doanh thu) trong [from, to], đọc từ PackageDailyRollup.
+     * from / to null nghĩa là không giới hạn.
      */
-    public SubscriptionDistributionDTO getSubscriptionDistribution() {
-        try {
-            List<Object[]> results = packagePlanRepository.countTransactionsByPackage();
-
-            if (results.isEmpty()) {
-                // Trả về data mẫu nếu chưa có dữ liệu
-                return new SubscriptionDistributionDTO(1250L, 842L, 523L, 187L);
-            }
-
-            // Tính tổng để có phần trăm
-            long total = results.stream()
-                    .mapToLong(row -> ((Number) row[1]).longValue())
-                    .sum();
-
-            List<SubscriptionDistributionDTO.PackageDistribution> packages = new ArrayList<>();
+    @Transactional(readOnly = true)
+    public SubscriptionDistributionDTO getSubscriptionDistribution(LocalDate from, LocalDate to) {
+        List<PackageRevenueDTO> rows = getPackageTotals(from, to);
+        rows.sort(Comparator.comparingLong(PackageRevenueDTO::getCompletedTransactions).reversed());
+
+        long total = rows.stream().mapToLong(PackageRevenueDTO::getCompletedTransactions).sum();
+
+        List<SubscriptionDistributionDTO.PackageDistribution> packages = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            PackageRevenueDTO row = rows.get(i);
+            long count = row.getCompletedTransactions();
+            packages.add(new SubscriptionDistributionDTO.PackageDistribution(
+                    row.getPackageName(),
+                    count,
+                    PACKAGE_COLORS[i % PACKAGE_COLORS.length],
+                    total > 0 ? Math.round((count * 100.0 / total) * 100.0) / 100.0 : 0.0,
+                    row.getRevenue()));
+        }
 
-            // Màu sắc cho biểu đồ (có thể thêm nhiều màu hơn)
-            String[] colors = {"#7241ce", "#A2F200", "#3b82f6", "#f59e0b",
-                    "#ec4899", "#14b8a6", "#f97316", "#8b5cf6"};
+        return new SubscriptionDistributionDTO(packages);
+    }
 
-            int index = 0;
-            for (Object[] row : results) {
-                String packageName = (String) row[0];
-                Long count = ((Number) row[1]).longValue();
-                String color = colors[index % colors.length];
+    /**
+     * Doanh thu theo gói trong [from, to], giảm dần theo doanh thu
+     */
+    @Transactional(readOnly = true)
+    public List<PackageRevenueDTO> getRevenueByPackage(LocalDate from, LocalDate to) {
+        List<PackageRevenueDTO> rows = getPackageTotals(from, to);
+        rows.sort(Comparator.comparing(PackageRevenueDTO::getRevenue).reversed());
+
+        BigDecimal total = rows.stream().map(PackageRevenueDTO::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        for (PackageRevenueDTO row : rows) {
+            row.setPercentage(total.signum() > 0
+                    ? Math.round(row.getRevenue().doubleValue() * 100.0 / total.doubleValue() * 100.0) / 100.0
+                    : 0.0);
+        }
+        return rows;
+    }
 
-                // Tính phần trăm
-                Double percentage = total > 0
-                        ? Math.round((count * 100.0 / total) * 100.0) / 100.0
-                        : 0.0;
+    private List<PackageRevenueDTO> getPackageTotals(LocalDate from, LocalDate to) {
+        Map<Long, PackageRollupService.Totals> totals = packageRollupService.getTotals(
+                from != null ? from : ALL_TIME_FROM,
+                to != null ? to : ALL_TIME_TO);
 
-                packages.add(new SubscriptionDistributionDTO.PackageDistribution(
-                        packageName, count, color, percentage));
+        // Tên gói lấy từ danh mục đã cache trong PackagePlanService, không JOIN / query PackagePlans mỗi lần
+        Map<Long, String> names = new HashMap<>();
+        packagePlanService.getAll().forEach(p -> names.put(p.getPackageId().longValue(), p.getPackageName()));
 
-                index++;
+        List<PackageRevenueDTO> rows = new ArrayList<>();
+        totals.forEach((packageId, t) -> {
+            if (t.count() <= 0) {
+                return;
             }
+            rows.add(PackageRevenueDTO.builder()
+                    .packageId(packageId)
+                    .packageName(names.containsKey(packageId) ? names.get(packageId) : lookupPackageName(packageId))
+                    .completedTransactions(t.count())
+                    .revenue(t.revenue())
+                    .build());
+        });
+        return rows;
+    }
 
-            return new SubscriptionDistributionDTO(packages);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Fallback về data mẫu nếu có lỗi
-            return new SubscriptionDistributionDTO(1250L, 842L, 523L, 187L);
-        }
+    // Gói chưa có trong danh mục cache (vừa tạo ở instance khác): getById đọc DB và nạp lại danh mục
+    private String lookupPackageName(Long packageId) {
+        return packagePlanService.getById(packageId.intValue())
+                .map(PackagePlan::getPackageName)
+                .orElse("Package #" + packageId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.entity.UserMonthlyCohort;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.event.UserCreatedEvent;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserMonthlyActiveUserRepository;
+import com.evswap.evswapstation.repository.UserMonthlyCohortRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Duy trì bảng UserMonthlyCohort (user mới / user active theo tháng) cho biểu đồ user growth.
+ * User active của tháng theo bảng presence UserMonthlyActiveUser: tăng khi (user, tháng) được đánh dấu lần đầu,
+ * giảm khi giao dịch cuối cùng của user trong tháng bị xóa / dời đi; chỉ chạy sau khi transaction gốc commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserCohortService {
+
+    private final UserMonthlyCohortRepository cohortRepository;
+    private final UserMonthlyActiveUserRepository activeUserRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Các tháng trong [fromMonth, toMonth] (ngày đầu tháng), tháng không có dữ liệu sẽ không có dòng
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, UserMonthlyCohort> getRange(LocalDate fromMonth, LocalDate toMonth) {
+        Map<LocalDate, UserMonthlyCohort> result = new TreeMap<>();
+        for (UserMonthlyCohort row : cohortRepository.findByMonthStartBetweenOrderByMonthStartAsc(fromMonth, toMonth)) {
+            result.put(row.getMonthStart(), row);
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public long totalUsersBefore(LocalDate monthStart) {
+        return cohortRepository.sumNewUsersBefore(monthStart);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onUserCreated(UserCreatedEvent event) {
+        LocalDate day = event.createdAt() != null ? event.createdAt().toLocalDate() : LocalDate.now();
+        cohortRepository.increment(monthStart(day), 1, 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        TransactionSnapshot before = event.before();
+        TransactionSnapshot after = event.after();
+        LocalDate oldMonth = monthOf(before);
+        LocalDate newMonth = monthOf(after);
+        Integer oldUser = before != null ? before.userId() : null;
+        Integer newUser = after != null ? after.userId() : null;
+
+        // Chỉ cần chỉnh khi giao dịch được tạo, bị xóa, dời sang tháng khác hoặc đổi user
+        if (Objects.equals(oldMonth, newMonth) && Objects.equals(oldUser, newUser)) {
+            return;
+        }
+        // Đánh dấu (user, tháng) mới trước rồi mới bỏ đánh dấu cái cũ
+        if (newMonth != null) {
+            adjust(newMonth, markActive(newUser, newMonth));
+        }
+        if (oldMonth != null) {
+            adjust(oldMonth, -unmarkIfIdle(oldUser, oldMonth));
+        }
+    }
+
+    /**
+     * Cả lô insert hàng loạt: một increment cho mỗi tháng.
+     * ActiveUsers chỉ tăng với các (user, tháng) lần đầu được đánh dấu trong bảng UserMonthlyActiveUser.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onTransactionsBulkInserted(TransactionsBulkInsertedEvent event) {
+        Set<UserMonth> userMonths = new HashSet<>();
+        for (TransactionSnapshot created : event.created()) {
+            LocalDate month = monthOf(created);
+            if (month != null && created.userId() != null) {
+                userMonths.add(new UserMonth(created.userId(), month));
+            }
+        }
+
+        Map<LocalDate, Long> newActiveByMonth = new TreeMap<>();
+        for (UserMonth userMonth : userMonths) {
+            newActiveByMonth.merge(userMonth.month(), markActive(userMonth.userId(), userMonth.month()), Long::sum);
+        }
+        newActiveByMonth.forEach(this::adjust);
+    }
+
+    /**
+     * Backfill một lần khi bảng cohort còn trống (lần deploy đầu tiên)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (cohortRepository.count() > 0) {
+            return;
+        }
+
+        Map<LocalDate, UserMonthlyCohort> rows = new TreeMap<>();
+        for (Object[] row : userRepository.countNewUsersByMonth()) {
+            LocalDate month = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+            rows.computeIfAbsent(month, this::emptyRow).setNewUsers(((Number) row[2]).longValue());
+        }
+        for (Object[] row : transactionRepository.countActiveUsersByYearMonth()) {
+            LocalDate month = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+            rows.computeIfAbsent(month, this::emptyRow).setActiveUsers(((Number) row[2]).longValue());
+        }
+
+        List<UserMonthlyCohort> toSave = List.copyOf(rows.values());
+        cohortRepository.saveAll(toSave);
+        log.info("Backfilled UserMonthlyCohort with {} months", toSave.size());
+    }
+
+    /**
+     * Bảng UserMonthlyActiveUser trống (mới tạo): dựng lại từ Transactions rồi tính lại ActiveUsers theo nó
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillActiveUsersIfEmpty() {
+        if (activeUserRepository.count() > 0) {
+            return;
+        }
+        int marked = activeUserRepository.backfillFromTransactions();
+        cohortRepository.recomputeActiveUsers();
+        log.info("Backfilled UserMonthlyActiveUser with {} (user, month) rows", marked);
+    }
+
+    public static LocalDate monthStart(LocalDate day) {
+        return day.withDayOfMonth(1);
+    }
+
+    private void adjust(LocalDate month, long activeUsers) {
+        if (activeUsers != 0) {
+            cohortRepository.increment(month, 0, activeUsers);
+        }
+    }
+
+    // 1 nếu đây là giao dịch đầu tiên của user trong tháng (dòng presence mới được tạo)
+    private long markActive(Integer userId, LocalDate month) {
+        return userId == null ? 0 : activeUserRepository.markActive(month, userId);
+    }
+
+    // 1 nếu user không còn giao dịch nào trong tháng (dòng presence bị xóa)
+    private long unmarkIfIdle(Integer userId, LocalDate month) {
+        if (userId == null) {
+            return 0;
+        }
+        return activeUserRepository.unmarkIfIdle(month, userId,
+                month.atStartOfDay(), month.plusMonths(1).atStartOfDay());
+    }
+
+    private static LocalDate monthOf(TransactionSnapshot snapshot) {
+        return snapshot != null && snapshot.transactionDate() != null
+                ? monthStart(snapshot.transactionDate().toLocalDate()) : null;
+    }
+
+    private UserMonthlyCohort emptyRow(LocalDate month) {
+        return new UserMonthlyCohort(month, 0, 0);
+    }
+
+    private record UserMonth(Integer userId, LocalDate month) {
+    }
+}
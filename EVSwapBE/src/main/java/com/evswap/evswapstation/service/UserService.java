@@ -3,6 +3,7 @@ package com.evswap.evswapstation.service;
 import com.evswap.evswapstation.entity.User;
 import com.evswap.evswapstation.enums.Role;
 import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
 
     // Lấy tất cả người dùng
     public List<User> getAll() {
@@ -46,6 +48,8 @@ public class UserService {
     public User update(Integer id, User user) {
         return userRepository.findById(id)
                 .map(u -> {
+                    // Email / role có thể đổi nên bỏ cache của email cũ
+                    userDetailsCache.invalidate(u.getEmail());
                     u.setFullName(user.getFullName());
                     u.setPhone(user.getPhone());
                     u.setEmail(user.getEmail());
@@ -57,12 +61,15 @@ public class UserService {
                         u.setPassword(passwordEncoder.encode(user.getPassword()));
                     }
 
-                    return userRepository.save(u);
+                    User saved = userRepository.save(u);
+                    userDetailsCache.invalidate(saved.getEmail());
+                    return saved;
                 }).orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     // Xóa người dùng
     public void delete(Integer id) {
+        userRepository.findById(id).ifPresent(u -> userDetailsCache.invalidate(u.getEmail()));
         userRepository.deleteById(id);
     }
 
@@ -82,7 +89,9 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         existingUser.setStatus(status); // Cập nhật trạng thái hợp lệ
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        userDetailsCache.invalidate(saved.getEmail());
+        return saved;
     }
 
     // Cập nhật vai trò của người dùng
@@ -92,6 +101,8 @@ public class UserService {
 
         existingUser.setRole(role); // Set vai trò mới
 
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        userDetailsCache.invalidate(saved.getEmail());
+        return saved;
     }
 }
@@ -0,0 +1,24 @@
+-- Bảng tổng hợp theo ngày cho admin dashboard (DailyStatsRollup entity).
+-- Chạy một lần trên SQL Server; dữ liệu cũ được backfill tự động khi app khởi động với bảng trống.
+IF OBJECT_ID('dbo.DailyStatsRollup', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.DailyStatsRollup (
+        StatDate    DATE   NOT NULL PRIMARY KEY,
+        SwapCount   BIGINT NOT NULL DEFAULT 0,
+        NewUsers    BIGINT NOT NULL DEFAULT 0,
+        ActiveUsers BIGINT NOT NULL DEFAULT 0
+    );
+END
+GO
+
+-- (ngày, user) đã có giao dịch: ActiveUsers chỉ tăng / giảm khi một dòng ở đây được thêm / xóa.
+-- Bảng trống sẽ được app backfill từ Transactions và ActiveUsers được tính lại theo nó.
+IF OBJECT_ID('dbo.DailyActiveUser', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.DailyActiveUser (
+        StatDate DATE NOT NULL,
+        UserID   INT  NOT NULL,
+        CONSTRAINT PK_DailyActiveUser PRIMARY KEY (StatDate, UserID)
+    );
+END
+GO
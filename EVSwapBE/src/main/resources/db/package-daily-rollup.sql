@@ -0,0 +1,14 @@
+-- Số giao dịch COMPLETED và doanh thu theo (ngày, gói) cho biểu đồ phân phối gói / doanh thu theo gói
+-- (PackageDailyRollup entity).
+-- Chạy một lần trên SQL Server; dữ liệu cũ được backfill tự động khi app khởi động với bảng trống.
+IF OBJECT_ID('dbo.PackageDailyRollup', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.PackageDailyRollup (
+        StatDate       DATE           NOT NULL,
+        PackageID      BIGINT         NOT NULL,
+        CompletedCount BIGINT         NOT NULL DEFAULT 0,
+        Revenue        DECIMAL(18, 2) NOT NULL DEFAULT 0,
+        CONSTRAINT PK_PackageDailyRollup PRIMARY KEY (StatDate, PackageID)
+    );
+END
+GO
@@ -0,0 +1,28 @@
+-- Histogram giao dịch theo giờ trong tuần cho từng trạm (StationPeakHoursHistogram).
+-- HourOfWeek = thứ (Thứ 2 = 0) * 24 + giờ; WeekStart là ngày Thứ 2 của tuần.
+-- Chạy một lần trước khi khởi động phiên bản mới: script backfill từ dữ liệu Transactions hiện có
+-- theo thời điểm swap (TimeDate, thiếu thì TransactionDate), sau đó app tự MERGE phần tăng thêm theo chu kỳ.
+-- Bảng đã backfill theo TransactionDate từ bản trước: DROP TABLE dbo.StationPeakHours rồi chạy lại script.
+IF OBJECT_ID('dbo.StationPeakHours', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.StationPeakHours (
+        StationID  BIGINT   NOT NULL,
+        WeekStart  DATE     NOT NULL,
+        HourOfWeek SMALLINT NOT NULL,
+        SwapCount  BIGINT   NOT NULL DEFAULT 0,
+        CONSTRAINT PK_StationPeakHours PRIMARY KEY (StationID, WeekStart, HourOfWeek)
+    );
+
+    -- 1900-01-01 là Thứ 2 nên DATEDIFF(DAY, '19000101', d) % 7 không phụ thuộc SET DATEFIRST
+    INSERT INTO dbo.StationPeakHours (StationID, WeekStart, HourOfWeek, SwapCount)
+    SELECT StationID,
+           DATEADD(DAY, -(DATEDIFF(DAY, '19000101', SwapTime) % 7), CAST(SwapTime AS DATE)),
+           (DATEDIFF(DAY, '19000101', SwapTime) % 7) * 24 + DATEPART(HOUR, SwapTime),
+           COUNT(*)
+    FROM (SELECT StationID, COALESCE(TimeDate, TransactionDate) AS SwapTime FROM dbo.Transactions) t
+    WHERE StationID IS NOT NULL AND SwapTime IS NOT NULL
+    GROUP BY StationID,
+             DATEADD(DAY, -(DATEDIFF(DAY, '19000101', SwapTime) % 7), CAST(SwapTime AS DATE)),
+             (DATEDIFF(DAY, '19000101', SwapTime) % 7) * 24 + DATEPART(HOUR, SwapTime);
+END
+GO
@@ -0,0 +1,10 @@
+-- Index cho danh sách giao dịch theo keyset (GET /api/transactions) và export:
+-- ORDER BY TimeDate DESC, TransactionID DESC đọc thẳng theo index, không phải sort toàn bảng.
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Transactions_TimeDate_TransactionID'
+               AND object_id = OBJECT_ID('dbo.Transactions'))
+BEGIN
+    CREATE INDEX IX_Transactions_TimeDate_TransactionID
+        ON dbo.Transactions (TimeDate DESC, TransactionID DESC)
+        INCLUDE (UserID, StationID, Status, Amount, PaymentID);
+END
+GO
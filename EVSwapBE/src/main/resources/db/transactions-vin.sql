@@ -0,0 +1,27 @@
+-- Cột VIN trên Transactions (TransactionEntity.vin): VIN được ghi lúc tạo giao dịch,
+-- danh sách / export không còn JOIN Vehicle + GROUP BY để lấy MIN(vin).
+-- Chạy sau transactions-keyset-index.sql.
+IF COL_LENGTH('dbo.Transactions', 'VIN') IS NULL
+BEGIN
+    ALTER TABLE dbo.Transactions ADD VIN NVARCHAR(255) NULL;
+END
+GO
+
+-- Backfill giao dịch cũ bằng VIN chính của user (giống kết quả MIN(vin) trước đây)
+UPDATE t
+SET t.VIN = v.PrimaryVin
+FROM dbo.Transactions t
+JOIN (SELECT userID, MIN(vin) AS PrimaryVin FROM dbo.Vehicle GROUP BY userID) v ON v.userID = t.UserID
+WHERE t.VIN IS NULL;
+GO
+
+-- Đưa VIN vào index keyset để danh sách giao dịch chỉ cần đọc index
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Transactions_TimeDate_TransactionID'
+           AND object_id = OBJECT_ID('dbo.Transactions'))
+BEGIN
+    DROP INDEX IX_Transactions_TimeDate_TransactionID ON dbo.Transactions;
+END
+CREATE INDEX IX_Transactions_TimeDate_TransactionID
+    ON dbo.Transactions (TimeDate DESC, TransactionID DESC)
+    INCLUDE (UserID, StationID, Status, Amount, PaymentID, VIN);
+GO
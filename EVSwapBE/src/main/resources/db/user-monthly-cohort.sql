@@ -0,0 +1,24 @@
+-- Bảng user mới / user active theo tháng cho biểu đồ user growth (UserMonthlyCohort entity).
+-- MonthStart là ngày đầu tháng, nên dữ liệu của các năm khác nhau không bị gộp chung.
+-- Chạy một lần trên SQL Server; dữ liệu cũ được backfill tự động khi app khởi động với bảng trống.
+IF OBJECT_ID('dbo.UserMonthlyCohort', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.UserMonthlyCohort (
+        MonthStart  DATE   NOT NULL PRIMARY KEY,
+        NewUsers    BIGINT NOT NULL DEFAULT 0,
+        ActiveUsers BIGINT NOT NULL DEFAULT 0
+    );
+END
+GO
+
+-- (tháng, user) đã có giao dịch: ActiveUsers chỉ tăng / giảm khi một dòng ở đây được thêm / xóa.
+-- Bảng trống sẽ được app backfill từ Transactions và ActiveUsers được tính lại theo nó.
+IF OBJECT_ID('dbo.UserMonthlyActiveUser', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.UserMonthlyActiveUser (
+        MonthStart DATE NOT NULL,
+        UserID     INT  NOT NULL,
+        CONSTRAINT PK_UserMonthlyActiveUser PRIMARY KEY (MonthStart, UserID)
+    );
+END
+GO
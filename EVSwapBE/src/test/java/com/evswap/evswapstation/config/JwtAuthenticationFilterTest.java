@@ -0,0 +1,92 @@
+package com.evswap.evswapstation.config;
+
+import com.evswap.evswapstation.security.JwtClaims;
+import com.evswap.evswapstation.security.UserDetailsCache;
+import com.evswap.evswapstation.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String EMAIL = "driver@evswap.vn";
+    private static final String TOKEN = "signed-token";
+
+    private final AtomicReference<String> dbRole = new AtomicReference<>("DRIVER");
+    private UserDetailsService userDetailsService;
+    private UserDetailsCache cache;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        JwtService jwtService = mock(JwtService.class);
+        // Token vẫn mang role ADMIN lúc phát hành, DB mới là nguồn đúng
+        when(jwtService.parseAndValidate(TOKEN)).thenReturn(new JwtClaims(EMAIL, "ADMIN", new Date(), null));
+        userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(EMAIL)).thenAnswer(invocation -> {
+            if (dbRole.get() == null) {
+                throw new UsernameNotFoundException("User not found with email: " + EMAIL);
+            }
+            return User.withUsername(EMAIL).password("").authorities("ROLE_" + dbRole.get()).build();
+        });
+        cache = new UserDetailsCache();
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, cache);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cacheMissLoadsTheRoleFromTheDatabaseNotFromTheClaim() throws Exception {
+        assertThat(authenticate().getAuthorities()).extracting(Object::toString).containsExactly("ROLE_DRIVER");
+        verify(userDetailsService).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void cacheHitSkipsTheDatabaseUntilTheUserIsInvalidated() throws Exception {
+        authenticate();
+        authenticate();
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+
+        // UserService.updateRole: đổi role trong DB rồi invalidate
+        dbRole.set("STAFF");
+        cache.invalidate(EMAIL);
+
+        assertThat(authenticate().getAuthorities()).extracting(Object::toString).containsExactly("ROLE_STAFF");
+        verify(userDetailsService, times(2)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void deletedUserIsNotAuthenticatedEvenWithAValidToken() throws Exception {
+        dbRole.set(null);
+
+        assertThat(authenticate()).isNull();
+    }
+
+    private Authentication authenticate() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,100 @@
+package com.evswap.evswapstation.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDetailsCacheTest {
+
+    private static final String EMAIL = "driver@evswap.vn";
+
+    private final UserDetailsCache cache = new UserDetailsCache();
+
+    @Test
+    void putWithCurrentGenerationIsCached() {
+        UserDetails details = details("DRIVER");
+        cache.put(EMAIL, details, cache.generation(EMAIL));
+
+        assertThat(cache.get(EMAIL)).isSameAs(details);
+    }
+
+    @Test
+    void putBuiltBeforeInvalidateIsDropped() {
+        long generation = cache.generation(EMAIL);
+        UserDetails oldRole = details("DRIVER");
+
+        cache.invalidate(EMAIL);
+        cache.put(EMAIL, oldRole, generation);
+
+        assertThat(cache.get(EMAIL)).isNull();
+
+        UserDetails newRole = details("STAFF");
+        cache.put(EMAIL, newRole, cache.generation(EMAIL));
+        assertThat(cache.get(EMAIL)).isSameAs(newRole);
+    }
+
+    @Test
+    void invalidateDropsTheCachedEntryForThatEmailOnly() {
+        cache.put(EMAIL, details("DRIVER"), cache.generation(EMAIL));
+        cache.put("other@evswap.vn", details("STAFF"), cache.generation("other@evswap.vn"));
+
+        cache.invalidate(EMAIL);
+
+        assertThat(cache.get(EMAIL)).isNull();
+        assertThat(cache.get("other@evswap.vn")).isNotNull();
+    }
+
+    @Test
+    void concurrentPutNeverKeepsRoleFromBeforeInvalidate() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                AtomicReference<String> dbRole = new AtomicReference<>("DRIVER");
+                CountDownLatch start = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(3);
+                for (int t = 0; t < 3; t++) {
+                    pool.execute(() -> {
+                        try {
+                            start.await();
+                            for (int i = 0; i < 50; i++) {
+                                // Giống JwtAuthenticationFilter: đọc generation, dựng từ "DB", rồi put
+                                long generation = cache.generation(EMAIL);
+                                UserDetails built = details(dbRole.get());
+                                cache.put(EMAIL, built, generation);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                start.countDown();
+                // Đổi role rồi invalidate, như UserService.updateRole
+                dbRole.set("ADMIN");
+                cache.invalidate(EMAIL);
+                assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+                UserDetails cached = cache.get(EMAIL);
+                if (cached != null) {
+                    assertThat(cached.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+                }
+                cache.invalidate(EMAIL);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static UserDetails details(String role) {
+        return User.withUsername(EMAIL).password("").authorities("ROLE_" + role).build();
+    }
+}
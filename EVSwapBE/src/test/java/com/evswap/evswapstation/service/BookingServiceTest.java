@@ -0,0 +1,99 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.BookingRequest;
+import com.evswap.evswapstation.entity.BookingEntity;
+import com.evswap.evswapstation.entity.PackagePlan;
+import com.evswap.evswapstation.entity.UserPackagePlans;
+import com.evswap.evswapstation.repository.BookingRepository;
+import com.evswap.evswapstation.repository.UserPackagePlansRepository;
+import com.evswap.evswapstation.service.BatteryAllocationService.AvailableBattery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingServiceTest {
+
+    private final AvailableBattery battery = new AvailableBattery(UUID.randomUUID(), "B-01", "Standard (60 kWh)");
+
+    private BookingRepository bookingRepository;
+    private BatteryAllocationService batteryAllocationService;
+    private BookingService bookingService;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        batteryAllocationService = mock(BatteryAllocationService.class);
+        bookingService = new BookingService(bookingRepository, mock(UserPackagePlansRepository.class),
+                batteryAllocationService, mock(ApplicationEventPublisher.class));
+        // Giả lập transaction đang mở để saveBooking đăng ký được synchronization
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void rollbackReleasesClaimedBattery() {
+        when(bookingRepository.save(any())).thenThrow(new IllegalStateException("insert failed"));
+
+        assertThatThrownBy(() -> bookingService.saveBooking(request(), userPackage(), plan(), battery))
+                .isInstanceOf(IllegalStateException.class);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(batteryAllocationService).release(7, battery);
+    }
+
+    @Test
+    void commitKeepsBatteryClaimed() {
+        when(bookingRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0, BookingEntity.class));
+
+        bookingService.saveBooking(request(), userPackage(), plan(), battery);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(batteryAllocationService, never()).release(any(), any());
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static BookingRequest request() {
+        BookingRequest request = new BookingRequest();
+        request.setUserId(1);
+        request.setStationId(7L);
+        request.setVehicleId(3);
+        request.setUserPackageId(5);
+        return request;
+    }
+
+    private static UserPackagePlans userPackage() {
+        UserPackagePlans userPackage = new UserPackagePlans();
+        userPackage.setPackageId(2);
+        userPackage.setStatus("Active");
+        return userPackage;
+    }
+
+    private static PackagePlan plan() {
+        PackagePlan plan = new PackagePlan();
+        plan.setPackageId(2);
+        plan.setPrice(10.0);
+        plan.setDurationDays(30);
+        return plan;
+    }
+}
@@ -0,0 +1,81 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.enums.Role;
+import com.evswap.evswapstation.security.JwtClaims;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số token xác thực được mỗi giây trên đường đi của JwtAuthenticationFilter.
+ * legacyFilterPath: cách cũ (isTokenValid + extractUsername, mỗi lần parse dựng lại key và parser).
+ * parseAndValidate: key + parser dựng một lần, parse token đúng một lần.
+ * Chạy tay, xem README mục "Benchmarks".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    // Cùng khóa với JwtService
+    private static final String SECRET_KEY = "sG4jF9sW8xQ1nB6mV2zE7pC3tK9rL0yU5oA8hT2gD6qJ1fN4xZ0wM3rV9sB5nY2";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        User user = new User();
+        user.setEmail("driver@evswap.vn");
+        user.setRole(Role.DRIVER);
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String legacyFilterPath() {
+        // isTokenValid(token, null) cũ: extractUsername + extractExpiration, rồi filter gọi extractUsername lần nữa
+        String username = legacyClaims(token).getSubject();
+        boolean notExpired = !legacyClaims(token).getExpiration().before(new Date());
+        return notExpired && username != null ? legacyClaims(token).getSubject() : null;
+    }
+
+    @Benchmark
+    public JwtClaims parseAndValidate() {
+        return jwtService.parseAndValidate(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
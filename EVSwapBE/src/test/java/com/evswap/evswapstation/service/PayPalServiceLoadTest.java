@@ -0,0 +1,164 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.repository.PaymentRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
+import com.paypal.api.payments.Payment;
+import com.paypal.base.Constants;
+import com.paypal.base.rest.APIContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test cho chế độ virtual thread: nhiều createPayment song song tới một PayPal giả có độ trễ.
+ * Số request đang chờ PayPal phải tăng theo số request, còn số platform thread thì không
+ * (PinningGuard chỉ giữ bước lấy OAuth token, pool của nó được đặt nhỏ hơn hẳn số request).
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class PayPalServiceLoadTest {
+
+    private static final int PAYMENTS = 200;
+    private static final int GUARD_POOL_SIZE = 4;
+    private static final long PAYPAL_LATENCY_MS = 500;
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger paymentIds = new AtomicInteger();
+
+    private ExecutorService serverThreads;
+    private ExecutorService clientThreads;
+    private HttpServer server;
+    private PinningGuard pinningGuard;
+    private PayPalService payPalService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        serverThreads = newVirtualThreadPerTaskExecutor();
+        clientThreads = newVirtualThreadPerTaskExecutor();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(serverThreads);
+        server.createContext("/v1/oauth2/token", exchange -> {
+            tokenRequests.incrementAndGet();
+            respond(exchange, "{\"access_token\":\"test-token\",\"token_type\":\"Bearer\",\"expires_in\":32400}");
+        });
+        server.createContext("/v1/payments/payment", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(PAYPAL_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            respond(exchange, "{\"id\":\"PAY-" + paymentIds.incrementAndGet() + "\",\"intent\":\"sale\",\"state\":\"created\"}");
+        });
+        server.start();
+
+        String endpoint = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        APIContext apiContext = new APIContext("load-test-client", "load-test-secret", "sandbox");
+        apiContext.addConfiguration(Constants.ENDPOINT, endpoint);
+        apiContext.addConfiguration(Constants.OAUTH_ENDPOINT, endpoint);
+
+        pinningGuard = new PinningGuard(new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"));
+        ReflectionTestUtils.setField(pinningGuard, "poolSize", GUARD_POOL_SIZE);
+        pinningGuard.init();
+
+        User user = new User();
+        user.setUserID(1);
+        user.setFullName("Load Test");
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        payPalService = new PayPalService(apiContext, mock(PaymentRepository.class), transactionRepository,
+                userRepository, mock(VehicleRepository.class), pinningGuard, mock(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        clientThreads.shutdownNow();
+        serverThreads.shutdownNow();
+        pinningGuard.shutdown();
+    }
+
+    @Test
+    void concurrentPaymentsScaleWithoutGrowingPlatformThreads() throws Exception {
+        // Khởi động: nạp class, lấy OAuth token, tạo sẵn carrier thread
+        createPayment();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int platformThreadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        List<Future<Payment>> payments = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            payments.add(clientThreads.submit(this::createPayment));
+        }
+        for (Future<Payment> payment : payments) {
+            assertThat(payment.get(30, TimeUnit.SECONDS).getId()).startsWith("PAY-");
+        }
+        int platformThreadGrowth = threads.getPeakThreadCount() - platformThreadsBefore;
+
+        // Gần như mọi request cùng chờ PayPal một lúc, vượt xa pool của PinningGuard
+        assertThat(maxInFlight.get()).isGreaterThanOrEqualTo(PAYMENTS * 9 / 10);
+        // Platform thread chỉ tăng trong giới hạn cố định (pool guard + carrier), không theo số request
+        assertThat(platformThreadGrowth)
+                .isLessThanOrEqualTo(GUARD_POOL_SIZE + Runtime.getRuntime().availableProcessors() + 8);
+        // Token được cache sau lần lấy đầu tiên
+        assertThat(tokenRequests.get()).isEqualTo(1);
+    }
+
+    private Payment createPayment() throws Exception {
+        return payPalService.createPayment(1, 5L, 3L, 10.0, "USD", "Battery swap",
+                "http://localhost/cancel", "http://localhost/success");
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() qua reflection để lớp test vẫn biên dịch với Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.config.QueryLoggingConfig;
+import com.evswap.evswapstation.dto.ReportDTO;
+import com.evswap.evswapstation.entity.Report;
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.repository.ReportRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Danh sách báo cáo kèm tên user: mỗi lần gọi là 1 câu JOIN (thêm 1 câu COUNT khi phân trang),
+ * không phụ thuộc số báo cáo. Đếm câu lệnh bằng QueryMetrics trên schema H2.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({QueryLoggingConfig.class, QueryMetrics.class, ReportService.class})
+class ReportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ReportRepository reportRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    private Integer alice;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice", "Alice Nguyen");
+        Integer bob = user("bob", "Bob Tran");
+        report(alice, "OPEN", DAY);
+        report(alice, "OPEN", DAY.plusDays(1));
+        report(bob, "OPEN", DAY.plusDays(2));
+        report(bob, "RESOLVED", DAY.plusDays(2));
+        report(alice, "OPEN", DAY.plusDays(5));
+        // User đã bị xóa: vẫn liệt kê với tên mặc định
+        report(999, "OPEN", DAY.plusDays(3));
+        reportRepository.flush();
+    }
+
+    @Test
+    void listingIsOneJoinQueryWhateverTheNumberOfReports() {
+        List<ReportDTO> reports = statements(1, () ->
+                reportService.getReportsWithUserName(null, null, null, "reportDate", Sort.Direction.ASC));
+
+        assertThat(reports).hasSize(6);
+        assertThat(reports).extracting(ReportDTO::getFullName).containsExactly(
+                "Alice Nguyen", "Alice Nguyen", "Bob Tran", "Bob Tran", "Unknown User", "Alice Nguyen");
+        assertThat(reports.get(4).getUserName()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void statusAndInclusiveDateRangeAreAppliedInTheQuery() {
+        List<ReportDTO> reports = statements(1, () -> reportService.getReportsWithUserName(
+                "OPEN", DAY.plusDays(1), DAY.plusDays(3), "reportDate", Sort.Direction.ASC));
+
+        // to là ngày cuối cùng (bao gồm): báo cáo ngày DAY + 3 vẫn được lấy
+        assertThat(reports).extracting(r -> r.getReportDate().getTime()).containsExactly(
+                millis(DAY.plusDays(1)), millis(DAY.plusDays(2)), millis(DAY.plusDays(3)));
+        assertThat(reports).extracting(ReportDTO::getStatus).containsOnly("OPEN");
+    }
+
+    @Test
+    void pageIsTheJoinQueryPlusOneCount() {
+        Page<ReportDTO> page = statements(2, () -> reportService.getReportsWithUserName(
+                "OPEN", null, null, 1, 2, "reportDate", Sort.Direction.DESC));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(r -> r.getReportDate().getTime())
+                .containsExactly(millis(DAY.plusDays(2)), millis(DAY.plusDays(1)));
+    }
+
+    @Test
+    void unknownSortFieldFallsBackToReportDateAndPageSizeIsCapped() {
+        Page<ReportDTO> page = reportService.getReportsWithUserName(
+                null, null, null, 0, 10_000, "password", Sort.Direction.DESC);
+
+        assertThat(page.getSize()).isEqualTo(200);
+        assertThat(page.getContent().get(0).getReportDate().getTime()).isEqualTo(millis(DAY.plusDays(5)));
+    }
+
+    @Test
+    void reportsOfOneUserComeWithTheirName() {
+        List<ReportDTO> reports = statements(1, () -> reportService.getReportsByUserId(alice));
+
+        assertThat(reports).hasSize(3).extracting(ReportDTO::getUserName).containsOnly("alice");
+    }
+
+    // Chạy thao tác và kiểm tra số câu lệnh JDBC đã gửi xuống DB
+    private <T> T statements(int expected, Supplier<T> operation) {
+        queryMetrics.flush();
+        long before = queryMetrics.snapshot().getStatements();
+        T result = operation.get();
+        queryMetrics.flush();
+        assertThat(queryMetrics.snapshot().getStatements() - before).isEqualTo(expected);
+        return result;
+    }
+
+    private Integer user(String userName, String fullName) {
+        User user = new User();
+        user.setUserName(userName);
+        user.setFullName(fullName);
+        user.setEmail(userName + "@evswap.test");
+        return userRepository.save(user).getUserID();
+    }
+
+    private void report(Integer userId, String status, LocalDate day) {
+        Report report = new Report();
+        report.setUserId(userId);
+        report.setStatus(status);
+        report.setReportContent("Content");
+        report.setReportDate(date(day));
+        reportRepository.save(report);
+    }
+
+    private static long millis(LocalDate day) {
+        return date(day).getTime();
+    }
+
+    private static Date date(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
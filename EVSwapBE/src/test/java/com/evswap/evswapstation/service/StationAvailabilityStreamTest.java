@@ -0,0 +1,178 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationHealthDTO;
+import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.event.InventoryChangedEvent;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * SseEmitter được thay bằng mock (mockConstruction) để đọc lại các event đã gửi mà không cần servlet container.
+ */
+class StationAvailabilityStreamTest {
+
+    private final Map<Integer, Long> available = new HashMap<>();
+
+    private StationService stationService;
+    private ObjectMapper objectMapper;
+    private StationAvailabilityStream stream;
+    private MockedConstruction<SseEmitter> emitters;
+
+    @BeforeEach
+    void setUp() {
+        stationService = mock(StationService.class);
+        when(stationService.getStationHealth(any())).thenAnswer(invocation -> health(invocation.getArgument(0)));
+        when(stationService.getStationHealthOverview()).thenAnswer(invocation -> List.of(health(1), health(2)));
+        objectMapper = spy(new ObjectMapper());
+        stream = new StationAvailabilityStream(stationService, objectMapper);
+        emitters = mockConstruction(SseEmitter.class);
+        available.put(1, 5L);
+        available.put(2, 3L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emitters.close();
+    }
+
+    @Test
+    void manyChangesToOneStationInATickAreOneComputationAndOnePush() throws Exception {
+        SseEmitter subscriber = stream.subscribe(1);
+
+        available.put(1, 4L);
+        for (int i = 0; i < 50; i++) {
+            stream.onInventoryChanged(new InventoryChangedEvent(i, 1));
+        }
+        stream.onAvailabilityChanged(new StationAvailabilityChangedEvent(1));
+        stream.flush();
+
+        // 1 lần khi subscribe + 1 lần cho cả 51 thay đổi
+        verify(stationService, times(2)).getStationHealth(1);
+        assertThat(availabilityEvents(subscriber)).hasSize(2);
+        assertThat(availabilityEvents(subscriber).get(1)).contains("\"availableBatteries\":4");
+
+        // Nhịp sau không có thay đổi: không tính, không gửi
+        stream.flush();
+        verify(stationService, times(2)).getStationHealth(1);
+        assertThat(availabilityEvents(subscriber)).hasSize(2);
+    }
+
+    @Test
+    void unchangedHealthIsNotPushedAgain() throws Exception {
+        SseEmitter subscriber = stream.subscribe(1);
+        available.put(1, 4L);
+        stream.markDirty(1);
+        stream.flush();
+
+        // Có thay đổi nhưng kết quả vẫn giống lần gửi trước: tính lại nhưng không gửi
+        stream.markDirty(1);
+        stream.flush();
+
+        verify(stationService, times(3)).getStationHealth(1);
+        assertThat(availabilityEvents(subscriber)).hasSize(2);
+    }
+
+    @Test
+    void onePayloadIsSerializedOncePerStationForEverySubscriber() throws Exception {
+        SseEmitter first = stream.subscribe(1);
+        SseEmitter second = stream.subscribe(1);
+        SseEmitter wallboard = stream.subscribeAll();
+        SseEmitter otherStation = stream.subscribe(2);
+        stream.markDirty(1);
+        stream.markDirty(2);
+        stream.flush();
+        clearInvocations(objectMapper);
+
+        available.put(1, 9L);
+        available.put(2, 1L);
+        stream.markDirty(1);
+        stream.markDirty(2);
+        stream.flush();
+
+        verify(objectMapper, times(2)).writeValueAsString(anyList());
+        assertThat(last(first)).isEqualTo(last(second)).contains("\"availableBatteries\":9");
+        assertThat(last(otherStation)).contains("\"availableBatteries\":1");
+        // Wallboard nhận thay đổi của mọi trạm
+        assertThat(availabilityEvents(wallboard)).filteredOn(event -> event.contains("\"stationId\":1"))
+                .last().asString().contains("\"availableBatteries\":9");
+        assertThat(last(wallboard)).contains("\"stationId\":2");
+    }
+
+    @Test
+    void stationsNobodyListensToAreNotComputed() {
+        stream.markDirty(1);
+        stream.onInventoryChanged(new InventoryChangedEvent(7, 2));
+        stream.flush();
+
+        verify(stationService, never()).getStationHealth(any());
+    }
+
+    @Test
+    void subscriberThatFailsToReceiveIsDropped() throws Exception {
+        SseEmitter gone = stream.subscribe(1);
+        SseEmitter alive = stream.subscribe(1);
+        assertThat(stream.subscriberCount()).isEqualTo(2);
+        doThrow(new IOException("Broken pipe")).when(gone).send(any(SseEmitter.SseEventBuilder.class));
+
+        available.put(1, 2L);
+        stream.markDirty(1);
+        stream.flush();
+
+        assertThat(stream.subscriberCount()).isEqualTo(1);
+        verify(gone).completeWithError(any(IOException.class));
+        assertThat(last(alive)).contains("\"availableBatteries\":2");
+    }
+
+    private StationHealthDTO health(Integer stationId) {
+        return StationHealthDTO.builder()
+                .stationId(stationId)
+                .stationName("Station " + stationId)
+                .status(StationStatus.Active)
+                .availableBatteries(available.getOrDefault(stationId, 0L))
+                .totalBatteries(10)
+                .slots(10)
+                .serviceable(true)
+                .build();
+    }
+
+    private static String last(SseEmitter emitter) throws IOException {
+        List<String> events = availabilityEvents(emitter);
+        return events.get(events.size() - 1);
+    }
+
+    // Nội dung các event station-availability đã gửi tới emitter (bỏ comment heartbeat)
+    private static List<String> availabilityEvents(SseEmitter emitter) throws IOException {
+        ArgumentCaptor<SseEmitter.SseEventBuilder> sent = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+        verify(emitter, atLeast(0)).send(sent.capture());
+        return sent.getAllValues().stream()
+                .map(event -> event.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()))
+                .filter(text -> text.contains("event:" + StationAvailabilityStream.EVENT_NAME))
+                .toList();
+    }
+}
@@ -0,0 +1,150 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.NearbyStationDTO;
+import com.evswap.evswapstation.entity.Station;
+import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationGeoIndexTest {
+
+    private StationRepository stationRepository;
+    private StationGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        stationRepository = mock(StationRepository.class);
+        index = new StationGeoIndex(stationRepository);
+    }
+
+    @Test
+    void gridIndexesFloorAndWrapLongitude() {
+        assertThat(StationGeoIndex.latIndex(10.05)).isEqualTo(100);
+        assertThat(StationGeoIndex.latIndex(-0.05)).isEqualTo(-1);
+        assertThat(StationGeoIndex.latIndex(0.0)).isZero();
+
+        assertThat(StationGeoIndex.lngIndex(106.65)).isEqualTo(1066);
+        assertThat(StationGeoIndex.lngIndex(179.95)).isEqualTo(1799);
+        assertThat(StationGeoIndex.lngIndex(-179.95)).isEqualTo(-1800);
+        assertThat(StationGeoIndex.lngIndex(180.0)).isEqualTo(-1800);
+        assertThat(StationGeoIndex.lngIndex(180.05)).isEqualTo(-1800);
+        assertThat(StationGeoIndex.lngIndex(-180.05)).isEqualTo(1799);
+
+        // Chỉ số âm không được đè lên nửa còn lại của khóa
+        assertThat(StationGeoIndex.cellKey(-1, 1)).isNotEqualTo(StationGeoIndex.cellKey(1, -1));
+        assertThat(StationGeoIndex.cellKey(-1, -1)).isNotEqualTo(StationGeoIndex.cellKey(-1, 0));
+        assertThat(StationGeoIndex.cellKey(0, -1)).isNotEqualTo(StationGeoIndex.cellKey(-1, 0));
+    }
+
+    @Test
+    void withinRadiusCrossesCellBoundaries() {
+        addFiller();
+        index.upsert(station(1, 10.1001, 106.6));
+        index.upsert(station(2, 10.0999, 106.6001));
+        index.upsert(station(3, 10.12, 106.6));
+
+        List<NearbyStationDTO> result = index.withinRadius(10.1, 106.6, 1);
+
+        assertThat(ids(result)).containsExactly(1, 2);
+        assertThat(result.get(0).getDistanceKm()).isLessThanOrEqualTo(result.get(1).getDistanceKm());
+        assertThat(ids(index.withinRadius(10.1, 106.6, 3))).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void withinRadiusAcrossTheAntimeridian() {
+        addFiller();
+        index.upsert(station(1, 0.0, 179.9));
+        index.upsert(station(2, 0.0, -179.99));
+        index.upsert(station(3, 0.0, -179.5));
+
+        assertThat(ids(index.withinRadius(0.0, 179.995, 5))).containsExactly(2);
+        assertThat(ids(index.withinRadius(0.0, 179.995, 12))).containsExactly(2, 1);
+        assertThat(ids(index.withinRadius(0.0, -179.995, 12))).containsExactly(2, 1);
+        assertThat(ids(index.nearest(0.0, 179.999, 1))).containsExactly(2);
+        assertThat(ids(index.nearest(0.0, 179.95, 3))).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void nearestReturnsEveryStationWhenKExceedsCount() {
+        index.upsert(station(1, 10.0, 106.0));
+        index.upsert(station(2, 10.5, 106.0));
+        index.upsert(station(3, -33.9, 151.2));
+
+        assertThat(ids(index.nearest(10.0, 106.0, 10))).containsExactly(1, 2, 3);
+        assertThat(ids(index.nearest(10.0, 106.0, 2))).containsExactly(1, 2);
+        assertThat(index.nearest(10.0, 106.0, 0)).isEmpty();
+        assertThat(new StationGeoIndex(stationRepository).nearest(10.0, 106.0, 3)).isEmpty();
+    }
+
+    @Test
+    void nearestExpandsUntilItFindsFarStations() {
+        addFiller();
+        index.upsert(station(1, -33.9, 151.2));
+
+        List<NearbyStationDTO> result = index.nearest(-33.0, 151.0, 1);
+
+        assertThat(ids(result)).containsExactly(1);
+        assertThat(result.get(0).getDistanceKm()).isBetween(90.0, 110.0);
+    }
+
+    @Test
+    void upsertMovesStationAndRemoveDropsIt() {
+        addFiller();
+        index.upsert(station(1, 10.0, 106.0));
+        index.upsert(station(1, 21.0, 105.8));
+
+        assertThat(index.withinRadius(10.0, 106.0, 5)).isEmpty();
+        assertThat(ids(index.withinRadius(21.0, 105.8, 5))).containsExactly(1);
+
+        index.remove(1);
+        assertThat(index.withinRadius(21.0, 105.8, 5)).isEmpty();
+    }
+
+    @Test
+    void rebuildSkipsStationsWithoutCoordinates() {
+        when(stationRepository.findAll()).thenReturn(List.of(
+                station(1, 10.0, 106.0),
+                station(2, null, 106.0)));
+
+        index.rebuild();
+
+        assertThat(ids(index.nearest(10.0, 106.0, 5))).containsExactly(1);
+        assertThat(index.nearest(10.0, 106.0, 1).get(0).getStatus()).isEqualTo(StationStatus.Active);
+    }
+
+    @Test
+    void rebuildFailureStartsEmpty() {
+        when(stationRepository.findAll()).thenThrow(new IllegalStateException("db down"));
+
+        index.rebuild();
+
+        assertThat(index.nearest(10.0, 106.0, 5)).isEmpty();
+    }
+
+    // Đủ trạm ở xa để truy vấn bán kính nhỏ đi theo đường duyệt ô, không duyệt thẳng
+    private void addFiller() {
+        for (int i = 0; i < 100; i++) {
+            index.upsert(station(1000 + i, 40.0 + i / 10, 20.0 + i % 10));
+        }
+    }
+
+    private static Station station(int id, Double lat, Double lng) {
+        return Station.builder()
+                .stationID(id)
+                .stationName("Station " + id)
+                .latitude(lat)
+                .longitude(lng)
+                .build();
+    }
+
+    private static List<Integer> ids(List<NearbyStationDTO> stations) {
+        return stations.stream().map(NearbyStationDTO::getStationID).toList();
+    }
+}
@@ -0,0 +1,237 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationPerformanceDTO;
+import com.evswap.evswapstation.entity.Station;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.StationRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đồng hồ cố định giữa tháng 3/2025 để kỳ ngày / tuần / tháng và mốc giữ bucket không phụ thuộc ngày chạy test.
+ */
+class StationLeaderboardTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 12);
+
+    private TransactionRepository transactionRepository;
+    private StationRepository stationRepository;
+    private StationLeaderboard leaderboard;
+    private final List<Object[]> seedRows = new ArrayList<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        stationRepository = mock(StationRepository.class);
+        when(transactionRepository.sumCompletedByStationAndDay(any())).thenReturn(seedRows);
+        when(stationRepository.findAll()).thenReturn(List.of(
+                station(1, "Station 1", 4),
+                station(2, "Station 2", 2),
+                station(3, "Station 3", 1),
+                station(4, "Station 4", null)));
+        leaderboard = new StationLeaderboard(transactionRepository, stationRepository);
+        ReflectionTestUtils.setField(leaderboard, "swapsPerSlotPerDay", 10);
+        setToday(TODAY);
+    }
+
+    @Test
+    void seedsFromTheStartOfLastMonthAndRanksBySwapsThenRevenue() {
+        seedRows.add(new Object[]{1L, TODAY, 3L, new BigDecimal("30.00")});
+        seedRows.add(new Object[]{2L, TODAY, 5L, new BigDecimal("50.00")});
+        seedRows.add(new Object[]{3L, TODAY, 3L, new BigDecimal("45.00")});
+        seedRows.add(new Object[]{4L, TODAY.minusDays(1), 1L, new BigDecimal("10.00")});
+        leaderboard.seed();
+
+        List<StationPerformanceDTO> top = leaderboard.top(StationLeaderboard.Period.DAY, 10);
+        // Hòa 3 swap: trạm 3 doanh thu cao hơn đứng trước
+        assertThat(top).extracting(StationPerformanceDTO::getStationId).containsExactly(2L, 3L, 1L);
+        assertThat(top).extracting(StationPerformanceDTO::getRevenue)
+                .containsExactly(new BigDecimal("50.00"), new BigDecimal("45.00"), new BigDecimal("30.00"));
+        assertThat(top.get(0).getStationName()).isEqualTo("Station 2");
+
+        // Heap giới hạn k: chỉ giữ 2 trạm tốt nhất, vẫn đúng thứ tự
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, 2))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(2L, 3L);
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, 4))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(2L, 3L, 1L, 4L);
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, 0)).isEmpty();
+    }
+
+    @Test
+    void completedToOtherStatusTakesTheSwapBackOut() {
+        TransactionSnapshot completed = completed(1L, "20.00", TODAY.atTime(9, 0));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(nextId++, null, completed));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(nextId++, null, completed(2L, "10.00", TODAY.atTime(9, 5))));
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, 5))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(1L, 2L);
+
+        // COMPLETED → REFUNDED: trừ cả swap lẫn doanh thu của trạng thái trước
+        TransactionSnapshot refunded = withStatus(completed, "REFUNDED");
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, completed, refunded));
+
+        List<StationPerformanceDTO> top = leaderboard.top(StationLeaderboard.Period.DAY, 5);
+        assertThat(top).extracting(StationPerformanceDTO::getStationId).containsExactly(2L);
+        assertThat(top.get(0).getRevenue()).isEqualByComparingTo("10.00");
+
+        // Không COMPLETED → không COMPLETED: không đổi gì
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, refunded, withStatus(refunded, "FAILED")));
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, 5)).hasSize(1);
+    }
+
+    @Test
+    void dateChangeMovesTheSwapToTheNewDay() {
+        TransactionSnapshot yesterday = completed(1L, "20.00", TODAY.minusDays(1).atTime(23, 0));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, null, yesterday));
+        TransactionSnapshot moved = new TransactionSnapshot(yesterday.userId(), 1L, yesterday.packageId(),
+                yesterday.amount(), "COMPLETED", TODAY.atTime(0, 30), TODAY.atTime(0, 30));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, yesterday, moved));
+
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, TODAY.minusDays(1), 5)).isEmpty();
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, 5))
+                .extracting(StationPerformanceDTO::getTotalSwaps).containsExactly(1L);
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, 5))
+                .extracting(StationPerformanceDTO::getTotalSwaps).containsExactly(1L);
+    }
+
+    @Test
+    void bulkInsertCountsOnlyCompletedRowsWithAStation() {
+        leaderboard.onTransactionsBulkInserted(new TransactionsBulkInsertedEvent(List.of(
+                completed(1L, "10.00", TODAY.atTime(8, 0)),
+                completed(1L, "15.50", TODAY.atTime(8, 30)),
+                withStatus(completed(2L, "99.00", TODAY.atTime(9, 0)), "PENDING"),
+                completed(null, "50.00", TODAY.atTime(9, 30)),
+                completed(3L, "5.00", TODAY.atTime(10, 0)))));
+
+        List<StationPerformanceDTO> top = leaderboard.top(StationLeaderboard.Period.WEEK, 5);
+        assertThat(top).extracting(StationPerformanceDTO::getStationId).containsExactly(1L, 3L);
+        assertThat(top.get(0).getTotalSwaps()).isEqualTo(2L);
+        assertThat(top.get(0).getRevenue()).isEqualByComparingTo("25.50");
+    }
+
+    @Test
+    void utilizationIsSwapsOverSlotsTimesSwapsPerSlotTimesDays() {
+        seedRows.add(new Object[]{1L, TODAY, 70L, BigDecimal.ZERO});
+        seedRows.add(new Object[]{4L, TODAY, 35L, BigDecimal.ZERO});
+        leaderboard.seed();
+
+        // 4 slots × 10 swap/slot/ngày
+        StationPerformanceDTO day = leaderboard.top(StationLeaderboard.Period.DAY, 1).get(0);
+        assertThat(day.getCapacity()).isEqualTo(40L);
+        assertThat(day.getUtilization()).isEqualTo(175);
+        StationPerformanceDTO week = leaderboard.top(StationLeaderboard.Period.WEEK, 1).get(0);
+        assertThat(week.getCapacity()).isEqualTo(4L * 10 * 7);
+        assertThat(week.getUtilization()).isEqualTo(25);
+        // Tháng 3 có 31 ngày: 70 / 1240 = 5.6% → 5
+        StationPerformanceDTO month = leaderboard.top(StationLeaderboard.Period.MONTH, 1).get(0);
+        assertThat(month.getCapacity()).isEqualTo(4L * 10 * 31);
+        assertThat(month.getUtilization()).isEqualTo(5);
+
+        // Trạm không khai báo slots: capacity 0, utilization 0
+        StationPerformanceDTO noSlots = leaderboard.top(StationLeaderboard.Period.DAY, 2).get(1);
+        assertThat(noSlots.getStationId()).isEqualTo(4L);
+        assertThat(noSlots.getCapacity()).isZero();
+        assertThat(noSlots.getUtilization()).isZero();
+    }
+
+    @Test
+    void pastPeriodsCanBeQueriedBackToTheStartOfLastMonth() {
+        LocalDate lastMonth = LocalDate.of(2025, 2, 10);
+        seedRows.add(new Object[]{1L, LocalDate.of(2025, 2, 1), 2L, new BigDecimal("20.00")});
+        seedRows.add(new Object[]{2L, lastMonth, 1L, new BigDecimal("10.00")});
+        seedRows.add(new Object[]{2L, TODAY, 5L, new BigDecimal("50.00")});
+        leaderboard.seed();
+
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, lastMonth, 5))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(1L, 2L);
+        assertThat(leaderboard.top(StationLeaderboard.Period.DAY, lastMonth, 5))
+                .extracting(StationPerformanceDTO::getTotalSwaps).containsExactly(1L);
+        // Tháng 2/2025 có 28 ngày
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, lastMonth, 1).get(0).getCapacity())
+                .isEqualTo(4L * 10 * 28);
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, 5))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(2L);
+
+        // Tháng 1 đã ngoài phạm vi giữ lại; tuần chứa 1/2 bắt đầu từ 27/1 nên cũng vậy
+        assertThatThrownBy(() -> leaderboard.top(StationLeaderboard.Period.MONTH, LocalDate.of(2025, 1, 31), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboard.top(StationLeaderboard.Period.WEEK, LocalDate.of(2025, 2, 1), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void openingANewMonthEvictsBucketsOlderThanTheMonthBefore() {
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, null, completed(1L, "10.00", TODAY.atTime(9, 0))));
+        setToday(LocalDate.of(2025, 4, 3));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(2L, null,
+                completed(2L, "10.00", LocalDate.of(2025, 4, 3).atTime(9, 0))));
+        assertThat(bucketStarts()).contains(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1));
+
+        // Sang tháng 5: bucket tháng 5 mới mở dọn mọi bucket bắt đầu trước 1/4
+        LocalDate may = LocalDate.of(2025, 5, 2);
+        setToday(may);
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(3L, null, completed(3L, "10.00", may.atTime(9, 0))));
+        assertThat(bucketStarts()).allMatch(start -> !start.isBefore(LocalDate.of(2025, 4, 1)));
+
+        // Giao dịch tháng 3 đổi trạng thái muộn: bị bỏ qua, không mở lại bucket tháng 3 với số âm
+        TransactionSnapshot march = completed(1L, "10.00", TODAY.atTime(9, 0));
+        leaderboard.onTransactionChanged(new TransactionChangedEvent(1L, march, withStatus(march, "REFUNDED")));
+        assertThat(bucketStarts()).allMatch(start -> !start.isBefore(LocalDate.of(2025, 4, 1)));
+
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, LocalDate.of(2025, 4, 15), 5))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(2L);
+        assertThat(leaderboard.top(StationLeaderboard.Period.MONTH, 5))
+                .extracting(StationPerformanceDTO::getStationId).containsExactly(3L);
+    }
+
+    private void setToday(LocalDate day) {
+        ZoneId zone = ZoneId.systemDefault();
+        ReflectionTestUtils.setField(leaderboard, "clock",
+                Clock.fixed(day.atTime(12, 0).atZone(zone).toInstant(), zone));
+    }
+
+    private List<LocalDate> bucketStarts() {
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(leaderboard, "buckets");
+        List<LocalDate> starts = new ArrayList<>();
+        for (Object key : buckets.keySet()) {
+            starts.add((LocalDate) ReflectionTestUtils.invokeMethod(key, "start"));
+        }
+        return starts;
+    }
+
+    private TransactionSnapshot completed(Long stationId, String amount, LocalDateTime at) {
+        return new TransactionSnapshot(1, stationId, 1L, new BigDecimal(amount), "COMPLETED", at, at);
+    }
+
+    private static TransactionSnapshot withStatus(TransactionSnapshot snapshot, String status) {
+        return new TransactionSnapshot(snapshot.userId(), snapshot.stationId(), snapshot.packageId(),
+                snapshot.amount(), status, snapshot.transactionDate(), snapshot.timeDate());
+    }
+
+    private static Station station(int id, String name, Integer slots) {
+        Station station = new Station();
+        station.setStationID(id);
+        station.setStationName(name);
+        station.setSlots(slots);
+        return station;
+    }
+}
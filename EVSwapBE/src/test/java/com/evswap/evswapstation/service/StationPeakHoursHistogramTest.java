@@ -0,0 +1,177 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationPeakHoursDTO;
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StationPeakHoursHistogramTest {
+
+    private static final long STATION = 5L;
+
+    private final LocalDate today = LocalDate.now();
+    // retention-weeks = 2: tuần này và tuần trước nằm trong bộ nhớ, cũ hơn đọc từ StationPeakHours
+    private final LocalDate lastMonday = TransactionMetricsEngine.startOfWeek(today).minusWeeks(1);
+    private final LocalDate cutoff = lastMonday;
+
+    private JdbcTemplate jdbcTemplate;
+    private StationPeakHoursHistogram histogram;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        histogram = new StationPeakHoursHistogram(jdbcTemplate);
+        ReflectionTestUtils.setField(histogram, "retentionWeeks", 2);
+    }
+
+    @Test
+    void cellIndexIsDayOfWeekTimes24PlusHour() {
+        swap(STATION, lastMonday.plusDays(2).atTime(10, 45));
+
+        StationPeakHoursDTO result = histogram.histogram((int) STATION, lastMonday, lastMonday.plusDays(6));
+
+        // Thứ Tư = 2 → ô 2 * 24 + 10
+        assertThat(result.getByHourOfWeek()[58]).isEqualTo(1);
+        assertThat(result.getByHourOfDay()[10]).isEqualTo(1);
+        assertThat(result.getPeakHourOfWeek()).isEqualTo(58);
+        assertThat(result.getTotal()).isEqualTo(1);
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @Test
+    void dateRangeAddsOnlyTheDaySlicesItCovers() {
+        swap(STATION, lastMonday.atTime(8, 0));
+        swap(STATION, lastMonday.plusDays(1).atTime(0, 0));
+        swap(STATION, lastMonday.plusDays(6).atTime(23, 59));
+        swap(STATION, lastMonday.plusDays(6).atTime(23, 10));
+
+        StationPeakHoursDTO result = histogram.histogram((int) STATION, lastMonday.plusDays(1), lastMonday.plusDays(6));
+
+        // Thứ Hai nằm ngoài khoảng, Thứ Ba 00h là ô 24, Chủ Nhật 23h là ô cuối 167
+        assertThat(result.getByHourOfWeek()[8]).isZero();
+        assertThat(result.getByHourOfWeek()[24]).isEqualTo(1);
+        assertThat(result.getByHourOfWeek()[167]).isEqualTo(2);
+        assertThat(result.getPeakHourOfWeek()).isEqualTo(167);
+        assertThat(result.getTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void stationFilterAndNetworkWideTotals() {
+        swap(STATION, lastMonday.atTime(9, 0));
+        swap(7L, lastMonday.atTime(9, 30));
+
+        assertThat(histogram.histogram((int) STATION, lastMonday, lastMonday).getTotal()).isEqualTo(1);
+        assertThat(histogram.histogram(null, lastMonday, lastMonday).getByHourOfWeek()[9]).isEqualTo(2);
+    }
+
+    @Test
+    void movingATransactionToAnotherHourMovesItsCell() {
+        TransactionSnapshot before = snapshot(STATION, lastMonday.atTime(9, 0));
+        TransactionSnapshot after = snapshot(STATION, lastMonday.plusDays(1).atTime(14, 0));
+        histogram.onTransactionChanged(new TransactionChangedEvent(1L, null, before));
+        histogram.onTransactionChanged(new TransactionChangedEvent(1L, before, after));
+
+        long[] cells = histogram.histogram((int) STATION, lastMonday, lastMonday.plusDays(6)).getByHourOfWeek();
+
+        assertThat(cells[9]).isZero();
+        assertThat(cells[24 + 14]).isEqualTo(1);
+    }
+
+    @Test
+    void rangeSpanningTheRetentionCutoffReadsOlderDaysFromTheTable() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getInt(1)).thenReturn(5);
+        when(row.getLong(2)).thenReturn(4L);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        // Cũ hơn cutoff: chỉ ghi vào pending cho DB, không giữ trong bộ nhớ nên không bị cộng hai lần
+        swap(STATION, cutoff.minusDays(1).atTime(5, 0));
+        swap(STATION, cutoff.atTime(5, 0));
+        swap(STATION, cutoff.plusDays(2).atTime(5, 0));
+
+        StationPeakHoursDTO result = histogram.histogram((int) STATION, cutoff.minusDays(3), cutoff.plusDays(1));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class), args.capture());
+        assertThat(sql.getValue()).contains("AND StationID = ?").endsWith("GROUP BY HourOfWeek");
+        // Phần DB dừng ở ngày trước cutoff, phần bộ nhớ bắt đầu từ cutoff;
+        // khoảng WeekStart tính từ Thứ 2 của tuần chứa from
+        assertThat(sql.getValue()).contains("WeekStart BETWEEN ? AND ?");
+        assertThat(args.getValue()).containsExactly(
+                Date.valueOf(cutoff.minusWeeks(1)), Date.valueOf(cutoff.minusDays(1)),
+                Date.valueOf(cutoff.minusDays(3)), Date.valueOf(cutoff.minusDays(1)), (int) STATION);
+        assertThat(result.getByHourOfWeek()[5]).isEqualTo(4 + 1);
+        assertThat(result.getTotal()).isEqualTo(5);
+    }
+
+    @Test
+    void rangeEntirelyBeforeTheCutoffOnlyQueriesTheTable() {
+        LocalDate to = cutoff.minusWeeks(1);
+
+        histogram.histogram(null, to.minusWeeks(4), to);
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), args.capture());
+        assertThat(args.getValue()).containsExactly(
+                Date.valueOf(TransactionMetricsEngine.startOfWeek(to.minusWeeks(4))), Date.valueOf(to),
+                Date.valueOf(to.minusWeeks(4)), Date.valueOf(to));
+    }
+
+    @Test
+    void cellsFollowTheSwapTimeNotTheRecordTime() {
+        // Nhập bù: swap lúc 7h Thứ Hai tuần trước, ghi nhận lúc upload hôm nay
+        LocalDateTime swappedAt = lastMonday.atTime(7, 15);
+        histogram.onTransactionChanged(new TransactionChangedEvent(nextId++, null,
+                new TransactionSnapshot(1, STATION, null, BigDecimal.TEN, "COMPLETED", today.atTime(16, 0), swappedAt)));
+        // Dòng cũ thiếu TimeDate: dùng TransactionDate
+        histogram.onTransactionChanged(new TransactionChangedEvent(nextId++, null,
+                new TransactionSnapshot(1, STATION, null, BigDecimal.TEN, "COMPLETED", lastMonday.atTime(7, 40), null)));
+
+        StationPeakHoursDTO result = histogram.histogram((int) STATION, lastMonday, today);
+
+        assertThat(result.getByHourOfWeek()[7]).isEqualTo(2);
+        assertThat(result.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void futureEndIsClampedToToday() {
+        swap(STATION, today.atTime(0, 0));
+
+        StationPeakHoursDTO result = histogram.histogram((int) STATION, today, LocalDate.of(9999, 12, 31));
+
+        assertThat(result.getTo()).isEqualTo(today);
+        assertThat(result.getTotal()).isEqualTo(1);
+    }
+
+    private void swap(Long stationId, LocalDateTime time) {
+        histogram.onTransactionChanged(new TransactionChangedEvent(nextId++, null, snapshot(stationId, time)));
+    }
+
+    private static TransactionSnapshot snapshot(Long stationId, LocalDateTime time) {
+        return new TransactionSnapshot(1, stationId, null, BigDecimal.TEN, "COMPLETED", time, time);
+    }
+}
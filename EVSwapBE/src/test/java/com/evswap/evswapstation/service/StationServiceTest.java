@@ -0,0 +1,263 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.StationHealthDTO;
+import com.evswap.evswapstation.dto.StationStatusDerivationMetricsDTO;
+import com.evswap.evswapstation.entity.Station;
+import com.evswap.evswapstation.enums.StationStatus;
+import com.evswap.evswapstation.event.InventoryChangedEvent;
+import com.evswap.evswapstation.event.StationAvailabilityChangedEvent;
+import com.evswap.evswapstation.repository.InventoryRepository;
+import com.evswap.evswapstation.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StationServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final List<Station> stations = new ArrayList<>();
+    private final List<Object[]> inventoryCounts = new ArrayList<>();
+
+    private StationRepository stationRepository;
+    private InventoryRepository inventoryRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private StationService service;
+
+    @BeforeEach
+    void setUp() {
+        stationRepository = mock(StationRepository.class);
+        inventoryRepository = mock(InventoryRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(stationRepository.findAll()).thenAnswer(invocation -> stations);
+        when(inventoryRepository.countByStationAndStatus()).thenAnswer(invocation -> inventoryCounts);
+
+        service = new StationService(stationRepository, inventoryRepository, mock(StationGeoIndex.class),
+                jdbcTemplate, eventPublisher);
+        ReflectionTestUtils.setField(service, "clock", new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.systemDefault();
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now.get());
+            }
+        });
+    }
+
+    // ====== Health overview (snapshot ngắn hạn) ======
+
+    @Test
+    void overviewIsBuiltFromOneGroupedCountAndSortedByName() {
+        stations.add(station(1, "Station B", 10, StationStatus.Active));
+        stations.add(station(2, null, 4, StationStatus.Active));
+        stations.add(station(3, "Station A", 4, StationStatus.Limited));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 6L});
+        inventoryCounts.add(new Object[]{1, "charging", 2L});
+        inventoryCounts.add(new Object[]{3, "ready", 1L});
+
+        List<StationHealthDTO> overview = service.getStationHealthOverview();
+
+        assertThat(overview).extracting(StationHealthDTO::getStationId).containsExactly(3, 1, 2);
+        StationHealthDTO b = overview.get(1);
+        assertThat(b.getAvailableBatteries()).isEqualTo(6);
+        assertThat(b.getTotalBatteries()).isEqualTo(8);
+        assertThat(b.getUtilization()).isEqualTo(0.6);
+        assertThat(overview.get(2).getTotalBatteries()).isZero();
+        // Chỉ 2 query cho cả mạng, không query theo từng trạm
+        verify(inventoryRepository, never()).countByStatusAndStationId(1);
+    }
+
+    @Test
+    void overviewIsServedFromTheSnapshotUntilTheTtlRunsOut() {
+        stations.add(station(1, "Station A", 10, StationStatus.Active));
+
+        List<StationHealthDTO> first = service.getStationHealthOverview();
+        now.addAndGet(4_999);
+        assertThat(service.getStationHealthOverview()).isSameAs(first);
+        verify(stationRepository, times(1)).findAll();
+        verify(inventoryRepository, times(1)).countByStationAndStatus();
+
+        now.addAndGet(1);
+        assertThat(service.getStationHealthOverview()).isNotSameAs(first);
+        verify(stationRepository, times(2)).findAll();
+        verify(inventoryRepository, times(2)).countByStationAndStatus();
+    }
+
+    @Test
+    void inventoryChangeDropsTheSnapshot() {
+        stations.add(station(1, "Station A", 10, StationStatus.Active));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 6L});
+        service.getStationHealthOverview();
+
+        inventoryCounts.set(0, new Object[]{1, "AVAILABLE", 2L});
+        service.onInventoryChanged(new InventoryChangedEvent(7, 1));
+
+        assertThat(service.getStationHealthOverview().get(0).getAvailableBatteries()).isEqualTo(2);
+        verify(inventoryRepository, times(2)).countByStationAndStatus();
+    }
+
+    @Test
+    void stationWritesDropTheSnapshot() {
+        Station station = station(1, "Station A", 10, StationStatus.Active);
+        stations.add(station);
+        when(stationRepository.findById(1)).thenReturn(Optional.of(station));
+        when(stationRepository.save(station)).thenReturn(station);
+
+        service.getStationHealthOverview();
+        service.updateStatus(1, StationStatus.Maintenance);
+
+        assertThat(service.getStationHealthOverview().get(0).getStatus()).isEqualTo(StationStatus.Maintenance);
+        verify(stationRepository, times(2)).findAll();
+    }
+
+    @Test
+    void overviewComputedAcrossAnInvalidationIsNotCached() {
+        stations.add(station(1, "Station A", 10, StationStatus.Active));
+        // Inventory đổi trong lúc đang tính: snapshot đã cũ nên không được lưu
+        when(stationRepository.findAll()).thenAnswer(invocation -> {
+            service.onInventoryChanged(new InventoryChangedEvent(7, 1));
+            return stations;
+        }).thenAnswer(invocation -> stations);
+
+        service.getStationHealthOverview();
+        service.getStationHealthOverview();
+        service.getStationHealthOverview();
+
+        verify(stationRepository, times(2)).findAll();
+    }
+
+    // ====== Tính trạng thái theo lịch (một batch UPDATE) ======
+
+    @Test
+    void scheduledDerivationWritesOnlyChangedStationsInOneBatch() {
+        stations.add(station(1, "Ready", 10, StationStatus.Critical));
+        stations.add(station(2, "Low", 10, StationStatus.Active));
+        stations.add(station(3, "Unchanged", 10, StationStatus.Active));
+        stations.add(station(4, "Manual maintenance", 10, StationStatus.Maintenance));
+        stations.add(station(5, "Empty", 10, null));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 6L});
+        inventoryCounts.add(new Object[]{2, "AVAILABLE", 3L});
+        inventoryCounts.add(new Object[]{3, "AVAILABLE", 8L});
+        inventoryCounts.add(new Object[]{4, "AVAILABLE", 9L});
+        // Trạm 2 bị đổi tay giữa lúc đọc và ghi: điều kiện WHERE không khớp nên 0 dòng;
+        // trạm 5 driver trả SUCCESS_NO_INFO (-2) vẫn tính là đã ghi
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0, -2});
+
+        service.deriveAllStationStatuses();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(sql.capture(), batch.capture());
+        assertThat(sql.getValue()).contains("COALESCE(StationStatus, '') = ?");
+        // (trạng thái mới, stationID, trạng thái đã đọc)
+        assertThat(batch.getValue()).containsExactly(
+                new Object[]{"Active", 1, "Critical"},
+                new Object[]{"Limited", 2, "Active"},
+                new Object[]{"Offline", 5, ""});
+        // Chỉ 2 query đọc cho cả mạng
+        verify(stationRepository, times(1)).findAll();
+        verify(inventoryRepository, times(1)).countByStationAndStatus();
+
+        ArgumentCaptor<StationAvailabilityChangedEvent> events = ArgumentCaptor.forClass(StationAvailabilityChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(StationAvailabilityChangedEvent::stationId).containsExactly(1, 5);
+
+        StationStatusDerivationMetricsDTO metrics = service.getStatusDerivationMetrics();
+        assertThat(metrics.getLastStationsScanned()).isEqualTo(5);
+        assertThat(metrics.getLastChangedCount()).isEqualTo(2);
+        assertThat(metrics.getTotalRuns()).isEqualTo(1);
+        assertThat(metrics.getFailedRuns()).isZero();
+    }
+
+    @Test
+    void derivationWithNothingToChangeSendsNoUpdate() {
+        stations.add(station(1, "Steady", 10, StationStatus.Active));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 8L});
+        List<StationHealthDTO> snapshot = service.getStationHealthOverview();
+
+        service.deriveAllStationStatuses();
+        service.deriveAllStationStatuses();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(eventPublisher, never()).publishEvent(any());
+        // Không ghi gì thì snapshot health vẫn còn hiệu lực
+        assertThat(service.getStationHealthOverview()).isSameAs(snapshot);
+        assertThat(service.getStatusDerivationMetrics().getTotalRuns()).isEqualTo(2);
+        assertThat(service.getStatusDerivationMetrics().getTotalChanged()).isZero();
+    }
+
+    @Test
+    void appliedDerivationDropsTheHealthSnapshot() {
+        stations.add(station(1, "Ready", 10, StationStatus.Critical));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 6L});
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        List<StationHealthDTO> snapshot = service.getStationHealthOverview();
+
+        service.deriveAllStationStatuses();
+
+        List<StationHealthDTO> after = service.getStationHealthOverview();
+        assertThat(after).isNotSameAs(snapshot);
+        assertThat(after.get(0).getStatus()).isEqualTo(StationStatus.Active);
+    }
+
+    @Test
+    void failedDerivationIsCountedAndKeepsThePreviousRun() {
+        stations.add(station(1, "Ready", 10, StationStatus.Critical));
+        inventoryCounts.add(new Object[]{1, "AVAILABLE", 6L});
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1})
+                .thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        service.deriveAllStationStatuses();
+        stations.get(0).setStationStatus(StationStatus.Critical);
+        service.deriveAllStationStatuses();
+
+        StationStatusDerivationMetricsDTO metrics = service.getStatusDerivationMetrics();
+        assertThat(metrics.getTotalRuns()).isEqualTo(2);
+        assertThat(metrics.getFailedRuns()).isEqualTo(1);
+        assertThat(metrics.getLastError()).isEqualTo("connection reset");
+        // Số liệu của lần chạy thành công trước vẫn giữ
+        assertThat(metrics.getTotalChanged()).isEqualTo(1);
+    }
+
+    private static Station station(int id, String name, Integer slots, StationStatus status) {
+        Station station = new Station();
+        station.setStationID(id);
+        station.setStationName(name);
+        station.setSlots(slots);
+        station.setStationStatus(status);
+        return station;
+    }
+}
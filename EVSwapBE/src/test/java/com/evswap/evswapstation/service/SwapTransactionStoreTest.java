@@ -0,0 +1,198 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.SwapTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SwapTransactionStoreTest {
+
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2026, 10, 1, 9, 0);
+    private static final LocalDateTime DAY_2 = LocalDateTime.of(2026, 10, 2, 9, 0);
+
+    private final SwapTransactionStore store = new SwapTransactionStore();
+
+    @Test
+    void createUpdateDeleteKeepIndexesAndTotalsInSync() {
+        SwapTransaction created = store.create(1, input(DAY_1, "Alice Nguyen", "alice@evswap.vn", "vin123abc", "10.00"));
+        store.create(1, input(DAY_2, "Bob Tran", "bob@evswap.vn", "VIN999XYZ", "20.00"));
+        store.create(2, input(DAY_1, "Alice Other", "alice2@evswap.vn", null, "5.00"));
+
+        assertThat(created.getVehicleVin()).isEqualTo("VIN123ABC");
+        assertThat(store.findByStation(1)).extracting(SwapTransaction::getCustomerName)
+                .containsExactly("Bob Tran", "Alice Nguyen");
+        assertThat(store.search(1, "alice", null, null)).extracting(SwapTransaction::getId)
+                .containsExactly(created.getId());
+        assertThat(store.stationRevenue(1, null, null)).isEqualTo(summary("30.00", 2));
+
+        SwapTransaction updated = store.update(1, created.getId(),
+                input(DAY_2.plusHours(1), "Carol Le", "carol@evswap.vn", "vin777", "12.50")).orElseThrow();
+
+        assertThat(updated).isNotSameAs(created);
+        assertThat(created.getCustomerName()).isEqualTo("Alice Nguyen");
+        assertThat(updated.getCreatedAt()).isEqualTo(created.getCreatedAt());
+        assertThat(store.search(1, "alice", null, null)).isEmpty();
+        assertThat(store.search(1, "carol", null, "777")).extracting(SwapTransaction::getId)
+                .containsExactly(created.getId());
+        assertThat(store.findByStation(1)).extracting(SwapTransaction::getCustomerName)
+                .containsExactly("Carol Le", "Bob Tran");
+        assertThat(store.stationRevenue(1, null, null)).isEqualTo(summary("32.50", 2));
+        assertThat(store.stationRevenue(1, DAY_2, DAY_2.plusHours(2))).isEqualTo(summary("32.50", 2));
+        assertThat(store.stationRevenue(1, DAY_1, DAY_1.plusHours(1))).isEqualTo(summary("0", 0));
+
+        // Sai trạm thì không đụng tới giao dịch
+        assertThat(store.update(2, created.getId(), input(DAY_1, "x", "x", "x", "1"))).isEmpty();
+        assertThat(store.delete(2, created.getId())).isFalse();
+
+        assertThat(store.delete(1, created.getId())).isTrue();
+        assertThat(store.get(1, created.getId())).isEmpty();
+        assertThat(store.findByStation(1)).extracting(SwapTransaction::getCustomerName).containsExactly("Bob Tran");
+        assertThat(store.stationRevenue(1, null, null)).isEqualTo(summary("20.00", 1));
+        assertThat(store.totalRevenue()).isEqualTo(summary("25.00", 2));
+    }
+
+    @Test
+    void updateKeepsSharedTrigrams() {
+        SwapTransaction created = store.create(1, input(DAY_1, "Nguyen Van A", null, null, "1"));
+
+        store.update(1, created.getId(), input(DAY_1, "Nguyen Van B", null, null, "1"));
+
+        assertThat(store.search(1, "nguyen van", null, null)).hasSize(1);
+        assertThat(store.search(1, "van a", null, null)).isEmpty();
+    }
+
+    @Test
+    void concurrentReadersSeeWholeVersionsWhileUpdating() throws Exception {
+        SwapTransaction a = input(DAY_1, "Alice Nguyen", "alice@evswap.vn", "VINAAA", "10.00");
+        SwapTransaction b = input(DAY_2, "Bobby Tran", "bobby@evswap.vn", "VINBBB", "20.00");
+        Integer id = store.create(1, a).getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Set<String> problems = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < 2; w++) {
+                futures.add(pool.submit(() -> {
+                    await(start);
+                    for (int i = 0; i < 20_000; i++) {
+                        store.update(1, id, i % 2 == 0 ? b : a);
+                    }
+                }));
+            }
+            for (int r = 0; r < 4; r++) {
+                futures.add(pool.submit(() -> {
+                    await(start);
+                    while (running.get()) {
+                        store.get(1, id).ifPresentOrElse(t -> checkWhole(t, problems),
+                                () -> problems.add("get returned empty"));
+
+                        List<SwapTransaction> listed = store.findByStation(1);
+                        if (listed.size() != 1) {
+                            problems.add("listed " + listed.size() + " times");
+                        }
+                        listed.forEach(t -> checkWhole(t, problems));
+
+                        SwapTransactionStore.RevenueSummary totals = store.stationRevenue(1, null, null);
+                        if (totals.transactions() != 1
+                                || !(totals.revenue().compareTo(new BigDecimal("10.00")) == 0
+                                || totals.revenue().compareTo(new BigDecimal("20.00")) == 0)) {
+                            problems.add("torn totals: " + totals);
+                        }
+
+                        long inRange = store.stationRevenue(1, DAY_1.minusDays(1), DAY_2.plusDays(1)).transactions();
+                        if (inRange != 1) {
+                            problems.add("range counted " + inRange);
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            futures.get(0).get(30, TimeUnit.SECONDS);
+            futures.get(1).get(30, TimeUnit.SECONDS);
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(problems).isEmpty();
+        assertThat(store.findByStation(1)).hasSize(1);
+        assertThat(store.stationRevenue(1, null, null).transactions()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCreatesGetUniqueIdsAndExactTotals() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        store.create(1, input(DAY_1.plusMinutes(i), "Driver", null, null, "1.00"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(store.findByStation(1)).hasSize(4000)
+                .extracting(SwapTransaction::getId).doesNotHaveDuplicates();
+        assertThat(store.stationRevenue(1, null, null)).isEqualTo(summary("4000.00", 4000));
+    }
+
+    // Hai phiên bản A / B: tên, email, VIN, số tiền, ngày phải cùng thuộc một phiên bản
+    private static void checkWhole(SwapTransaction t, Set<String> problems) {
+        boolean isA = "Alice Nguyen".equals(t.getCustomerName()) && "alice@evswap.vn".equals(t.getCustomerEmail())
+                && "VINAAA".equals(t.getVehicleVin()) && new BigDecimal("10.00").equals(t.getAmount())
+                && DAY_1.equals(t.getTransactionDate());
+        boolean isB = "Bobby Tran".equals(t.getCustomerName()) && "bobby@evswap.vn".equals(t.getCustomerEmail())
+                && "VINBBB".equals(t.getVehicleVin()) && new BigDecimal("20.00").equals(t.getAmount())
+                && DAY_2.equals(t.getTransactionDate());
+        if (!isA && !isB) {
+            problems.add("torn transaction: " + t);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SwapTransaction input(LocalDateTime date, String name, String email, String vin, String amount) {
+        SwapTransaction t = new SwapTransaction();
+        t.setTransactionDate(date);
+        t.setCustomerName(name);
+        t.setCustomerEmail(email);
+        t.setVehicleVin(vin);
+        t.setAmount(new BigDecimal(amount));
+        return t;
+    }
+
+    private static SwapTransactionStore.RevenueSummary summary(String revenue, long count) {
+        return new SwapTransactionStore.RevenueSummary(new BigDecimal(revenue), count);
+    }
+}
@@ -0,0 +1,218 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.BulkTransactionResultDTO;
+import com.evswap.evswapstation.dto.BulkTransactionResultDTO.RowResult;
+import com.evswap.evswapstation.dto.TransactionDTO;
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionBulkServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1), user(2), user(3)));
+        VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+        when(vehicleRepository.findVinsByUserIds(any())).thenReturn(List.of(
+                new Object[]{1, "VIN-PRIMARY-1"}, new Object[]{1, "VIN-SECOND-1"}, new Object[]{2, "VIN-PRIMARY-2"}));
+
+        service = new TransactionBulkService(jdbcTemplate, transactionManager, userRepository, vehicleRepository,
+                eventPublisher);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "maxRows", 10);
+    }
+
+    @Test
+    void invalidRowsAreRejectedWithTheirOwnIndexAndMessage() {
+        List<TransactionDTO> rows = new ArrayList<>();
+        rows.add(row(1L, "10.00", null));
+        rows.add(null);
+        rows.add(row(null, "10.00", null));
+        rows.add(row(99L, "10.00", null));
+        rows.add(row(2L, "-1", null));
+        rows.add(row(2L, "10.00", "abc"));
+        rows.add(row(2L, "20.00", "7"));
+
+        BulkTransactionResultDTO result = service.ingest(rows);
+
+        assertThat(result.getTotal()).isEqualTo(7);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(5);
+        assertThat(result.getFailed()).isZero();
+        assertThat(result.getResults()).extracting(RowResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(result.getResults()).extracting(RowResult::getStatus).containsExactly(
+                "CREATED", "REJECTED", "REJECTED", "REJECTED", "REJECTED", "REJECTED", "CREATED");
+        assertThat(result.getResults()).extracting(RowResult::getMessage).containsExactly(
+                null,
+                "Row is empty",
+                "User ID is required",
+                "User not found with ID: 99",
+                "Amount must not be negative",
+                "Invalid payment ID: abc",
+                null);
+        // Chỉ các dòng hợp lệ đi vào một batch duy nhất
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 2), any(int[].class));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class), any(int[].class));
+    }
+
+    @Test
+    void missingVinFallsBackToTheUsersPrimaryVehicle() {
+        TransactionDTO withVin = row(1L, "10.00", null);
+        withVin.setVin("VIN-SECOND-1");
+
+        service.ingest(List.of(row(1L, "10.00", null), withVin, row(2L, "10.00", null), row(3L, "10.00", null)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), any(int[].class));
+        // VIN là tham số cuối của INSERT
+        assertThat(batch.getValue()).extracting(args -> args[args.length - 1])
+                .containsExactly("VIN-PRIMARY-1", "VIN-SECOND-1", "VIN-PRIMARY-2", null);
+    }
+
+    @Test
+    void vinThatIsNotOneOfTheUsersVehiclesIsRejected() {
+        TransactionDTO otherUsersVin = row(1L, "10.00", null);
+        otherUsersVin.setVin("VIN-PRIMARY-2");
+        TransactionDTO unknownVin = row(2L, "10.00", null);
+        unknownVin.setVin("VIN-UNKNOWN");
+
+        BulkTransactionResultDTO result = service.ingest(List.of(otherUsersVin, unknownVin, row(1L, "10.00", null)));
+
+        assertThat(result.getResults()).extracting(RowResult::getStatus).containsExactly("REJECTED", "REJECTED", "CREATED");
+        assertThat(result.getResults()).extracting(RowResult::getMessage).containsExactly(
+                "VIN VIN-PRIMARY-2 is not registered to user 1",
+                "VIN VIN-UNKNOWN is not registered to user 2",
+                null);
+    }
+
+    @Test
+    void snapshotCarriesTheSwapTimeNextToTheUploadTime() {
+        LocalDateTime swappedAt = LocalDateTime.of(2025, 3, 1, 8, 30);
+        TransactionDTO backfilled = row(1L, "10.00", null);
+        backfilled.setTimeDate(swappedAt);
+        LocalDateTime before = LocalDateTime.now();
+
+        service.ingest(List.of(backfilled, row(2L, "10.00", null)));
+
+        ArgumentCaptor<TransactionsBulkInsertedEvent> event = ArgumentCaptor.forClass(TransactionsBulkInsertedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        List<TransactionSnapshot> created = event.getValue().created();
+        // TimeDate = thời điểm swap (mặc định lúc upload nếu không truyền), TransactionDate = lúc upload
+        assertThat(created.get(0).timeDate()).isEqualTo(swappedAt);
+        assertThat(created.get(0).transactionDate()).isAfterOrEqualTo(before);
+        assertThat(created.get(1).timeDate()).isEqualTo(created.get(1).transactionDate());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), any(int[].class));
+        assertThat(batch.getValue().get(0)[3]).isEqualTo(Timestamp.valueOf(swappedAt));
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRowAndOnlyTheBrokenRowFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(jdbcTemplate.update(anyString(), argThat((Object[] args) -> "broken".equals(args[4])), any(int[].class)))
+                .thenThrow(new DataIntegrityViolationException("FK_Transactions_Station"));
+        TransactionDTO broken = row(2L, "10.00", null);
+        broken.setRecord("broken");
+
+        BulkTransactionResultDTO result = service.ingest(List.of(row(1L, "10.00", null), broken, row(2L, "30.00", null)));
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getResults()).extracting(RowResult::getStatus).containsExactly("CREATED", "FAILED", "CREATED");
+        assertThat(result.getResults().get(1).getMessage()).isEqualTo("FK_Transactions_Station");
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class), any(int[].class));
+        // Event chỉ phát cho dòng insert thành công, mỗi dòng một event
+        ArgumentCaptor<TransactionsBulkInsertedEvent> events = ArgumentCaptor.forClass(TransactionsBulkInsertedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).flatExtracting(TransactionsBulkInsertedEvent::created)
+                .extracting(TransactionSnapshot::amount)
+                .containsExactly(new BigDecimal("10.00"), new BigDecimal("30.00"));
+    }
+
+    @Test
+    void validRowsAreSplitIntoBatchesOfBatchSize() {
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        List<TransactionDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(row(1L, "10.00", null));
+        }
+
+        BulkTransactionResultDTO result = service.ingest(rows);
+
+        assertThat(result.getCreated()).isEqualTo(5);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 2), any(int[].class));
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 1), any(int[].class));
+        verify(eventPublisher, times(3)).publishEvent(any(TransactionsBulkInsertedEvent.class));
+    }
+
+    @Test
+    void tooManyRowsIsRejectedBeforeAnyInsert() {
+        List<TransactionDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            rows.add(row(1L, "10.00", null));
+        }
+
+        assertThatThrownBy(() -> service.ingest(rows))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Too many rows: 11 (max 10)");
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    private static TransactionDTO row(Long userId, String amount, String paymentId) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setUserId(userId);
+        dto.setStationId(5L);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setPaymentId(paymentId);
+        dto.setStatus("COMPLETED");
+        return dto;
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setUserID(id);
+        return user;
+    }
+}
@@ -0,0 +1,59 @@
+package com.evswap.evswapstation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2026, 10, 14, 10, 15, 30, 123_000_000), 42L);
+
+        String encoded = cursor.encode();
+
+        // Chuỗi mờ an toàn trên URL: không có '+', '/', '='
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(TransactionCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripKeepsWholeMinuteTimestamps() {
+        // LocalDateTime.toString() bỏ phần giây khi bằng 0
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2026, 1, 1, 0, 0), Long.MAX_VALUE);
+
+        assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(TransactionCursor.decode(null)).isNull();
+        assertThat(TransactionCursor.decode("")).isNull();
+        assertThat(TransactionCursor.decode("   ")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> TransactionCursor.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> TransactionCursor.decode(encode("2026-10-14T10:15")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> TransactionCursor.decode(encode("yesterday|42")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> TransactionCursor.decode(encode("2026-10-14T10:15|abc")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
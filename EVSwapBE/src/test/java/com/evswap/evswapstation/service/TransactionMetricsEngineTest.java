@@ -0,0 +1,153 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionMetricsEngineTest {
+
+    // Thứ Tư
+    private static final LocalDateTime WEDNESDAY_10H = LocalDateTime.of(2026, 10, 14, 10, 15);
+
+    private TransactionRepository transactionRepository;
+    private TransactionMetricsEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        engine = new TransactionMetricsEngine(transactionRepository);
+    }
+
+    @Test
+    void createdTransactionsLandInHourDayAndWeekBuckets() {
+        engine.onTransactionChanged(created(WEDNESDAY_10H, "100.50"));
+        engine.onTransactionChanged(created(WEDNESDAY_10H.plusMinutes(40), "20.25"));
+        engine.onTransactionChanged(created(WEDNESDAY_10H.plusHours(1), "5.00"));
+
+        assertThat(engine.hour(WEDNESDAY_10H)).isEqualTo(totals(2, "120.75"));
+        assertThat(engine.hour(WEDNESDAY_10H.plusHours(1))).isEqualTo(totals(1, "5.00"));
+        assertThat(engine.day(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(3, "125.75"));
+        assertThat(engine.week(LocalDate.of(2026, 10, 18))).isEqualTo(totals(3, "125.75"));
+        assertThat(engine.day(WEDNESDAY_10H.toLocalDate().plusDays(1))).isEqualTo(totals(0, "0.00"));
+    }
+
+    @Test
+    void weekBucketStartsOnMonday() {
+        assertThat(TransactionMetricsEngine.startOfWeek(LocalDate.of(2026, 10, 12)))
+                .isEqualTo(LocalDate.of(2026, 10, 12));
+        assertThat(TransactionMetricsEngine.startOfWeek(LocalDate.of(2026, 10, 18)))
+                .isEqualTo(LocalDate.of(2026, 10, 12));
+        assertThat(TransactionMetricsEngine.startOfWeek(LocalDate.of(2026, 10, 19)))
+                .isEqualTo(LocalDate.of(2026, 10, 19));
+
+        // Chủ nhật 23h và thứ Hai 0h thuộc hai tuần khác nhau
+        engine.onTransactionChanged(created(LocalDateTime.of(2026, 10, 18, 23, 59), "1.00"));
+        engine.onTransactionChanged(created(LocalDateTime.of(2026, 10, 19, 0, 0), "2.00"));
+
+        assertThat(engine.week(LocalDate.of(2026, 10, 12))).isEqualTo(totals(1, "1.00"));
+        assertThat(engine.week(LocalDate.of(2026, 10, 19))).isEqualTo(totals(1, "2.00"));
+    }
+
+    @Test
+    void updateMovesCountAndRevenueBetweenBuckets() {
+        TransactionSnapshot before = snapshot(WEDNESDAY_10H, "10.00");
+        TransactionSnapshot after = snapshot(WEDNESDAY_10H.plusDays(1), "12.50");
+        engine.onTransactionChanged(new TransactionChangedEvent(1L, null, before));
+        engine.onTransactionChanged(new TransactionChangedEvent(1L, before, after));
+
+        assertThat(engine.day(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(0, "0.00"));
+        assertThat(engine.day(WEDNESDAY_10H.toLocalDate().plusDays(1))).isEqualTo(totals(1, "12.50"));
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(1, "12.50"));
+
+        engine.onTransactionChanged(new TransactionChangedEvent(1L, after, null));
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(0, "0.00"));
+    }
+
+    @Test
+    void amountsAreRoundedToCents() {
+        engine.onTransactionChanged(created(WEDNESDAY_10H, "0.005"));
+        engine.onTransactionChanged(created(WEDNESDAY_10H, "0.004"));
+        engine.onTransactionChanged(created(WEDNESDAY_10H, null));
+
+        assertThat(engine.hour(WEDNESDAY_10H)).isEqualTo(totals(3, "0.01"));
+    }
+
+    @Test
+    void openingANewWeekEvictsBucketsPastRetention() {
+        engine.onTransactionChanged(created(WEDNESDAY_10H, "1.00"));
+        engine.onTransactionChanged(created(WEDNESDAY_10H.plusWeeks(3), "1.00"));
+
+        // Vẫn trong 4 tuần giữ lại
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(1, "1.00"));
+
+        engine.onTransactionChanged(created(WEDNESDAY_10H.plusWeeks(4), "1.00"));
+
+        assertThat(engine.hour(WEDNESDAY_10H)).isEqualTo(totals(0, "0.00"));
+        assertThat(engine.day(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(0, "0.00"));
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate())).isEqualTo(totals(0, "0.00"));
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate().plusWeeks(3))).isEqualTo(totals(1, "1.00"));
+        assertThat(engine.week(WEDNESDAY_10H.toLocalDate().plusWeeks(4))).isEqualTo(totals(1, "1.00"));
+    }
+
+    @Test
+    void bulkInsertAndHourOfDayHistogram() {
+        engine.onTransactionsBulkInserted(new TransactionsBulkInsertedEvent(List.of(
+                snapshot(WEDNESDAY_10H, "1.00"),
+                snapshot(WEDNESDAY_10H.plusDays(1), "1.00"),
+                snapshot(WEDNESDAY_10H.withHour(23), "1.00"),
+                snapshot(null, "1.00"))));
+
+        long[] counts = engine.countsByHourOfDay(WEDNESDAY_10H.toLocalDate(), WEDNESDAY_10H.toLocalDate().plusDays(1));
+        assertThat(counts).hasSize(24);
+        assertThat(counts[10]).isEqualTo(2);
+        assertThat(counts[23]).isEqualTo(1);
+        assertThat(counts[0]).isZero();
+    }
+
+    @Test
+    void seedLoadsHourlyRowsFromRepository() {
+        LocalDate today = LocalDate.now();
+        when(transactionRepository.sumCountAndRevenueByHour(any())).thenReturn(List.<Object[]>of(
+                new Object[]{today, 8, 3L, new BigDecimal("30.00")},
+                new Object[]{today, 9, 1L, null}));
+
+        engine.seed();
+
+        assertThat(engine.hour(today.atTime(8, 30))).isEqualTo(totals(3, "30.00"));
+        assertThat(engine.day(today)).isEqualTo(totals(4, "30.00"));
+    }
+
+    @Test
+    void seedFailureStartsEmpty() {
+        when(transactionRepository.sumCountAndRevenueByHour(any())).thenThrow(new IllegalStateException("db down"));
+
+        engine.seed();
+
+        assertThat(engine.day(LocalDate.now())).isEqualTo(totals(0, "0.00"));
+    }
+
+    private static TransactionChangedEvent created(LocalDateTime time, String amount) {
+        return new TransactionChangedEvent(null, null, snapshot(time, amount));
+    }
+
+    private static TransactionSnapshot snapshot(LocalDateTime time, String amount) {
+        return new TransactionSnapshot(1, 1L, 1L, amount != null ? new BigDecimal(amount) : null, "COMPLETED", time, time);
+    }
+
+    private static TransactionMetricsEngine.Totals totals(long count, String revenue) {
+        return new TransactionMetricsEngine.Totals(count, new BigDecimal(revenue));
+    }
+}
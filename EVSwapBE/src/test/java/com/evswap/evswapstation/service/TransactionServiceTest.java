@@ -0,0 +1,94 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.dto.TransactionDTO;
+import com.evswap.evswapstation.entity.TransactionEntity;
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.repository.BatteryRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionServiceTest {
+
+    private TransactionRepository transactionRepository;
+    private VehicleRepository vehicleRepository;
+    private TransactionService service;
+    private final User owner = user(1);
+    private final User other = user(2);
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any(TransactionEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1)).thenReturn(Optional.of(owner));
+        when(userRepository.findById(2)).thenReturn(Optional.of(other));
+        vehicleRepository = mock(VehicleRepository.class);
+        when(vehicleRepository.existsByVinAndUser_UserID("VIN-OWNER", 1)).thenReturn(true);
+        when(vehicleRepository.findPrimaryVin(1)).thenReturn("VIN-OWNER");
+        when(vehicleRepository.findPrimaryVin(2)).thenReturn("VIN-OTHER");
+
+        service = new TransactionService(transactionRepository, userRepository, vehicleRepository,
+                mock(BatteryRepository.class), mock(PackagePlanService.class), mock(TransactionMetricsEngine.class),
+                mock(StationLeaderboard.class), mock(UserCohortService.class), mock(PackageRollupService.class));
+    }
+
+    @Test
+    void createKeepsARegisteredVinAndFallsBackToThePrimaryOne() {
+        assertThat(service.createTransaction(request(1L, "VIN-OWNER")).getVin()).isEqualTo("VIN-OWNER");
+        assertThat(service.createTransaction(request(2L, null)).getVin()).isEqualTo("VIN-OTHER");
+        assertThat(service.createTransaction(request(2L, " ")).getVin()).isEqualTo("VIN-OTHER");
+    }
+
+    @Test
+    void createRejectsAVinTheUserHasNotRegistered() {
+        assertThatThrownBy(() -> service.createTransaction(request(2L, "VIN-OWNER")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("VIN VIN-OWNER is not registered to user 2");
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void updateChecksTheVinAgainstTheTransactionsUser() {
+        TransactionEntity existing = new TransactionEntity();
+        existing.setUser(owner);
+        existing.setVin("VIN-OWNER");
+        when(transactionRepository.findById(10L)).thenReturn(Optional.of(existing));
+
+        // Chuyển sang user khác nhưng giữ VIN của user cũ: bị từ chối
+        assertThatThrownBy(() -> service.updateTransaction(10L, request(2L, "VIN-OWNER")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(transactionRepository, never()).save(any());
+
+        // Không gửi VIN khi đổi user: lấy xe chính của user mới
+        assertThat(service.updateTransaction(10L, request(2L, null)).getVin()).isEqualTo("VIN-OTHER");
+    }
+
+    private static TransactionDTO request(Long userId, String vin) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setUserId(userId);
+        dto.setStationId(5L);
+        dto.setAmount(BigDecimal.TEN);
+        dto.setVin(vin);
+        return dto;
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setUserID(id);
+        return user;
+    }
+}
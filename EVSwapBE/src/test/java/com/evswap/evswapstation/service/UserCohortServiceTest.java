@@ -0,0 +1,137 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.event.TransactionChangedEvent;
+import com.evswap.evswapstation.event.TransactionSnapshot;
+import com.evswap.evswapstation.event.TransactionsBulkInsertedEvent;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserMonthlyActiveUserRepository;
+import com.evswap.evswapstation.repository.UserMonthlyCohortRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UserCohortServiceTest {
+
+    private static final LocalDate OCTOBER = LocalDate.of(2026, 10, 1);
+    private static final LocalDate NOVEMBER = LocalDate.of(2026, 11, 1);
+
+    private UserMonthlyCohortRepository cohortRepository;
+    private UserMonthlyActiveUserRepository activeUserRepository;
+    private UserCohortService service;
+
+    @BeforeEach
+    void setUp() {
+        cohortRepository = mock(UserMonthlyCohortRepository.class);
+        activeUserRepository = mock(UserMonthlyActiveUserRepository.class);
+        service = new UserCohortService(cohortRepository, activeUserRepository,
+                mock(TransactionRepository.class), mock(UserRepository.class));
+    }
+
+    @Test
+    void firstTransactionOfTheMonthCountsTheUserOnce() {
+        when(activeUserRepository.markActive(OCTOBER, 1)).thenReturn(1, 0);
+
+        service.onTransactionChanged(created(1L, snapshot(1, OCTOBER.atTime(9, 0))));
+        service.onTransactionChanged(created(2L, snapshot(1, OCTOBER.plusDays(3).atTime(9, 0))));
+
+        verify(cohortRepository).increment(OCTOBER, 0, 1);
+        verify(cohortRepository, never()).increment(OCTOBER, 0, 0);
+    }
+
+    @Test
+    void deletingTheLastTransactionOfTheMonthRemovesTheUser() {
+        when(activeUserRepository.unmarkIfIdle(OCTOBER, 1, OCTOBER.atStartOfDay(), NOVEMBER.atStartOfDay()))
+                .thenReturn(1);
+
+        service.onTransactionChanged(new TransactionChangedEvent(1L, snapshot(1, OCTOBER.atTime(9, 0)), null));
+
+        verify(cohortRepository).increment(OCTOBER, 0, -1);
+    }
+
+    @Test
+    void deletingWhileOtherTransactionsRemainKeepsTheUser() {
+        when(activeUserRepository.unmarkIfIdle(any(), anyInt(), any(), any())).thenReturn(0);
+
+        service.onTransactionChanged(new TransactionChangedEvent(1L, snapshot(1, OCTOBER.atTime(9, 0)), null));
+
+        verify(cohortRepository, never()).increment(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void movingToAnotherMonthMarksTheNewMonthBeforeUnmarkingTheOld() {
+        when(activeUserRepository.markActive(NOVEMBER, 1)).thenReturn(1);
+        when(activeUserRepository.unmarkIfIdle(eq(OCTOBER), eq(1), any(), any())).thenReturn(1);
+
+        service.onTransactionChanged(new TransactionChangedEvent(1L,
+                snapshot(1, OCTOBER.atTime(9, 0)), snapshot(1, NOVEMBER.atTime(9, 0))));
+
+        InOrder order = inOrder(activeUserRepository);
+        order.verify(activeUserRepository).markActive(NOVEMBER, 1);
+        order.verify(activeUserRepository).unmarkIfIdle(eq(OCTOBER), eq(1), any(), any());
+        verify(cohortRepository).increment(NOVEMBER, 0, 1);
+        verify(cohortRepository).increment(OCTOBER, 0, -1);
+    }
+
+    @Test
+    void reassigningToAnotherUserMovesTheActiveFlag() {
+        when(activeUserRepository.markActive(OCTOBER, 2)).thenReturn(1);
+        when(activeUserRepository.unmarkIfIdle(eq(OCTOBER), eq(1), any(), any())).thenReturn(1);
+
+        service.onTransactionChanged(new TransactionChangedEvent(1L,
+                snapshot(1, OCTOBER.atTime(9, 0)), snapshot(2, OCTOBER.atTime(9, 0))));
+
+        // +1 và -1 trên cùng một tháng
+        verify(cohortRepository).increment(OCTOBER, 0, 1);
+        verify(cohortRepository).increment(OCTOBER, 0, -1);
+    }
+
+    @Test
+    void updateWithinTheSameMonthAndUserIsIgnored() {
+        service.onTransactionChanged(new TransactionChangedEvent(1L,
+                snapshot(1, OCTOBER.atTime(9, 0)), snapshot(1, OCTOBER.plusDays(20).atTime(18, 0))));
+
+        verifyNoInteractions(activeUserRepository, cohortRepository);
+    }
+
+    @Test
+    void bulkInsertMarksEachUserMonthOnce() {
+        when(activeUserRepository.markActive(OCTOBER, 1)).thenReturn(1);
+        when(activeUserRepository.markActive(OCTOBER, 2)).thenReturn(0);
+        when(activeUserRepository.markActive(NOVEMBER, 1)).thenReturn(1);
+
+        service.onTransactionsBulkInserted(new TransactionsBulkInsertedEvent(List.of(
+                snapshot(1, OCTOBER.atTime(9, 0)),
+                snapshot(1, OCTOBER.plusDays(1).atTime(9, 0)),
+                snapshot(2, OCTOBER.atTime(10, 0)),
+                snapshot(1, NOVEMBER.atTime(9, 0)))));
+
+        verify(activeUserRepository).markActive(OCTOBER, 1);
+        verify(cohortRepository).increment(OCTOBER, 0, 1);
+        verify(cohortRepository).increment(NOVEMBER, 0, 1);
+    }
+
+    private static TransactionChangedEvent created(Long id, TransactionSnapshot after) {
+        return new TransactionChangedEvent(id, null, after);
+    }
+
+    private static TransactionSnapshot snapshot(Integer userId, LocalDateTime time) {
+        return new TransactionSnapshot(userId, 5L, null, BigDecimal.TEN, "COMPLETED", time, time);
+    }
+}
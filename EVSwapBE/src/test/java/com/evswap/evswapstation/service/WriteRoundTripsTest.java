@@ -0,0 +1,170 @@
+package com.evswap.evswapstation.service;
+
+import com.evswap.evswapstation.config.QueryLoggingConfig;
+import com.evswap.evswapstation.dto.BatteryReturnRequest;
+import com.evswap.evswapstation.dto.QueryStatsDTO;
+import com.evswap.evswapstation.entity.Battery;
+import com.evswap.evswapstation.entity.TransactionEntity;
+import com.evswap.evswapstation.entity.User;
+import com.evswap.evswapstation.event.TransactionEntityListener;
+import com.evswap.evswapstation.repository.BatteryRepository;
+import com.evswap.evswapstation.repository.BatteryReturnRepository;
+import com.evswap.evswapstation.repository.PaymentRepository;
+import com.evswap.evswapstation.repository.TransactionRepository;
+import com.evswap.evswapstation.repository.UserRepository;
+import com.evswap.evswapstation.repository.VehicleRepository;
+import com.paypal.base.rest.APIContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đếm câu lệnh JDBC của từng thao tác ghi bằng bộ đếm của QueryMetrics (DataSource được bọc như khi chạy thật).
+ * threshold-ms=0 để mọi câu lệnh vào slow-query log, từ đó kiểm tra được câu SQL nào đã chạy.
+ * Các test tự commit (không dùng transaction rollback của @DataJpaTest) vì UPDATE chỉ được flush khi commit.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "monitoring.slow-query.threshold-ms=0"
+})
+@Import({QueryLoggingConfig.class, QueryMetrics.class, TransactionEntityListener.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WriteRoundTripsTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private BatteryReturnRepository batteryReturnRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionEntity transaction;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        int n = SEQUENCE.incrementAndGet();
+        User user = new User();
+        user.setUserName("round-trips-" + n);
+        user.setEmail("round-trips-" + n + "@evswap.test");
+        user.setFullName("Round Trips");
+        transaction = new TransactionEntity();
+        transaction.setUser(userRepository.save(user));
+        transaction.setStatus("PENDING");
+        transaction.setPayPalTransactionId("PAY-" + n);
+        transaction = transactionRepository.save(transaction);
+    }
+
+    @Test
+    void createBatteryReturnPersistsTheReturnWithoutMergeSelect() {
+        // BatteryRepository được mock: khóa Integer của repository không khớp UUID của Battery trong schema H2.
+        // Battery không có cột nào bị đổi (quantity / borrowStatus là @Transient) nên không sinh câu lệnh nào.
+        BatteryRepository batteryRepository = mock(BatteryRepository.class);
+        when(batteryRepository.findById(1)).thenReturn(Optional.of(new Battery()));
+        BatteryReturnService service = new BatteryReturnService(batteryReturnRepository, batteryRepository,
+                transactionRepository, mock(ApplicationEventPublisher.class));
+        BatteryReturnRequest request = BatteryReturnRequest.builder()
+                .batteryID(1)
+                .transactionID(transaction.getTransactionId().intValue())
+                .customer("Round Trips")
+                .phone("0900000000")
+                .build();
+
+        List<String> statements = statementsDuring(() -> service.createBatteryReturn(request));
+
+        // Trước đây save() merge BatteryReturn (khóa gán sẵn) nên có thêm một SELECT BatteryReturn join Battery: 5 câu
+        assertThat(statements).containsExactlyInAnyOrder(
+                "select Transactions",
+                "select BatteryReturn",
+                "insert BatteryReturn",
+                "update Transactions");
+    }
+
+    @Test
+    void executePaymentWritesTheTransactionOnceAroundThePaymentInsert() {
+        PayPalService service = new PayPalService(mock(APIContext.class), paymentRepository, transactionRepository,
+                userRepository, mock(VehicleRepository.class), mock(PinningGuard.class), transactionManager);
+
+        List<String> statements = statementsDuring(
+                () -> service.recordExecution(transaction.getPayPalTransactionId(), "approved"));
+
+        // status / record / paymentId đi chung một UPDATE lúc commit
+        assertThat(statements).containsExactlyInAnyOrder(
+                "select Transactions",
+                "insert Payments",
+                "update Transactions");
+        TransactionEntity completed = transactionRepository.findById(transaction.getTransactionId()).orElseThrow();
+        assertThat(completed.getStatus()).isEqualTo("COMPLETED");
+        assertThat(completed.getPaymentId()).isNotNull();
+    }
+
+    /**
+     * Chạy thao tác trong một transaction rồi commit; trả về "động từ bảng" của từng câu lệnh đã chạy
+     */
+    private List<String> statementsDuring(Runnable operation) {
+        queryMetrics.flush();
+        List<QueryStatsDTO.SlowQuery> before = queryMetrics.snapshot().getRecentSlowQueries();
+        long statementsBefore = queryMetrics.snapshot().getStatements();
+
+        transactionTemplate.executeWithoutResult(status -> operation.run());
+
+        queryMetrics.flush();
+        long executed = queryMetrics.snapshot().getStatements() - statementsBefore;
+        List<QueryStatsDTO.SlowQuery> during = new ArrayList<>(queryMetrics.snapshot().getRecentSlowQueries());
+        during.removeAll(before);
+        List<String> statements = new ArrayList<>();
+        for (QueryStatsDTO.SlowQuery query : during) {
+            statements.add(describe(query.getSql()));
+        }
+        assertThat(statements).hasSize((int) executed);
+        return statements;
+    }
+
+    private static String describe(String sql) {
+        String[] words = sql.split(" ");
+        String verb = words[0].toLowerCase(Locale.ROOT);
+        String table = switch (verb) {
+            case "insert" -> words[2];
+            case "update" -> words[1];
+            default -> words[indexOf(words, "from") + 1];
+        };
+        return verb + " " + table;
+    }
+
+    private static int indexOf(String[] words, String word) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equalsIgnoreCase(word)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No '" + word + "' in: " + String.join(" ", words));
+    }
+}